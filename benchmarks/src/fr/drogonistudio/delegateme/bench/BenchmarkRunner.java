@@ -0,0 +1,34 @@
+package fr.drogonistudio.delegateme.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run benchmarks with allocation profiling.
+ * 
+ * <p>
+ * It accept the same arguments as JMH's runner (like a benchmark's regex) but
+ * GC profiler is always enabled, so results contain allocation rate.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public final class BenchmarkRunner
+{
+    
+    private BenchmarkRunner()
+    {
+    }
+    
+    public static void main(String args[]) throws CommandLineOptionException, RunnerException
+    {
+	Options options = new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class)
+		.build();
+	new Runner(options).run();
+    }
+}
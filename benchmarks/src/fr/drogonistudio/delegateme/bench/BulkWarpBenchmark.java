@@ -0,0 +1,90 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Measuring {@link DelegatorFactory#warpAll} cost.
+ * 
+ * <p>
+ * A whole batch of models (with 8 fields) is warped by each invocation. Bulk
+ * warps are compared with a loop calling {@link DelegatorFactory#warp}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkWarpBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int batchSize;
+    
+    private Class<Service> type;
+    
+    private List<Delegator<Service>> delegators;
+    
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setup()
+    {
+	this.type = (Class<Service>) Models.modelClass(8);
+	this.delegators = new ArrayList<>(this.batchSize);
+	for (int i = 0; i < this.batchSize; i++)
+	    this.delegators.add(new Models.PassThroughDelegator<>(Models.create(8)));
+	
+	// Filling proxy classes cache
+	DelegatorFactory.warp(this.type, this.delegators.get(0));
+    }
+    
+    @Benchmark
+    public List<Service> loop()
+    {
+	List<Service> warpped = new ArrayList<>(this.batchSize);
+	for (Delegator<Service> delegator : this.delegators)
+	    warpped.add(DelegatorFactory.warp(this.type, delegator));
+	
+	return warpped;
+    }
+    
+    @Benchmark
+    public List<Service> warpAll()
+    {
+	return DelegatorFactory.warpAll(this.type, this.delegators);
+    }
+    
+    @Benchmark
+    public List<Service> warpAllParallel()
+    {
+	return DelegatorFactory.warpAll(this.type, this.delegators, ForkJoinPool.commonPool());
+    }
+    
+    @Benchmark
+    public List<Service> warpAllStream()
+    {
+	return DelegatorFactory.warpAll(this.type, this.delegators.stream()).collect(Collectors.toList());
+    }
+}
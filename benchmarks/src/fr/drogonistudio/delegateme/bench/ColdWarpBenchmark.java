@@ -0,0 +1,59 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Measuring {@link DelegatorFactory#warp} cost when proxy class isn't cached.
+ * 
+ * <p>
+ * Before each call, model class is defined again into a new class loader, so
+ * each warp generate and load a new proxy class (and a new fields copier).
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@Fork(1)
+public class ColdWarpBenchmark
+{
+    @Param({ "1", "8", "32" })
+    public int fieldCount;
+    
+    private Class<Object> type;
+    
+    private Object delegated;
+    
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Iteration)
+    public void setup() throws ReflectiveOperationException
+    {
+	ClassLoader loader = new Models.IsolatedLoader();
+	this.type = (Class<Object>) Class.forName(Models.modelClass(this.fieldCount).getName(), true, loader);
+	this.delegated = this.type.getConstructor().newInstance();
+    }
+    
+    @Benchmark
+    public Object warpCold()
+    {
+	return DelegatorFactory.warp(this.type, new Models.PassThroughDelegator<>(this.delegated));
+    }
+}
@@ -0,0 +1,69 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Measuring {@link Delegator#delegate} latency.
+ * 
+ * <p>
+ * It's compared with a reflective call on delegated object, which is what a
+ * delegator would do without {@code delegate}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelegateBenchmark
+{
+    private Fields1 delegated;
+    
+    private Fields1 proxy;
+    
+    private Models.PassThroughDelegator<Fields1> delegator;
+    
+    private Method method;
+    
+    private Object args[];
+    
+    @Setup
+    public void setup() throws NoSuchMethodException
+    {
+	this.delegated = new Fields1();
+	this.delegator = new Models.PassThroughDelegator<>(this.delegated);
+	this.proxy = DelegatorFactory.warp(Fields1.class, this.delegator);
+	this.method = Fields1.class.getMethod("compute", int.class);
+	this.args = new Object[] { 42 };
+    }
+    
+    @Benchmark
+    public Object delegate() throws Throwable
+    {
+	return this.delegator.callDelegate(this.proxy, this.method, this.args);
+    }
+    
+    @Benchmark
+    public Object reflection() throws Throwable
+    {
+	return this.method.invoke(this.delegated, this.args);
+    }
+}
@@ -0,0 +1,117 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.DelegatorFactory.DelegatedMethodIntercepter;
+import fr.drogonistudio.delegateme.Invocation;
+import fr.drogonistudio.delegateme.InvocationDelegator;
+import fr.drogonistudio.delegateme.MethodTable;
+import fr.drogonistudio.delegateme.MetricsDelegator;
+import fr.drogonistudio.delegateme.Pipeline;
+
+/**
+ * Measuring dispatch from proxies to their delegator.
+ * 
+ * <p>
+ * Proxies dispatch invocations through an {@code invokedynamic} call site per
+ * method, specialized for delegator's class. It's compared with a dispatch
+ * through static methods of {@link DelegatedMethodIntercepter} (shared by all
+ * proxies, as proxies did before). When {@code polluted} is set, other
+ * delegator classes are dispatched through these static methods first, like
+ * they would be in an application using many delegators.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark
+{
+    @Param({ "false", "true" })
+    public boolean polluted;
+    
+    private Service direct;
+    
+    private Service proxy;
+    
+    private InvocationDelegator<Fields1> delegator;
+    
+    private Method methods[];
+    
+    private int index;
+    
+    public int value = 42;
+    
+    @Setup
+    public void setup() throws Throwable
+    {
+	this.direct = new Fields1();
+	this.delegator = new Models.PassThroughInvocationDelegator<>(new Fields1());
+	this.proxy = DelegatorFactory.warp(Fields1.class, this.delegator);
+	this.methods = DelegatedMethodIntercepter.methods(Fields1.class);
+	this.index = MethodTable.of(Fields1.class).indexOf("compute", int.class);
+	
+	if (this.polluted)
+	{
+	    Fields8 delegated = new Fields8();
+	    @SuppressWarnings("unchecked")
+	    InvocationDelegator<Fields8> others[] = new InvocationDelegator[] {
+		    new Models.PassThroughInvocationDelegator<>(delegated),
+		    new MetricsDelegator<>(Fields8.class, delegated),
+		    Pipeline.of(Fields8.class, new MetricsDelegator<>(Fields8.class, delegated)) };
+	    Object otherProxies[] = new Object[others.length];
+	    for (int i = 0; i < others.length; i++)
+		otherProxies[i] = DelegatorFactory.warp(Fields8.class, others[i]);
+	    int otherIndex = MethodTable.of(Fields8.class).indexOf("compute", int.class);
+	    Method otherMethods[] = DelegatedMethodIntercepter.methods(Fields8.class);
+	    
+	    for (int i = 0; i < 100_000; i++)
+	    {
+		int other = i % others.length;
+		Invocation invocation = DelegatedMethodIntercepter.enter(
+			(DelegatorFactory.ProxiedObject) otherProxies[other], otherMethods, otherIndex, 1);
+		invocation.setIntArg(0, i);
+		DelegatedMethodIntercepter.dispatchInt(others[other], invocation);
+	    }
+	}
+    }
+    
+    @Benchmark
+    public int direct()
+    {
+	return this.direct.compute(this.value);
+    }
+    
+    @Benchmark
+    public int invokedynamic()
+    {
+	return this.proxy.compute(this.value);
+    }
+    
+    @Benchmark
+    public int staticDispatch() throws Throwable
+    {
+	Invocation invocation = DelegatedMethodIntercepter.enter((DelegatorFactory.ProxiedObject) this.proxy,
+		this.methods, this.index, 1);
+	invocation.setIntArg(0, this.value);
+	return DelegatedMethodIntercepter.dispatchInt(this.delegator, invocation);
+    }
+}
@@ -0,0 +1,23 @@
+package fr.drogonistudio.delegateme.bench;
+
+/**
+ * Benchmark's model with 1 field.
+ * 
+ * @author DrogoniEntity
+ */
+public class Fields1 implements Service
+{
+    private int field0 = 0;
+    
+    @Override
+    public int compute(int value)
+    {
+	return this.field0 + value;
+    }
+    
+    @Override
+    public void touch()
+    {
+	this.field0++;
+    }
+}
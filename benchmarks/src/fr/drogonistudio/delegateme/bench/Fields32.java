@@ -0,0 +1,54 @@
+package fr.drogonistudio.delegateme.bench;
+
+/**
+ * Benchmark's model with 32 fields.
+ * 
+ * @author DrogoniEntity
+ */
+public class Fields32 implements Service
+{
+    private int field0 = 0;
+    private long field1 = 1L;
+    private double field2 = 2.5;
+    private String field3 = "v3";
+    private boolean field4 = false;
+    private int field5 = 5;
+    private long field6 = 6L;
+    private double field7 = 7.5;
+    private String field8 = "v8";
+    private boolean field9 = true;
+    private int field10 = 10;
+    private long field11 = 11L;
+    private double field12 = 12.5;
+    private String field13 = "v13";
+    private boolean field14 = false;
+    private int field15 = 15;
+    private long field16 = 16L;
+    private double field17 = 17.5;
+    private String field18 = "v18";
+    private boolean field19 = true;
+    private int field20 = 20;
+    private long field21 = 21L;
+    private double field22 = 22.5;
+    private String field23 = "v23";
+    private boolean field24 = false;
+    private int field25 = 25;
+    private long field26 = 26L;
+    private double field27 = 27.5;
+    private String field28 = "v28";
+    private boolean field29 = true;
+    private int field30 = 30;
+    private long field31 = 31L;
+    
+    @Override
+    public int compute(int value)
+    {
+	return this.field0 + value;
+    }
+    
+    @Override
+    public void touch()
+    {
+	this.field0++;
+    }
+}
@@ -0,0 +1,30 @@
+package fr.drogonistudio.delegateme.bench;
+
+/**
+ * Benchmark's model with 8 fields.
+ * 
+ * @author DrogoniEntity
+ */
+public class Fields8 implements Service
+{
+    private int field0 = 0;
+    private long field1 = 1L;
+    private double field2 = 2.5;
+    private String field3 = "v3";
+    private boolean field4 = false;
+    private int field5 = 5;
+    private long field6 = 6L;
+    private double field7 = 7.5;
+    
+    @Override
+    public int compute(int value)
+    {
+	return this.field0 + value;
+    }
+    
+    @Override
+    public void touch()
+    {
+	this.field0++;
+    }
+}
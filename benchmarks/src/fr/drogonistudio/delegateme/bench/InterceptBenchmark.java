@@ -0,0 +1,94 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.MetricsDelegator;
+
+/**
+ * Measuring throughput of intercepted calls with a pass-through delegator.
+ * 
+ * <p>
+ * Proxied calls go through generated code and
+ * {@link DelegatorFactory.DelegatedMethodIntercepter}. They are compared with a
+ * direct call, with a {@link Proxy} using reflection and with a
+ * {@link MetricsDelegator} (to measure metrics' recording cost).
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptBenchmark
+{
+    private Service direct;
+    
+    private Service delegator;
+    
+    private Service invocationDelegator;
+    
+    private Service jdkProxy;
+    
+    private Service metricsDelegator;
+    
+    public int value = 42;
+    
+    @Setup
+    public void setup()
+    {
+	this.direct = new Fields1();
+	this.delegator = DelegatorFactory.warp(Fields1.class, new Models.PassThroughDelegator<>(new Fields1()));
+	this.invocationDelegator = DelegatorFactory.warp(Fields1.class,
+		new Models.PassThroughInvocationDelegator<>(new Fields1()));
+	this.jdkProxy = (Service) Proxy.newProxyInstance(Service.class.getClassLoader(),
+		new Class<?>[] { Service.class }, new Models.PassThroughHandler(new Fields1()));
+	this.metricsDelegator = DelegatorFactory.warp(Fields1.class,
+		new MetricsDelegator<>(Fields1.class, new Fields1()));
+    }
+    
+    @Benchmark
+    public int direct()
+    {
+	return this.direct.compute(this.value);
+    }
+    
+    @Benchmark
+    public int delegator()
+    {
+	return this.delegator.compute(this.value);
+    }
+    
+    @Benchmark
+    public int invocationDelegator()
+    {
+	return this.invocationDelegator.compute(this.value);
+    }
+    
+    @Benchmark
+    public int jdkProxy()
+    {
+	return this.jdkProxy.compute(this.value);
+    }
+    
+    @Benchmark
+    public int metricsDelegator()
+    {
+	return this.metricsDelegator.compute(this.value);
+    }
+}
@@ -0,0 +1,257 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.Invocation;
+import fr.drogonistudio.delegateme.InvocationDelegator;
+import fr.drogonistudio.delegateme.MethodTable;
+
+/**
+ * Utilities shared by all benchmarks.
+ * 
+ * @author DrogoniEntity
+ */
+public final class Models
+{
+    
+    private Models()
+    {
+    }
+    
+    /**
+     * Getting model's class with {@code fieldCount} fields.
+     * 
+     * @param fieldCount
+     *            fields count ({@code 1}, {@code 8} or {@code 32})
+     * @return model's class
+     * @throws IllegalArgumentException
+     *             if there is no model with {@code fieldCount} fields
+     */
+    public static Class<? extends Service> modelClass(int fieldCount) throws IllegalArgumentException
+    {
+	switch (fieldCount)
+	{
+	    case 1:
+		return Fields1.class;
+	    case 8:
+		return Fields8.class;
+	    case 32:
+		return Fields32.class;
+	    default:
+		throw new IllegalArgumentException("no model with " + fieldCount + " fields");
+	}
+    }
+    
+    /**
+     * Create a model with {@code fieldCount} fields.
+     * 
+     * @param fieldCount
+     *            fields count
+     * @return created model
+     * @throws IllegalArgumentException
+     *             if there is no model with {@code fieldCount} fields
+     */
+    public static Service create(int fieldCount) throws IllegalArgumentException
+    {
+	try
+	{
+	    return modelClass(fieldCount).getConstructor().newInstance();
+	} catch (ReflectiveOperationException ex)
+	{
+	    throw new IllegalArgumentException(ex);
+	}
+    }
+    
+    /**
+     * A delegator which only perform default behavior.
+     * 
+     * @author DrogoniEntity
+     * @param <Type>
+     *            delegated type
+     */
+    public static final class PassThroughDelegator<Type> extends Delegator<Type>
+    {
+	public PassThroughDelegator(Type delegated)
+	{
+	    super(delegated);
+	}
+	
+	@Override
+	public Object invoke(Type proxy, Method method, Object[] args) throws Throwable
+	{
+	    return this.delegate(proxy, method, args);
+	}
+	
+	/**
+	 * Expose {@link #delegate(Object, Method, Object[])} to benchmarks.
+	 * 
+	 * @param proxy
+	 *            proxy object
+	 * @param method
+	 *            method to invoke
+	 * @param args
+	 *            passed parameters
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if invocation failed
+	 */
+	public Object callDelegate(Type proxy, Method method, Object[] args) throws Throwable
+	{
+	    return this.delegate(proxy, method, args);
+	}
+    }
+    
+    /**
+     * A delegator which perform default behavior and synchronize proxy's fields.
+     * 
+     * <p>
+     * Fields are either synchronized after each invocation, or marked as out of
+     * date and synchronized by {@link #flush(EqualsCompareStrategy)}.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     * @param <Type>
+     *            delegated type
+     */
+    public static final class SyncingDelegator<Type> extends Delegator<Type>
+    {
+	private final boolean deferred;
+	
+	private final EqualsCompareStrategy strategy;
+	
+	public SyncingDelegator(Type delegated, boolean deferred, EqualsCompareStrategy strategy)
+	{
+	    super(delegated);
+	    this.deferred = deferred;
+	    this.strategy = strategy;
+	}
+	
+	@Override
+	public Object invoke(Type proxy, Method method, Object[] args) throws Throwable
+	{
+	    return this.invoke(proxy, MethodTable.ofProxy(proxy.getClass()).indexOf(method), method, args);
+	}
+	
+	@Override
+	public Object invoke(Type proxy, int methodIndex, Method method, Object[] args) throws Throwable
+	{
+	    Object result = this.delegate(proxy, methodIndex, args);
+	    if (this.deferred)
+		this.markProxyFieldsDirty(proxy, methodIndex);
+	    else
+		this.updateProxyFieldsValue(proxy, this.strategy);
+	    return result;
+	}
+    }
+    
+    /**
+     * An invocation delegator which only perform default behavior.
+     * 
+     * @author DrogoniEntity
+     * @param <Type>
+     *            delegated type
+     */
+    public static final class PassThroughInvocationDelegator<Type> extends InvocationDelegator<Type>
+    {
+	public PassThroughInvocationDelegator(Type delegated)
+	{
+	    super(delegated);
+	}
+	
+	@Override
+	public void invoke(Invocation invocation) throws Throwable
+	{
+	    invocation.proceed();
+	}
+    }
+    
+    /**
+     * An invocation handler which only invoke method on its target.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class PassThroughHandler implements InvocationHandler
+    {
+	private final Object target;
+	
+	public PassThroughHandler(Object target)
+	{
+	    this.target = target;
+	}
+	
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+	{
+	    return method.invoke(this.target, args);
+	}
+    }
+    
+    /**
+     * A class loader which define its own copy of models.
+     * 
+     * <p>
+     * Each loader got its own model classes, so warping one of them always
+     * generate a new proxy class (like the first warp of a type).
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class IsolatedLoader extends ClassLoader
+    {
+	public IsolatedLoader()
+	{
+	    super(Models.class.getClassLoader());
+	}
+	
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+	{
+	    if (!name.startsWith(Models.class.getPackage().getName() + ".Fields"))
+		return super.loadClass(name, resolve);
+	    
+	    synchronized (this.getClassLoadingLock(name))
+	    {
+		Class<?> loaded = this.findLoadedClass(name);
+		if (loaded == null)
+		{
+		    byte bytes[] = readClass(name);
+		    loaded = this.defineClass(name, bytes, 0, bytes.length);
+		}
+		return loaded;
+	    }
+	}
+	
+	/**
+	 * Read class file of {@code name} from parent loader.
+	 * 
+	 * @param name
+	 *            class' name
+	 * @return class file's content
+	 * @throws ClassNotFoundException
+	 *             if class file can't be read
+	 */
+	private byte[] readClass(String name) throws ClassNotFoundException
+	{
+	    try (InputStream in = this.getParent().getResourceAsStream(name.replace('.', '/') + ".class"))
+	    {
+		if (in == null)
+		    throw new ClassNotFoundException(name);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte buffer[] = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) > 0)
+		    out.write(buffer, 0, read);
+		return out.toByteArray();
+	    } catch (IOException ex)
+	    {
+		throw new ClassNotFoundException(name, ex);
+	    }
+	}
+    }
+}
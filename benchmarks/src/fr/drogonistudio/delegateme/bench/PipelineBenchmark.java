@@ -0,0 +1,75 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.InvocationDelegator;
+import fr.drogonistudio.delegateme.Pipeline;
+
+/**
+ * Measuring intercepted calls through many pass-through delegators.
+ * 
+ * <p>
+ * Delegators are either stacked (each one warp previous proxy) or composed into
+ * a single {@link Pipeline}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark
+{
+    @Param({ "1", "3", "5" })
+    public int depth;
+    
+    private Fields1 stacked;
+    
+    private Fields1 pipeline;
+    
+    public int value = 42;
+    
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup()
+    {
+	Fields1 delegated = new Fields1();
+	this.stacked = delegated;
+	for (int i = 0; i < this.depth; i++)
+	    this.stacked = DelegatorFactory.warp(Fields1.class,
+		    new Models.PassThroughInvocationDelegator<>(this.stacked));
+	
+	InvocationDelegator<Fields1> stages[] = new InvocationDelegator[this.depth];
+	for (int i = 0; i < this.depth; i++)
+	    stages[i] = new Models.PassThroughInvocationDelegator<>(delegated);
+	this.pipeline = DelegatorFactory.warp(Fields1.class, Pipeline.of(Fields1.class, stages));
+    }
+    
+    @Benchmark
+    public int stacked()
+    {
+	return this.stacked.compute(this.value);
+    }
+    
+    @Benchmark
+    public int pipeline()
+    {
+	return this.pipeline.compute(this.value);
+    }
+}
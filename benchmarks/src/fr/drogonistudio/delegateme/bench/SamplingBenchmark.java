@@ -0,0 +1,78 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.MetricsDelegator;
+import fr.drogonistudio.delegateme.Sampler;
+
+/**
+ * Measuring throughput of sampled intercepted calls.
+ * 
+ * <p>
+ * A {@link MetricsDelegator} only receives one call in {@code rate} calls (a
+ * rate of {@code 1} intercepts all calls, {@code 0} sets no sampler at all).
+ * Other calls are directly forwarded to delegated object and are compared with
+ * a direct call.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark
+{
+    @Param({ "0", "1", "100", "10000" })
+    public int rate;
+    
+    private Service direct;
+    
+    private Service metricsDelegator;
+    
+    public int value = 42;
+    
+    @Setup
+    public void setup()
+    {
+	DelegatorFactory.setSampler(Fields8.class, this.rate == 0 ? null : Sampler.oneIn(this.rate));
+	
+	this.direct = new Fields8();
+	this.metricsDelegator = DelegatorFactory.warp(Fields8.class,
+		new MetricsDelegator<>(Fields8.class, new Fields8()));
+    }
+    
+    @TearDown
+    public void tearDown()
+    {
+	DelegatorFactory.setSampler(Fields8.class, null);
+    }
+    
+    @Benchmark
+    public int direct()
+    {
+	return this.direct.compute(this.value);
+    }
+    
+    @Benchmark
+    public int metricsDelegator()
+    {
+	return this.metricsDelegator.compute(this.value);
+    }
+}
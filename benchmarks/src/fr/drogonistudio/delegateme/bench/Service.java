@@ -0,0 +1,27 @@
+package fr.drogonistudio.delegateme.bench;
+
+/**
+ * Service implemented by all benchmark's models.
+ * 
+ * <p>
+ * It allow to compare proxied objects with {@link java.lang.reflect.Proxy}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public interface Service
+{
+    /**
+     * Compute something from {@code value} (a cheap operation).
+     * 
+     * @param value
+     *            input value
+     * @return computed value
+     */
+    int compute(int value);
+    
+    /**
+     * Change first field's value.
+     */
+    void touch();
+}
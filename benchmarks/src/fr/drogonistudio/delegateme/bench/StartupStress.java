@@ -0,0 +1,249 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.ProxyClassCache;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ByteArrayClassLoader;
+import net.bytebuddy.implementation.FixedValue;
+
+/**
+ * Stress test of proxy classes generation at startup.
+ * 
+ * <p>
+ * Several hundred distinct model classes are generated once. For each thread
+ * count, models are loaded by a new class loader (so no proxy class exists
+ * yet) and two scenarios are run :
+ * </p>
+ * <ul>
+ * <li>{@code prepareAll} : {@link DelegatorFactory#prepareAll} with a pool of
+ * this size, its wall-time is reported with its speedup over one thread ;</li>
+ * <li>{@code concurrent warps} : each thread warps all models at the same time
+ * (starting from a different model), to check that each proxy class is
+ * generated only once.</li>
+ * </ul>
+ * 
+ * <p>
+ * Usage : {@code java -cp target/benchmarks.jar fr.drogonistudio.delegateme.bench.StartupStress [typeCount] [threadCounts]}
+ * (by default, 300 types and 1, 2, 4 and available processors threads). Exit
+ * status isn't zero if a class has been generated twice.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public final class StartupStress
+{
+    
+    /**
+     * Package of generated models.
+     */
+    private static final String MODEL_PACKAGE = StartupStress.class.getPackage().getName() + ".stress";
+    
+    private StartupStress()
+    {
+    }
+    
+    public static void main(String args[]) throws Exception
+    {
+	int typeCount = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+	List<Integer> threadCounts = new ArrayList<>();
+	if (args.length > 1)
+	{
+	    for (String count : args[1].split(","))
+		threadCounts.add(Integer.parseInt(count.trim()));
+	} else
+	{
+	    int processors = Runtime.getRuntime().availableProcessors();
+	    for (int count = 1; count < processors && count <= 4; count *= 2)
+		threadCounts.add(count);
+	    threadCounts.add(processors);
+	}
+	
+	Map<String, byte[]> models = generateModels(typeCount);
+	System.out.printf("%d types, %d processors%n", typeCount, Runtime.getRuntime().availableProcessors());
+	
+	// Warming generation code itself (discarded)
+	prepareAll(models, 1);
+	
+	boolean failed = false;
+	double reference = 0.0;
+	System.out.printf("%8s | %16s | %8s | %22s | %10s%n", "threads", "prepareAll (ms)", "speedup",
+		"concurrent warps (ms)", "duplicates");
+	for (int threads : threadCounts)
+	{
+	    double prepareTime = prepareAll(models, threads);
+	    if (reference == 0.0)
+		reference = prepareTime;
+	    
+	    long start = System.nanoTime();
+	    int duplicates = concurrentWarps(models, threads);
+	    double warpTime = (System.nanoTime() - start) / 1e6;
+	    
+	    System.out.printf("%8d | %16.1f | %7.2fx | %22.1f | %10d%n", threads, prepareTime,
+		    reference / prepareTime, warpTime, duplicates);
+	    failed |= duplicates > 0;
+	}
+	
+	if (failed)
+	{
+	    System.out.println("Some classes have been generated more than once");
+	    System.exit(1);
+	}
+    }
+    
+    /**
+     * Prepare all models with {@code threads} threads.
+     * 
+     * @param models
+     *            models' class files
+     * @param threads
+     *            thread count
+     * @return wall-time in milliseconds
+     * @throws Exception
+     *             if models can't be loaded or prepared
+     */
+    private static double prepareAll(Map<String, byte[]> models, int threads) throws Exception
+    {
+	List<Class<?>> types = loadModels(models);
+	ProxyClassCache cache = ProxyClassCache.of(ProxyClassCache.Policy.STRONG);
+	DelegatorFactory.setProxyClassCache(cache);
+	
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	try
+	{
+	    long start = System.nanoTime();
+	    DelegatorFactory.prepareAll(types, executor);
+	    double elapsed = (System.nanoTime() - start) / 1e6;
+	    
+	    if (cache.getStatistics().getGenerations() != types.size())
+		throw new IllegalStateException("expected " + types.size() + " generations but got " + cache);
+	    return elapsed;
+	} finally
+	{
+	    executor.shutdown();
+	}
+    }
+    
+    /**
+     * Warp all models from {@code threads} threads at the same time.
+     * 
+     * @param models
+     *            models' class files
+     * @param threads
+     *            thread count
+     * @return count of types with more than one proxy class (or generated more
+     *         than once)
+     * @throws Exception
+     *             if models can't be loaded or warped
+     */
+    @SuppressWarnings("unchecked")
+    private static int concurrentWarps(Map<String, byte[]> models, int threads) throws Exception
+    {
+	List<Class<?>> types = loadModels(models);
+	ProxyClassCache cache = ProxyClassCache.of(ProxyClassCache.Policy.STRONG);
+	DelegatorFactory.setProxyClassCache(cache);
+	
+	Map<Class<?>, Set<Class<?>>> proxyClasses = new ConcurrentHashMap<>();
+	CyclicBarrier barrier = new CyclicBarrier(threads);
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	try
+	{
+	    List<Future<?>> tasks = new ArrayList<>();
+	    for (int t = 0; t < threads; t++)
+	    {
+		int offset = t * types.size() / threads;
+		tasks.add(executor.submit(() -> {
+		    barrier.await();
+		    for (int i = 0; i < types.size(); i++)
+		    {
+			Class<Object> type = (Class<Object>) types.get((offset + i) % types.size());
+			Object warpped = DelegatorFactory.warp(type,
+				new Models.PassThroughDelegator<>(type.getConstructor().newInstance()));
+			proxyClasses.computeIfAbsent(type, key -> ConcurrentHashMap.newKeySet())
+				.add(warpped.getClass());
+		    }
+		    return null;
+		}));
+	    }
+	    
+	    for (Future<?> task : tasks)
+		task.get();
+	} finally
+	{
+	    executor.shutdown();
+	}
+	
+	int duplicates = 0;
+	for (Set<Class<?>> classes : proxyClasses.values())
+	{
+	    if (classes.size() != 1)
+		duplicates++;
+	}
+	
+	return duplicates + (int) (cache.getStatistics().getGenerations() - types.size());
+    }
+    
+    /**
+     * Load all models with a new class loader.
+     * 
+     * @param models
+     *            models' class files
+     * @return loaded models
+     * @throws ClassNotFoundException
+     *             if a model can't be loaded
+     */
+    private static List<Class<?>> loadModels(Map<String, byte[]> models) throws ClassNotFoundException
+    {
+	ClassLoader loader = new ByteArrayClassLoader(StartupStress.class.getClassLoader(), models);
+	List<Class<?>> types = new ArrayList<>(models.size());
+	for (String name : models.keySet())
+	    types.add(Class.forName(name, false, loader));
+	
+	return types;
+    }
+    
+    /**
+     * Generate models' class files.
+     * 
+     * @param typeCount
+     *            count of models
+     * @return class file of each model
+     */
+    private static Map<String, byte[]> generateModels(int typeCount)
+    {
+	ByteBuddy byteBuddy = new ByteBuddy();
+	Map<String, byte[]> models = new HashMap<>();
+	for (int i = 0; i < typeCount; i++)
+	{
+	    String name = MODEL_PACKAGE + ".Model" + i;
+	    // @formatter:off
+	    models.put(name, byteBuddy
+		    .subclass(Object.class)
+		    .name(name)
+		    .defineField("id", int.class, Visibility.PUBLIC)
+		    .defineField("value", long.class, Visibility.PUBLIC)
+		    .defineField("name", String.class, Visibility.PUBLIC)
+		    .defineMethod("compute", int.class, Visibility.PUBLIC)
+		    .withParameters(int.class)
+		    .intercept(FixedValue.value(i))
+		    .defineMethod("describe", String.class, Visibility.PUBLIC)
+		    .intercept(FixedValue.value(name))
+		    .make()
+		    .getBytes());
+	    // @formatter:on
+	}
+	
+	return models;
+    }
+}
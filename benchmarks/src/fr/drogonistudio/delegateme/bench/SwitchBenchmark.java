@@ -0,0 +1,85 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Measuring throughput of proxies whose interception is switched off.
+ * 
+ * <p>
+ * A proxy with a pass-through delegator is invoked while interception of its
+ * type is enabled or disabled (see
+ * {@link DelegatorFactory#setInterceptionEnabled(Class, boolean)}), and
+ * compared with a direct call.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchBenchmark
+{
+    @Param({ "true", "false" })
+    public boolean enabled;
+    
+    private Service direct;
+    
+    private Service delegator;
+    
+    private Service invocationDelegator;
+    
+    public int value = 42;
+    
+    @Setup
+    public void setup()
+    {
+	DelegatorFactory.setInterceptionEnabled(Fields1.class, this.enabled);
+	
+	this.direct = new Fields1();
+	this.delegator = DelegatorFactory.warp(Fields1.class, new Models.PassThroughDelegator<>(new Fields1()));
+	this.invocationDelegator = DelegatorFactory.warp(Fields1.class,
+		new Models.PassThroughInvocationDelegator<>(new Fields1()));
+    }
+    
+    @TearDown
+    public void tearDown()
+    {
+	DelegatorFactory.setInterceptionEnabled(Fields1.class, true);
+    }
+    
+    @Benchmark
+    public int direct()
+    {
+	return this.direct.compute(this.value);
+    }
+    
+    @Benchmark
+    public int delegator()
+    {
+	return this.delegator.compute(this.value);
+    }
+    
+    @Benchmark
+    public int invocationDelegator()
+    {
+	return this.invocationDelegator.compute(this.value);
+    }
+}
@@ -0,0 +1,108 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.Delegator.EqualsCompareStrategy;
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Measuring {@link Delegator#updateProxyFieldsValue} cost.
+ * 
+ * <p>
+ * Synchronization is measured when nothing changed and when one field changed
+ * (delegated object is modified before each synchronization).
+ * </p>
+ * 
+ * <p>
+ * A batch of {@value #BATCH_SIZE} mutating calls is also measured with fields
+ * synchronized after each call ({@code eagerBatch}) and with fields marked as
+ * out of date, then synchronized once by {@link Delegator#flush}
+ * ({@code deferredBatch}).
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncBenchmark
+{
+    private static final int BATCH_SIZE = 16;
+    
+    @Param({ "1", "8", "32" })
+    public int fieldCount;
+    
+    @Param({ "BY_REFERENCE", "BY_EQUALS_METHOD" })
+    public EqualsCompareStrategy strategy;
+    
+    private Service delegated;
+    
+    private Service proxy;
+    
+    private Delegator<Service> delegator;
+    
+    private Service eagerProxy;
+    
+    private Service deferredProxy;
+    
+    private Delegator<Service> deferredDelegator;
+    
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup()
+    {
+	Class<Service> type = (Class<Service>) Models.modelClass(this.fieldCount);
+	this.delegated = Models.create(this.fieldCount);
+	this.delegator = new Models.PassThroughDelegator<>(this.delegated);
+	this.proxy = DelegatorFactory.warp(type, this.delegator);
+	
+	this.eagerProxy = DelegatorFactory.warp(type,
+		new Models.SyncingDelegator<>(Models.create(this.fieldCount), false, this.strategy));
+	this.deferredDelegator = new Models.SyncingDelegator<>(Models.create(this.fieldCount), true, this.strategy);
+	this.deferredProxy = DelegatorFactory.warp(type, this.deferredDelegator);
+    }
+    
+    @Benchmark
+    public long unchanged()
+    {
+	return this.delegator.updateProxyFieldsValue(this.proxy, this.strategy);
+    }
+    
+    @Benchmark
+    public long oneChanged()
+    {
+	this.delegated.touch();
+	return this.delegator.updateProxyFieldsValue(this.proxy, this.strategy);
+    }
+    
+    @Benchmark
+    public void eagerBatch()
+    {
+	for (int i = 0; i < BATCH_SIZE; i++)
+	    this.eagerProxy.touch();
+    }
+    
+    @Benchmark
+    public long deferredBatch()
+    {
+	for (int i = 0; i < BATCH_SIZE; i++)
+	    this.deferredProxy.touch();
+	return this.deferredDelegator.flush(this.strategy);
+    }
+}
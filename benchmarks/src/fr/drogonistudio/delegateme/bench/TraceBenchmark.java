@@ -0,0 +1,82 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.TraceRecorder;
+import fr.drogonistudio.delegateme.TracingDelegator;
+
+/**
+ * Measuring caller's cost of {@link TracingDelegator}.
+ * 
+ * <p>
+ * Traced calls are compared with a pass-through invocation delegator. Once
+ * trace file is full, events are still drained (and dropped), so caller's cost
+ * stay the same during the whole run.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark
+{
+    private Path file;
+    
+    private TraceRecorder recorder;
+    
+    private Service passThrough;
+    
+    private Service traced;
+    
+    public int value = 42;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+	this.file = Files.createTempFile("delegateme-", ".trace");
+	this.recorder = TraceRecorder.open(this.file, TraceRecorder.DEFAULT_FILE_SIZE, 1 << 16);
+	this.passThrough = DelegatorFactory.warp(Fields1.class,
+		new Models.PassThroughInvocationDelegator<>(new Fields1()));
+	this.traced = DelegatorFactory.warp(Fields1.class,
+		new TracingDelegator<>(Fields1.class, new Fields1(), this.recorder));
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException
+    {
+	this.recorder.close();
+	Files.deleteIfExists(this.file);
+    }
+    
+    @Benchmark
+    public int passThrough()
+    {
+	return this.passThrough.compute(this.value);
+    }
+    
+    @Benchmark
+    public int traced()
+    {
+	return this.traced.compute(this.value);
+    }
+}
@@ -0,0 +1,101 @@
+package fr.drogonistudio.delegateme.bench;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+import fr.drogonistudio.delegateme.ProxyPool;
+
+/**
+ * Measuring {@link DelegatorFactory#warp} cost.
+ * 
+ * <p>
+ * Warm benchmarks warp a type whose proxy class is already cached, so only
+ * instantiation and fields copy are measured. They are compared with
+ * {@link DelegatorFactory#warpInterface} (no field copied), with reused
+ * proxies ({@link DelegatorFactory#rebind} and {@link ProxyPool}) and with
+ * {@link Proxy#newProxyInstance}. Cold warps are measured by
+ * {@link ColdWarpBenchmark}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WarpBenchmark
+{
+    @Param({ "1", "8", "32" })
+    public int fieldCount;
+    
+    private Class<Service> type;
+    
+    private Service delegated;
+    
+    private Service reused;
+    
+    private ProxyPool<Service> pool;
+    
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setup()
+    {
+	this.type = (Class<Service>) Models.modelClass(this.fieldCount);
+	this.delegated = Models.create(this.fieldCount);
+	
+	// Filling proxy classes cache
+	DelegatorFactory.warp(this.type, new Models.PassThroughDelegator<>(this.delegated));
+	DelegatorFactory.warpInterface(Service.class, new Models.PassThroughDelegator<>(this.delegated));
+	this.reused = DelegatorFactory.warp(this.type, new Models.PassThroughDelegator<>(this.delegated));
+	this.pool = ProxyPool.of(this.type, 16);
+    }
+    
+    @Benchmark
+    public Service warpWarm()
+    {
+	return DelegatorFactory.warp(this.type, new Models.PassThroughDelegator<>(this.delegated));
+    }
+    
+    @Benchmark
+    public Service warpInterface()
+    {
+	return DelegatorFactory.warpInterface(Service.class, new Models.PassThroughDelegator<>(this.delegated));
+    }
+    
+    @Benchmark
+    public Service rebind()
+    {
+	return DelegatorFactory.rebind(this.reused, new Models.PassThroughDelegator<>(this.delegated));
+    }
+    
+    @Benchmark
+    public Service pooled()
+    {
+	Service proxy = this.pool.acquire(new Models.PassThroughDelegator<>(this.delegated));
+	this.pool.release(proxy);
+	return proxy;
+    }
+    
+    @Benchmark
+    public Object jdkProxy()
+    {
+	return Proxy.newProxyInstance(Service.class.getClassLoader(), new Class<?>[] { Service.class },
+		new Models.PassThroughHandler(this.delegated));
+    }
+}
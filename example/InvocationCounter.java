@@ -1,31 +1,37 @@
 import java.io.PrintStream;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.MethodMatcher;
+import fr.drogonistudio.delegateme.MethodTable;
 
 public class InvocationCounter<Type> extends Delegator<Type>
 {
-    private Map<Method, Integer> counter;
+    private MethodTable.Counters counter;
     
-    public InvocationCounter(Type delegated)
+    public InvocationCounter(Class<Type> type, Type delegated)
     {
-	super(delegated);
-	this.counter = new ConcurrentHashMap<>();
+	super(delegated, MethodMatcher.any(), MethodMatcher.matching(method -> method.getName().startsWith("get")));
+	this.counter = MethodTable.of(type).newCounters();
     }
 
     @Override
     public Object invoke(Type proxy, Method method, Object[] args) throws Throwable
     {
-	this.counter.put(method, this.counter.getOrDefault(method, 0) + 1);
+	return this.invoke(proxy, this.counter.getTable().indexOf(method), method, args);
+    }
+    
+    @Override
+    public Object invoke(Type proxy, int methodIndex, Method method, Object[] args) throws Throwable
+    {
+	this.counter.increment(methodIndex);
 	Throwable failed = null;
 	Object invocationResult = null;
 	
 	try
 	{
-	    invocationResult = this.delegate(proxy, method, args);
-	    this.updateProxyFieldsValue(proxy, EqualsCompareStrategy.BY_REFERENCE);
+	    invocationResult = this.delegate(proxy, methodIndex, args);
+	    this.markProxyFieldsDirty(proxy, methodIndex);
 	}
 	catch (Throwable t)
 	{
@@ -41,8 +47,12 @@ public class InvocationCounter<Type> extends Delegator<Type>
     public void printCounter(PrintStream out)
     {
 	System.out.println("##################");
-	for (Method key : this.counter.keySet())
-	    System.out.printf("- %s => %d\n", key.toGenericString(), this.counter.getOrDefault(key, 0));
+	MethodTable table = this.counter.getTable();
+	for (int i = 0; i < table.size(); i++)
+	{
+	    if (this.counter.get(i) > 0)
+		System.out.printf("- %s => %d\n", table.getMethod(i).toGenericString(), this.counter.get(i));
+	}
 	System.out.println("##################");
     }
 }
@@ -1,6 +1,7 @@
 import java.lang.reflect.Method;
 
 import fr.drogonistudio.delegateme.Delegator;
+import fr.drogonistudio.delegateme.MethodTable;
 
 public class InvocationTracer<Type> extends Delegator<Type>
 {
@@ -11,6 +12,12 @@ public class InvocationTracer<Type> extends Delegator<Type>
     
     @Override
     public Object invoke(Type proxy, Method method, Object[] args) throws Throwable
+    {
+	return this.invoke(proxy, MethodTable.ofProxy(proxy.getClass()).indexOf(method), method, args);
+    }
+    
+    @Override
+    public Object invoke(Type proxy, int methodIndex, Method method, Object[] args) throws Throwable
     {
 	System.out.printf("#> Invoke \"%s\" on \"%s\" with [", method.toGenericString(), this.delegated.toString());
 	for (int i = 0; i < args.length; i++)
@@ -22,8 +29,8 @@ public class InvocationTracer<Type> extends Delegator<Type>
 	System.out.println("]");
 	
 	// Working...
-	Object returnValue = this.delegate(proxy, method, args);
-	this.updateProxyFieldsValue(proxy, EqualsCompareStrategy.BY_REFERENCE);
+	Object returnValue = this.delegate(proxy, methodIndex, args);
+	this.markProxyFieldsDirty(proxy, methodIndex);
 	
 	if (returnValue != null)
 	    System.out.println("#> Return \"" + returnValue.toString() + "\"");
@@ -63,12 +63,13 @@ public class Main
 	
 	{
 	    Secret object = new Secret("ABC", true);
-	    InvocationCounter<Secret> delegator = new InvocationCounter<>(object);
+	    InvocationCounter<Secret> delegator = new InvocationCounter<>(Secret.class, object);
 	    
 	    Secret proxied = DelegatorFactory.warp(Secret.class, delegator);
 	    System.out.println("Flag set to " + proxied.getFlag());
 	    proxied.setName("DEF");
 	    proxied.setName("XYZ");
+	    delegator.flush(EqualsCompareStrategy.BY_REFERENCE);
 	    
 	    delegator.printCounter(System.out);
 	}
@@ -0,0 +1,137 @@
+package fr.drogonistudio.delegateme.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import fr.drogonistudio.delegateme.DelegatorFactory;
+
+/**
+ * Generate proxy classes ahead of time.
+ * 
+ * <p>
+ * This goal generate proxy classes (and fields copier classes) of each
+ * configured type once project's classes are compiled. Generated classes are
+ * written next to compiled classes, so {@link DelegatorFactory#warp} will use
+ * them instead of generating new classes at runtime.
+ * </p>
+ * 
+ * <p>
+ * Types are loaded from project's compile classpath. Types which are not
+ * loaded from this classpath (like JDK's types) are skipped since their proxy
+ * classes can't be stored next to them.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see DelegatorFactory#generateClasses(Class, File)
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+	requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class GenerateProxiesMojo extends AbstractMojo
+{
+    
+    /**
+     * Fully qualified names of types to delegate.
+     */
+    @Parameter(required = true)
+    private List<String> types;
+    
+    /**
+     * Directory where generated classes are written.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+    
+    /**
+     * Project's compile classpath.
+     */
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+    private List<String> classpathElements;
+    
+    /**
+     * Skip generation.
+     */
+    @Parameter(property = "delegateme.skip", defaultValue = "false")
+    private boolean skip;
+    
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+	if (this.skip)
+	{
+	    this.getLog().info("Proxy classes generation is skipped");
+	    return;
+	}
+	
+	int generated = 0;
+	try (URLClassLoader loader = new URLClassLoader(this.classpathUrls(), this.getClass().getClassLoader()))
+	{
+	    for (String typeName : this.types)
+	    {
+		Class<?> type;
+		try
+		{
+		    type = Class.forName(typeName, false, loader);
+		} catch (ClassNotFoundException | LinkageError ex)
+		{
+		    throw new MojoExecutionException("unable to load " + typeName, ex);
+		}
+		
+		if (type.getClassLoader() != loader)
+		{
+		    this.getLog().warn(typeName + " isn't a project's type, skipped");
+		    continue;
+		}
+		
+		try
+		{
+		    DelegatorFactory.generateClasses(type, this.outputDirectory);
+		    generated++;
+		    this.getLog().debug("Generated proxy classes of " + typeName);
+		} catch (IOException | RuntimeException ex)
+		{
+		    throw new MojoExecutionException("unable to generate proxy classes of " + typeName, ex);
+		}
+	    }
+	    
+	    this.getLog().info("Generated proxy classes of " + generated + " type(s)");
+	} catch (IOException ex)
+	{
+	    throw new MojoExecutionException("unable to close project's class loader", ex);
+	}
+    }
+    
+    /**
+     * Converting classpath elements into URLs.
+     * 
+     * @return classpath URLs
+     * @throws MojoExecutionException
+     *             if an element isn't a valid path
+     */
+    private URL[] classpathUrls() throws MojoExecutionException
+    {
+	URL urls[] = new URL[this.classpathElements.size()];
+	for (int i = 0; i < urls.length; i++)
+	{
+	    try
+	    {
+		urls[i] = new File(this.classpathElements.get(i)).toURI().toURL();
+	    } catch (MalformedURLException ex)
+	    {
+		throw new MojoExecutionException("invalid classpath element " + this.classpathElements.get(i), ex);
+	    }
+	}
+	
+	return urls;
+    }
+}
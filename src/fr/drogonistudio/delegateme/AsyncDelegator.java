@@ -0,0 +1,466 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A delegator performing its side work asynchronously.
+ * 
+ * <p>
+ * Work done around an invocation (auditing, remote checks, cache writes...) is
+ * split into {@link #beforeInvoke(Object, Method, Object[])} and
+ * {@link #afterInvoke(Object, Method, Object[], Object, Throwable)}. Both run on
+ * delegator's executor, so they don't add up to caller's latency. Original
+ * method is always invoked on caller's thread, at the same time
+ * {@link #beforeInvoke(Object, Method, Object[]) beforeInvoke} runs.
+ * {@link #afterInvoke(Object, Method, Object[], Object, Throwable) afterInvoke}
+ * runs once both are done.
+ * </p>
+ * 
+ * <p>
+ * Methods returning a {@link CompletableFuture} or a {@link CompletionStage}
+ * are composed without blocking : returned stage is given to caller as it is
+ * (it never waits for side work) and
+ * {@link #afterInvoke(Object, Method, Object[], Object, Throwable) afterInvoke}
+ * runs once both this stage and
+ * {@link #beforeInvoke(Object, Method, Object[]) beforeInvoke} are done,
+ * receiving stage's result. Side work never changes invocation's result : its
+ * exceptions are given to {@link #sideWorkFailed(Method, Throwable)}.
+ * </p>
+ * 
+ * <p>
+ * By default, side work runs on virtual threads if they're available (Java 21
+ * or later) or on a shared pool of daemon threads otherwise.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ * @see #defaultExecutor()
+ */
+public abstract class AsyncDelegator<Delegated> extends Delegator<Delegated>
+{
+    
+    /**
+     * Flag set when {@link #beforeInvoke(Object, Method, Object[])} is
+     * overridden.
+     */
+    private static final int BEFORE = 1;
+    
+    /**
+     * Flag set when
+     * {@link #afterInvoke(Object, Method, Object[], Object, Throwable)} is
+     * overridden.
+     */
+    private static final int AFTER = 2;
+    
+    /**
+     * Overridden side work methods of each delegator class (non-overridden ones
+     * are never scheduled).
+     */
+    private static final ClassValue<Integer> OVERRIDES = new ClassValue<Integer>()
+    {
+	@Override
+	protected Integer computeValue(Class<?> type)
+	{
+	    int flags = 0;
+	    if (isOverridden(type, "beforeInvoke", Object.class, Method.class, Object[].class))
+		flags |= BEFORE;
+	    if (isOverridden(type, "afterInvoke", Object.class, Method.class, Object[].class, Object.class,
+		    Throwable.class))
+		flags |= AFTER;
+	    
+	    return flags;
+	}
+    };
+    
+    /**
+     * Completed side work (used when there is nothing to do before invocation).
+     */
+    private static final CompletableFuture<Void> NOTHING = CompletableFuture.completedFuture(null);
+    
+    /**
+     * Executor running side work.
+     */
+    private final Executor executor;
+    
+    /**
+     * Overridden side work methods.
+     */
+    private final int overrides;
+    
+    /**
+     * Setup delegation by storing object to delegate.
+     * 
+     * <p>
+     * Side work runs on {@link #defaultExecutor()}.
+     * </p>
+     * 
+     * @param delegated
+     *            object to delegate
+     */
+    public AsyncDelegator(Delegated delegated)
+    {
+	this(delegated, MethodMatcher.any(), defaultExecutor());
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate and executor running side
+     * work.
+     * 
+     * @param delegated
+     *            object to delegate
+     * @param executor
+     *            executor running side work
+     * @throws NullPointerException
+     *             if {@code delegated} or {@code executor} are null
+     */
+    public AsyncDelegator(Delegated delegated, Executor executor) throws NullPointerException
+    {
+	this(delegated, MethodMatcher.any(), executor);
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate, methods to intercept and
+     * executor running side work.
+     * 
+     * @param delegated
+     *            object to delegate
+     * @param interceptedMethods
+     *            methods to intercept
+     * @param executor
+     *            executor running side work
+     * @throws NullPointerException
+     *             if {@code delegated}, {@code interceptedMethods} or
+     *             {@code executor} are null
+     * @see Delegator#Delegator(Object, MethodMatcher)
+     */
+    public AsyncDelegator(Delegated delegated, MethodMatcher interceptedMethods, Executor executor)
+	    throws NullPointerException
+    {
+	super(delegated, interceptedMethods);
+	if (executor == null)
+	    throw new NullPointerException("excepted an executor but got null");
+	
+	this.executor = executor;
+	this.overrides = OVERRIDES.get(this.getClass());
+    }
+    
+    /**
+     * Getting default executor of side work.
+     * 
+     * <p>
+     * It's a virtual thread per task executor if virtual threads are available,
+     * or a cached pool of daemon threads otherwise. It's shared by all delegators
+     * using it.
+     * </p>
+     * 
+     * @return default executor
+     */
+    public static Executor defaultExecutor()
+    {
+	return DefaultExecutor.INSTANCE;
+    }
+    
+    /**
+     * Work to do before an invocation.
+     * 
+     * <p>
+     * It runs on delegator's executor while original method is invoked on
+     * caller's thread. It does nothing by default.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param method
+     *            invoked method
+     * @param args
+     *            passed parameters (must not be modified)
+     * @throws Throwable
+     *             if something went wrong (given to
+     *             {@link #sideWorkFailed(Method, Throwable)})
+     */
+    protected void beforeInvoke(Delegated proxy, Method method, Object args[]) throws Throwable
+    {
+    }
+    
+    /**
+     * Work to do after an invocation.
+     * 
+     * <p>
+     * It runs on delegator's executor once original method and
+     * {@link #beforeInvoke(Object, Method, Object[])} are done. For asynchronous
+     * methods, it runs once returned stage is completed and receive its result.
+     * It does nothing by default.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param method
+     *            invoked method
+     * @param args
+     *            passed parameters
+     * @param result
+     *            invocation's result ({@code null} if it failed)
+     * @param failure
+     *            exception thrown by invocation ({@code null} if it succeeded)
+     * @throws Throwable
+     *             if something went wrong
+     */
+    protected void afterInvoke(Delegated proxy, Method method, Object args[], Object result, Throwable failure)
+	    throws Throwable
+    {
+    }
+    
+    /**
+     * Handle a side work's exception which can't be given to caller.
+     * 
+     * <p>
+     * By default, its stack trace is printed.
+     * </p>
+     * 
+     * @param method
+     *            invoked method
+     * @param failure
+     *            thrown exception
+     */
+    protected void sideWorkFailed(Method method, Throwable failure)
+    {
+	failure.printStackTrace();
+    }
+    
+    @Override
+    public final Object invoke(Delegated proxy, Method method, Object args[]) throws Throwable
+    {
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
+	    throw new IllegalArgumentException("object is not proxied object");
+	
+	int index = MethodTable.ofProxy(proxy.getClass()).indexOf(method);
+	if (index < 0)
+	    throw new IllegalArgumentException(method + " isn't handled by proxied object");
+	
+	return this.invoke(proxy, index, method, args);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public final Object invoke(Delegated proxy, int methodIndex, Method method, Object args[]) throws Throwable
+    {
+	CompletableFuture<Void> before = NOTHING;
+	if ((this.overrides & BEFORE) != 0)
+	{
+	    before = CompletableFuture.runAsync(() -> {
+		try
+		{
+		    this.beforeInvoke(proxy, method, args);
+		} catch (Throwable ex)
+		{
+		    throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+		}
+	    }, this.executor);
+	}
+	
+	Object result;
+	try
+	{
+	    result = this.delegate(proxy, methodIndex, args);
+	} catch (Throwable ex)
+	{
+	    this.runAfter(before, proxy, method, args, null, ex);
+	    throw ex;
+	}
+	
+	Class<?> returnType = method.getReturnType();
+	if (result == null || (returnType != CompletableFuture.class && returnType != CompletionStage.class))
+	{
+	    this.runAfter(before, proxy, method, args, result, null);
+	    return result;
+	}
+	
+	// Asynchronous method : side work waits for its stage, but caller doesn't wait for side work
+	if (before != NOTHING || (this.overrides & AFTER) != 0)
+	{
+	    CompletableFuture<Void> beforeDone = before;
+	    ((CompletionStage<Object>) result).whenComplete(
+		    (value, failure) -> this.runAfter(beforeDone, proxy, method, args, value, unwrap(failure)));
+	}
+	
+	return result;
+    }
+    
+    /**
+     * Schedule {@link #afterInvoke(Object, Method, Object[], Object, Throwable)}
+     * of an invocation once {@code before} is done.
+     * 
+     * <p>
+     * Exception thrown by {@code before} is given to
+     * {@link #sideWorkFailed(Method, Throwable)}.
+     * </p>
+     * 
+     * @param before
+     *            work done before invocation
+     * @param proxy
+     *            proxy object
+     * @param method
+     *            invoked method
+     * @param args
+     *            passed parameters
+     * @param result
+     *            invocation's result
+     * @param failure
+     *            exception thrown by invocation
+     */
+    private void runAfter(CompletableFuture<Void> before, Delegated proxy, Method method, Object args[],
+	    Object result, Throwable failure)
+    {
+	boolean after = (this.overrides & AFTER) != 0;
+	if (before == NOTHING && !after)
+	    return;
+	
+	before.whenCompleteAsync((ignored, beforeFailure) -> {
+	    if (beforeFailure != null)
+		this.sideWorkFailed(method, unwrap(beforeFailure));
+	    if (after)
+		this.runSideWork(method, () -> this.afterInvoke(proxy, method, args, result, failure));
+	}, this.executor);
+    }
+    
+    /**
+     * Run a side work and report its exception.
+     * 
+     * @param method
+     *            invoked method
+     * @param work
+     *            side work to run
+     */
+    private void runSideWork(Method method, SideWork work)
+    {
+	try
+	{
+	    work.run();
+	} catch (Throwable ex)
+	{
+	    this.sideWorkFailed(method, ex);
+	}
+    }
+    
+    /**
+     * Getting executor running side work.
+     * 
+     * @return delegator's executor
+     */
+    public final Executor getExecutor()
+    {
+	return this.executor;
+    }
+    
+    /**
+     * Unwrap exception thrown by a stage.
+     * 
+     * @param failure
+     *            stage's exception (may be {@code null})
+     * @return thrown exception
+     */
+    private static Throwable unwrap(Throwable failure)
+    {
+	if (failure instanceof CompletionException && failure.getCause() != null)
+	    return failure.getCause();
+	
+	return failure;
+    }
+    
+    /**
+     * Checking if a method is overridden by {@code type} (or one of its super
+     * classes below {@link AsyncDelegator}).
+     * 
+     * @param type
+     *            delegator's class
+     * @param name
+     *            method's name
+     * @param parameters
+     *            method's parameters
+     * @return {@code true} if method is overridden
+     */
+    private static boolean isOverridden(Class<?> type, String name, Class<?>... parameters)
+    {
+	for (Class<?> current = type; current != AsyncDelegator.class; current = current.getSuperclass())
+	{
+	    try
+	    {
+		current.getDeclaredMethod(name, parameters);
+		return true;
+	    } catch (NoSuchMethodException ignored)
+	    {
+		// Checking super class
+	    }
+	}
+	
+	return false;
+    }
+    
+    /**
+     * A side work which can throw anything.
+     * 
+     * @author DrogoniEntity
+     */
+    @FunctionalInterface
+    private static interface SideWork
+    {
+	/**
+	 * Run side work.
+	 * 
+	 * @throws Throwable
+	 *             if something went wrong
+	 */
+	void run() throws Throwable;
+    }
+    
+    /**
+     * Lazy holder of default executor.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class DefaultExecutor
+    {
+	/**
+	 * Default executor.
+	 */
+	private static final Executor INSTANCE = create();
+	
+	/**
+	 * Create default executor.
+	 * 
+	 * <p>
+	 * {@code Executors.newVirtualThreadPerTaskExecutor()} is used with
+	 * reflection since this library still target Java 8.
+	 * </p>
+	 * 
+	 * @return created executor
+	 */
+	private static Executor create()
+	{
+	    try
+	    {
+		return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+	    } catch (ReflectiveOperationException | RuntimeException ex)
+	    {
+		// Virtual threads aren't available (or still in preview)
+	    }
+	    
+	    AtomicInteger count = new AtomicInteger();
+	    ThreadFactory factory = task -> {
+		Thread thread = new Thread(task, "DelegateMe-async-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	    };
+	    return Executors.newCachedThreadPool(factory);
+	}
+    }
+}
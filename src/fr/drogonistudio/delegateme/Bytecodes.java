@@ -0,0 +1,509 @@
+package fr.drogonistudio.delegateme;
+
+import net.bytebuddy.jar.asm.Handle;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * Utility methods used to write generated code.
+ * 
+ * <p>
+ * These methods write common instructions sequences (like boxing or unboxing
+ * values) used by proxy classes' code.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+final class Bytecodes
+{
+    
+    /**
+     * Delegator's class internal name.
+     */
+    static final String DELEGATOR_OWNER = Type.getInternalName(Delegator.class);
+    
+    /**
+     * Delegator's class descriptor.
+     */
+    static final String DELEGATOR_DESCRIPTOR = Type.getDescriptor(Delegator.class);
+    
+    /**
+     * Invocation delegator's class internal name.
+     */
+    static final String INVOCATION_DELEGATOR_OWNER = Type.getInternalName(InvocationDelegator.class);
+    
+    /**
+     * Invocation's class internal name.
+     */
+    static final String INVOCATION_OWNER = Type.getInternalName(Invocation.class);
+    
+    /**
+     * Invocation's class descriptor.
+     */
+    static final String INVOCATION_DESCRIPTOR = Type.getDescriptor(Invocation.class);
+    
+    /**
+     * Method intercepter's class internal name.
+     */
+    static final String INTERCEPTER_OWNER = Type.getInternalName(DelegatorFactory.DelegatedMethodIntercepter.class);
+    
+    /**
+     * Proxied object interface's internal name.
+     */
+    static final String PROXIED_OBJECT_OWNER = Type.getInternalName(DelegatorFactory.ProxiedObject.class);
+    
+    /**
+     * Sampler's holder class internal name.
+     */
+    static final String SAMPLING_OWNER = Type
+	    .getInternalName(DelegatorFactory.DelegatedMethodIntercepter.Sampling.class);
+    
+    /**
+     * Sampler's holder class descriptor.
+     */
+    static final String SAMPLING_DESCRIPTOR = Type
+	    .getDescriptor(DelegatorFactory.DelegatedMethodIntercepter.Sampling.class);
+    
+    /**
+     * Sampler's class internal name.
+     */
+    static final String SAMPLER_OWNER = Type.getInternalName(Sampler.class);
+    
+    /**
+     * Field copier's class internal name.
+     */
+    static final String FIELD_COPIER_OWNER = Type.getInternalName(FieldCopier.class);
+    
+    /**
+     * Equals strategy's class internal name.
+     */
+    static final String EQUALS_STRATEGY_OWNER = Type.getInternalName(Delegator.EqualsCompareStrategy.class);
+    
+    /**
+     * Bootstrap method linking dispatches to delegators.
+     * 
+     * @see DelegatorFactory.DelegatedMethodIntercepter#dispatch(java.lang.invoke.MethodHandles.Lookup, String,
+     *      java.lang.invoke.MethodType)
+     */
+    static final Handle DISPATCH_BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC, INTERCEPTER_OWNER, "dispatch",
+	    "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;",
+	    false);
+    
+    /**
+     * Version of generated code's format.
+     * 
+     * <p>
+     * It must be changed each time generated classes change (new methods into
+     * {@link DelegatorFactory.ProxiedObject}, new intercepter's methods...), so
+     * classes generated ahead of time by a previous version will be ignored.
+     * </p>
+     */
+    static final int FORMAT_VERSION = 5;
+    
+    private Bytecodes()
+    {
+    }
+    
+    /**
+     * Getting wrapper's class of {@code primitive}.
+     * 
+     * @param primitive
+     *            primitive type
+     * @return wrapper's class internal name
+     * @throws IllegalArgumentException
+     *             if {@code primitive} isn't a primitive type
+     */
+    static String wrapperOf(Type primitive) throws IllegalArgumentException
+    {
+	switch (primitive.getSort())
+	{
+	    case Type.BOOLEAN:
+		return "java/lang/Boolean";
+	    case Type.BYTE:
+		return "java/lang/Byte";
+	    case Type.CHAR:
+		return "java/lang/Character";
+	    case Type.SHORT:
+		return "java/lang/Short";
+	    case Type.INT:
+		return "java/lang/Integer";
+	    case Type.LONG:
+		return "java/lang/Long";
+	    case Type.FLOAT:
+		return "java/lang/Float";
+	    case Type.DOUBLE:
+		return "java/lang/Double";
+	    default:
+		throw new IllegalArgumentException(primitive + " isn't a primitive type");
+	}
+    }
+    
+    /**
+     * Checking if {@code type} is a primitive type ({@code void} excluded).
+     * 
+     * @param type
+     *            type to check
+     * @return {@code true} if {@code type} is a primitive type
+     */
+    static boolean isPrimitive(Type type)
+    {
+	return type.getSort() >= Type.BOOLEAN && type.getSort() <= Type.DOUBLE;
+    }
+    
+    /**
+     * Write instruction to box value on top of the stack.
+     * 
+     * <p>
+     * Nothing is written if {@code type} isn't a primitive type.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param type
+     *            type of value on top of the stack
+     */
+    static void box(MethodVisitor methodVisitor, Type type)
+    {
+	if (!isPrimitive(type))
+	    return;
+	
+	String wrapper = wrapperOf(type);
+	methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+		"(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+    }
+    
+    /**
+     * Write instruction to convert an object on top of the stack into
+     * {@code type}.
+     * 
+     * <p>
+     * If {@code type} is a primitive type, object will be casted to its wrapper
+     * and unboxed. Otherwise, it will be simply casted to {@code type}.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param type
+     *            excepted type
+     */
+    static void unbox(MethodVisitor methodVisitor, Type type)
+    {
+	if (isPrimitive(type))
+	{
+	    String wrapper = wrapperOf(type);
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value",
+		    "()" + type.getDescriptor(), false);
+	} else if (!type.getDescriptor().equals("Ljava/lang/Object;"))
+	{
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+	}
+    }
+    
+    /**
+     * Write instructions to load all arguments of a method into the stack.
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param arguments
+     *            arguments' types
+     * @param firstSlot
+     *            first local variable's slot of arguments (usually {@code 1}
+     *            for an instance method)
+     * @return next free local variable's slot
+     */
+    static int loadArguments(MethodVisitor methodVisitor, Type arguments[], int firstSlot)
+    {
+	int slot = firstSlot;
+	for (Type argument : arguments)
+	{
+	    methodVisitor.visitVarInsn(argument.getOpcode(Opcodes.ILOAD), slot);
+	    slot += argument.getSize();
+	}
+	
+	return slot;
+    }
+    
+    /**
+     * Write instruction to return value on top of the stack (or nothing if
+     * {@code type} is {@code void}).
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param type
+     *            returned type
+     */
+    static void returnValue(MethodVisitor methodVisitor, Type type)
+    {
+	if (type.getSort() == Type.VOID)
+	    methodVisitor.visitInsn(Opcodes.RETURN);
+	else
+	    methodVisitor.visitInsn(type.getOpcode(Opcodes.IRETURN));
+    }
+    
+    /**
+     * Write instruction to push an integer constant with the smallest
+     * instruction.
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param value
+     *            value to push
+     */
+    static void pushInt(MethodVisitor methodVisitor, int value)
+    {
+	if (value >= -1 && value <= 5)
+	    methodVisitor.visitInsn(Opcodes.ICONST_0 + value);
+	else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+	    methodVisitor.visitIntInsn(Opcodes.BIPUSH, value);
+	else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+	    methodVisitor.visitIntInsn(Opcodes.SIPUSH, value);
+	else
+	    methodVisitor.visitLdcInsn(value);
+    }
+    
+    /**
+     * Write instruction to invoke {@code method} declared into {@code owner}.
+     * 
+     * <p>
+     * If {@code owner} is an interface, an {@code invokeinterface} is written.
+     * Otherwise, it will be an {@code invokevirtual}.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param owner
+     *            class used as invocation owner
+     * @param method
+     *            method to invoke
+     */
+    static void invokeMethod(MethodVisitor methodVisitor, Class<?> owner, java.lang.reflect.Method method)
+    {
+	boolean isInterface = owner.isInterface();
+	methodVisitor.visitMethodInsn(isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+		Type.getInternalName(owner), method.getName(), Type.getMethodDescriptor(method), isInterface);
+    }
+    
+    /**
+     * Write instructions to box all arguments of a method into a new array.
+     * 
+     * <p>
+     * If there is no argument, a shared empty array is used.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param arguments
+     *            arguments' types
+     * @param firstSlot
+     *            first local variable's slot of arguments
+     */
+    static void boxArguments(MethodVisitor methodVisitor, Type arguments[], int firstSlot)
+    {
+	if (arguments.length == 0)
+	{
+	    methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, INTERCEPTER_OWNER, "NO_ARGUMENTS", "[Ljava/lang/Object;");
+	    return;
+	}
+	
+	pushInt(methodVisitor, arguments.length);
+	methodVisitor.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+	
+	int slot = firstSlot;
+	for (int i = 0; i < arguments.length; i++)
+	{
+	    methodVisitor.visitInsn(Opcodes.DUP);
+	    pushInt(methodVisitor, i);
+	    methodVisitor.visitVarInsn(arguments[i].getOpcode(Opcodes.ILOAD), slot);
+	    box(methodVisitor, arguments[i]);
+	    methodVisitor.visitInsn(Opcodes.AASTORE);
+	    slot += arguments[i].getSize();
+	}
+    }
+    
+    /**
+     * Getting name used by {@link Invocation}'s typed methods for {@code type}.
+     * 
+     * <p>
+     * {@code byte}, {@code char} and {@code short} values are handled as
+     * {@code int} values and any reference is handled as an object.
+     * </p>
+     * 
+     * @param type
+     *            value's type
+     * @return typed methods' name part
+     */
+    private static String invocationKind(Type type)
+    {
+	switch (type.getSort())
+	{
+	    case Type.BOOLEAN:
+		return "Boolean";
+	    case Type.BYTE:
+	    case Type.CHAR:
+	    case Type.SHORT:
+	    case Type.INT:
+		return "Int";
+	    case Type.LONG:
+		return "Long";
+	    case Type.FLOAT:
+		return "Float";
+	    case Type.DOUBLE:
+		return "Double";
+	    default:
+		return "Object";
+	}
+    }
+    
+    /**
+     * Getting type used by {@link Invocation}'s typed methods for {@code type}.
+     * 
+     * @param type
+     *            value's type
+     * @return type used to store value
+     * @see #invocationKind(Type)
+     */
+    private static Type invocationType(Type type)
+    {
+	switch (type.getSort())
+	{
+	    case Type.BYTE:
+	    case Type.CHAR:
+	    case Type.SHORT:
+		return Type.INT_TYPE;
+	    case Type.ARRAY:
+	    case Type.OBJECT:
+		return Type.getType(Object.class);
+	    default:
+		return type;
+	}
+    }
+    
+    /**
+     * Write instruction to store a value into an {@link Invocation}.
+     * 
+     * <p>
+     * Stack must contains invocation, argument's index (if {@code indexed}) and
+     * value to store.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param suffix
+     *            setter's suffix ({@code "Arg"} or {@code "Result"})
+     * @param type
+     *            value's type
+     * @param indexed
+     *            {@code true} if setter take argument's index
+     */
+    static void invokeInvocationSetter(MethodVisitor methodVisitor, String suffix, Type type, boolean indexed)
+    {
+	methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INVOCATION_OWNER,
+		"set" + invocationKind(type) + suffix,
+		"(" + (indexed ? "I" : "") + invocationType(type).getDescriptor() + ")V", false);
+    }
+    
+    /**
+     * Write instructions to read an argument from an {@link Invocation}.
+     * 
+     * <p>
+     * Stack must contains invocation and argument's index. Read value is casted
+     * to {@code type}.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param type
+     *            argument's type
+     */
+    static void invokeInvocationGetter(MethodVisitor methodVisitor, Type type)
+    {
+	if (isPrimitive(type))
+	{
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INVOCATION_OWNER, type.getClassName() + "Arg",
+		    "(I)" + type.getDescriptor(), false);
+	} else
+	{
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INVOCATION_OWNER, "objectArg",
+		    "(I)Ljava/lang/Object;", false);
+	    unbox(methodVisitor, type);
+	}
+    }
+    
+    /**
+     * Write instructions to dispatch an {@link Invocation} to an
+     * {@link InvocationDelegator}.
+     * 
+     * <p>
+     * Stack must contains delegator and invocation. Once dispatched, result is
+     * converted to {@code returned}. Dispatch is done by an
+     * {@code invokedynamic} instruction linked to a {@link DispatchCallSite}.
+     * </p>
+     * 
+     * @param methodVisitor
+     *            method's writer
+     * @param returned
+     *            method's return type
+     */
+    static void invokeDispatch(MethodVisitor methodVisitor, Type returned)
+    {
+	String kind = returned.getSort() == Type.VOID ? "Void" : invocationKind(returned);
+	Type dispatched = returned.getSort() == Type.VOID ? Type.VOID_TYPE : invocationType(returned);
+	
+	methodVisitor.visitInvokeDynamicInsn("dispatch" + kind,
+		"(L" + INVOCATION_DELEGATOR_OWNER + ";" + INVOCATION_DESCRIPTOR + ")" + dispatched.getDescriptor(),
+		DISPATCH_BOOTSTRAP);
+	
+	switch (returned.getSort())
+	{
+	    case Type.BYTE:
+		methodVisitor.visitInsn(Opcodes.I2B);
+		break;
+	    case Type.CHAR:
+		methodVisitor.visitInsn(Opcodes.I2C);
+		break;
+	    case Type.SHORT:
+		methodVisitor.visitInsn(Opcodes.I2S);
+		break;
+	    case Type.ARRAY:
+	    case Type.OBJECT:
+		unbox(methodVisitor, returned);
+		break;
+	    default:
+		break;
+	}
+    }
+    
+    /**
+     * Computing fingerprint of generated code's inputs.
+     * 
+     * <p>
+     * Fingerprint is a 64-bits FNV-1a hash of all {@code keys} (and of
+     * {@link #FORMAT_VERSION}). It's used to check if a class generated ahead of
+     * time still match current types.
+     * </p>
+     * 
+     * @param keys
+     *            keys describing generated code's inputs
+     * @return inputs' fingerprint
+     */
+    static long fingerprintOf(Iterable<String> keys)
+    {
+	long hash = 0xcbf29ce484222325L ^ FORMAT_VERSION;
+	for (String key : keys)
+	{
+	    for (int i = 0; i < key.length(); i++)
+	    {
+		hash ^= key.charAt(i);
+		hash *= 0x100000001b3L;
+	    }
+	    
+	    // Separator between keys
+	    hash ^= 0xff;
+	    hash *= 0x100000001b3L;
+	}
+	
+	return hash;
+    }
+}
@@ -1,7 +1,8 @@
 package fr.drogonistudio.delegateme;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A proxy class used to delegate something.
@@ -34,6 +35,20 @@ import java.lang.reflect.Method;
 public abstract class Delegator<Delegated>
 {
     
+    /**
+     * Updater of {@link #dirty}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Delegator> DIRTY = AtomicIntegerFieldUpdater
+	    .newUpdater(Delegator.class, "dirty");
+    
+    /**
+     * Updater of {@link #deferredProxy}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Delegator, Object> DEFERRED_PROXY = AtomicReferenceFieldUpdater
+	    .newUpdater(Delegator.class, Object.class, "deferredProxy");
+    
     /**
      * Object to delegate.
      * 
@@ -41,18 +56,115 @@ public abstract class Delegator<Delegated>
      */
     protected final Delegated delegated;
     
+    /**
+     * Methods intercepted by this delegator.
+     * 
+     * @see #getInterceptedMethods()
+     */
+    private final MethodMatcher interceptedMethods;
+    
+    /**
+     * Methods which never change delegated object's fields.
+     * 
+     * @see #getReadOnlyMethods()
+     */
+    private final MethodMatcher readOnlyMethods;
+    
+    /**
+     * Proxy whose fields synchronization is deferred ({@code null} until a proxy
+     * has been marked).
+     * 
+     * @see #markProxyFieldsDirty(Object, int)
+     */
+    private volatile Delegated deferredProxy;
+    
+    /**
+     * {@code 1} if fields of {@link #deferredProxy} are out of date, {@code 0}
+     * otherwise.
+     */
+    private volatile int dirty;
+    
     /**
      * Setup delegation by storing object to delegate
      * 
+     * <p>
+     * All methods will be intercepted by this delegator.
+     * </p>
+     * 
      * @param delegated
      *            object to delegate
      */
     public Delegator(Delegated delegated)
+    {
+	this(delegated, MethodMatcher.any());
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate and methods to intercept.
+     * 
+     * <p>
+     * Only methods matched by {@code interceptedMethods} will be intercepted by
+     * this delegator. All other methods are directly invoked on delegated object.
+     * </p>
+     * 
+     * @param delegated
+     *            object to delegate
+     * @param interceptedMethods
+     *            methods to intercept
+     * @throws NullPointerException
+     *             if {@code delegated} or {@code interceptedMethods} are null
+     */
+    public Delegator(Delegated delegated, MethodMatcher interceptedMethods) throws NullPointerException
+    {
+	this(delegated, interceptedMethods, MethodMatcher.none());
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate, methods to intercept and
+     * methods which never change delegated object.
+     * 
+     * <p>
+     * Methods matched by {@code readOnlyMethods} are ignored by
+     * {@link #markProxyFieldsDirty(Object, int)} : invoking them never makes
+     * proxy's fields out of date.
+     * </p>
+     * 
+     * @param delegated
+     *            object to delegate
+     * @param interceptedMethods
+     *            methods to intercept
+     * @param readOnlyMethods
+     *            methods which never change delegated object's fields
+     * @throws NullPointerException
+     *             if {@code delegated}, {@code interceptedMethods} or
+     *             {@code readOnlyMethods} are null
+     */
+    public Delegator(Delegated delegated, MethodMatcher interceptedMethods, MethodMatcher readOnlyMethods)
+	    throws NullPointerException
     {
 	if (delegated == null)
 	    throw new NullPointerException("delegator must delegate something");
+	if (interceptedMethods == null || readOnlyMethods == null)
+	    throw new NullPointerException("excepted a method matcher but got null");
 	
 	this.delegated = delegated;
+	this.interceptedMethods = interceptedMethods;
+	this.readOnlyMethods = readOnlyMethods;
+    }
+    
+    /**
+     * Setup a delegator which doesn't delegate anything yet.
+     * 
+     * <p>
+     * Only used by {@link LazyDelegator} : all methods are intercepted and
+     * {@link #getDelegated()} returns {@code null}.
+     * </p>
+     */
+    Delegator()
+    {
+	this.delegated = null;
+	this.interceptedMethods = MethodMatcher.any();
+	this.readOnlyMethods = MethodMatcher.none();
     }
     
     /**
@@ -82,6 +194,39 @@ public abstract class Delegator<Delegated>
      */
     public abstract Object invoke(Delegated proxy, Method method, Object args[]) throws Throwable;
     
+    /**
+     * Handle {@code method} invocation with its index.
+     * 
+     * <p>
+     * Proxy classes always invoke this method. {@code methodIndex} is the index of
+     * {@code method} into delegated type's {@link MethodTable} : it's the same for
+     * all invocations of the same method and it can be used to store any
+     * per-method state into an array (see {@link MethodTable#newSlots()} and
+     * {@link MethodTable#newCounters()}) instead of a map keyed by methods.
+     * </p>
+     * 
+     * <p>
+     * By default, it just invoke {@link #invoke(Object, Method, Object[])}.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param methodIndex
+     *            invoked method's index into delegated type's method table
+     * @param method
+     *            invoked method
+     * @param args
+     *            passed parameters
+     * @return invocation return value
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #delegate(Object, int, Object[])
+     */
+    public Object invoke(Delegated proxy, int methodIndex, Method method, Object args[]) throws Throwable
+    {
+	return this.invoke(proxy, method, args);
+    }
+    
     /**
      * Invoke default behavior of {@code method} on {@link #delegated}.
      * 
@@ -93,7 +238,11 @@ public abstract class Delegator<Delegated>
      * 
      * <p>
      * To limit accessibility issue, a special method is used to invoke
-     * {@code method}. This method exist only in {@code proxy}'s class.
+     * {@code method}. This method exist only in {@code proxy}'s class and it will
+     * directly invoke {@code method} on {@link #delegated} (without any
+     * reflection). So, any exception thrown by {@code method} is thrown as it is
+     * (without being wrapped into an
+     * {@link java.lang.reflect.InvocationTargetException}).
      * </p>
      * 
      * @param method
@@ -102,137 +251,339 @@ public abstract class Delegator<Delegated>
      *            passed parameters
      * @return invocation result
      * @throws IllegalArgumentException
-     *             if {@code proxy} is not proxied object
+     *             if {@code proxy} is not proxied object or if {@code method}
+     *             isn't handled by {@code proxy}
      * @throws Throwable
      *             if something went wrong during invocation process
-     * @see java.lang.reflect.Method#invoke(Object, Object...)
+     * @see DelegatorFactory.ProxiedObject#_DELEGATEME_runInvoke(int, Object[])
      */
     protected final Object delegate(Delegated proxy, Method method, Object args[])
 	    throws IllegalArgumentException, Throwable
     {
-	try
-	{
-	    Method invoker = proxy.getClass().getMethod(DelegatorFactory.METHOD_RUNNER_NAME, Method.class,
-		    Object[].class);
-	    return invoker.invoke(proxy, method, args);
-	} catch (NoSuchMethodException methodNotFound)
-	{
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
 	    throw new IllegalArgumentException("object is not proxied object");
-	}
+	
+	int index = MethodTable.ofProxy(proxy.getClass()).indexOf(method);
+	if (index < 0)
+	    throw new IllegalArgumentException(method + " isn't handled by proxied object");
+	
+	return ((DelegatorFactory.ProxiedObject) proxy)._DELEGATEME_runInvoke(index, args);
+    }
+    
+    /**
+     * Invoke default behavior of method at {@code methodIndex} on
+     * {@link #delegated}.
+     * 
+     * <p>
+     * It does the same job as {@link #delegate(Object, Method, Object[])} but
+     * without searching method's index.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param methodIndex
+     *            invoked method's index into delegated type's method table
+     * @param args
+     *            passed parameters
+     * @return invocation result
+     * @throws IllegalArgumentException
+     *             if {@code proxy} is not proxied object or if
+     *             {@code methodIndex} isn't handled by {@code proxy}
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #invoke(Object, int, Method, Object[])
+     */
+    protected final Object delegate(Delegated proxy, int methodIndex, Object args[])
+	    throws IllegalArgumentException, Throwable
+    {
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
+	    throw new IllegalArgumentException("object is not proxied object");
+	
+	return ((DelegatorFactory.ProxiedObject) proxy)._DELEGATEME_runInvoke(methodIndex, args);
     }
     
     /**
      * Updating all fields value to {@code proxy}.
      * 
      * <p>
-     * This method will explore all declared fields from delegated's class down to
+     * This method will explore all declared fields from delegated type down to
      * {@link java.lang.Object} class. It will compare fields content between two
-     * objects with selected strategy. It will copy only changed field
-     * since last update.
+     * objects (primitive fields by their value and reference fields with selected
+     * strategy). It will copy only changed field since last update.
+     * </p>
+     * 
+     * <p>
+     * Returned mask contains a bit for each changed field. Bit used by a field can
+     * be retrieved from {@link FieldCopier#maskOf(String)} (from copier of proxied
+     * type).
      * </p>
      * 
      * @param proxy
      *            proxy object
      * @param strategy
      *            compare strategy
+     * @return changed fields' mask ({@code 0} if nothing changed)
      * @throws NullPointerException
      *             if {@code strategy} or {@code proxy} are null
      * @see #updateDelegatedFieldsValue(Object, EqualsCompareStrategy) Updating
      *      delegated object fields' value instead
+     * @see FieldCopier#sync(Object, Object, EqualsCompareStrategy)
      */
-    public final void updateProxyFieldsValue(Delegated proxy, EqualsCompareStrategy strategy)
+    public final long updateProxyFieldsValue(Delegated proxy, EqualsCompareStrategy strategy)
 	    throws NullPointerException
     {
-	this.copyFields(this.delegated, proxy, strategy);
+	// Unmarked atomically, so marks written before are seen by this copy
+	if (proxy != null && proxy == this.deferredProxy)
+	    DIRTY.compareAndSet(this, 1, 0);
+	
+	return this.copyFields(proxy, this.delegated, proxy, strategy);
+    }
+    
+    /**
+     * Mark {@code proxy}'s fields as out of date after invoking method at
+     * {@code methodIndex}.
+     * 
+     * <p>
+     * It's a cheap alternative to call
+     * {@link #updateProxyFieldsValue(Object, EqualsCompareStrategy)} after each
+     * invocation : nothing is copied here. Fields are synchronized only once for
+     * all invocations marked since last synchronization, when
+     * {@link #flush(EqualsCompareStrategy)} is called. Until then,
+     * {@link #updateDelegatedFieldsValue(Object, EqualsCompareStrategy)}
+     * rejects {@code proxy}.
+     * </p>
+     * 
+     * <p>
+     * Nothing is marked if method is matched by read-only methods' matcher.
+     * </p>
+     * 
+     * <p>
+     * A delegator defers synchronization of a single proxy : the first marked
+     * proxy. Marking another proxy afterwards is rejected, since its changes
+     * couldn't be tracked without losing those of the first one.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param methodIndex
+     *            invoked method's index into delegated type's method table
+     * @throws IllegalArgumentException
+     *             if {@code proxy} is not proxied object
+     * @throws IllegalStateException
+     *             if this delegator already defers synchronization of another
+     *             proxy
+     * @see #getReadOnlyMethods()
+     */
+    protected final void markProxyFieldsDirty(Delegated proxy, int methodIndex)
+	    throws IllegalArgumentException, IllegalStateException
+    {
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
+	    throw new IllegalArgumentException("object is not proxied object");
+	
+	if (this.readOnlyMethods != MethodMatcher.none()
+		&& this.readOnlyMethods.maskOf(MethodTable.ofProxy(proxy.getClass())).get(methodIndex))
+	    return;
+	
+	if (this.deferredProxy != proxy && !DEFERRED_PROXY.compareAndSet(this, null, proxy)
+		&& this.deferredProxy != proxy)
+	    throw new IllegalStateException("delegator already defers synchronization of another proxy");
+	
+	// Always written : it publishes changes done by this invocation to next flush
+	this.dirty = 1;
+    }
+    
+    /**
+     * Mark {@code proxy}'s fields as out of date after invoking {@code method}.
+     * 
+     * <p>
+     * It does the same job as {@link #markProxyFieldsDirty(Object, int)} but
+     * searching method's index first.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
+     * @param method
+     *            invoked method
+     * @throws IllegalArgumentException
+     *             if {@code proxy} is not proxied object or if {@code method}
+     *             isn't handled by {@code proxy}
+     * @throws IllegalStateException
+     *             if this delegator already defers synchronization of another
+     *             proxy
+     */
+    protected final void markProxyFieldsDirty(Delegated proxy, Method method)
+	    throws IllegalArgumentException, IllegalStateException
+    {
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
+	    throw new IllegalArgumentException("object is not proxied object");
+	
+	int index = MethodTable.ofProxy(proxy.getClass()).indexOf(method);
+	if (index < 0)
+	    throw new IllegalArgumentException(method + " isn't handled by proxied object");
+	
+	this.markProxyFieldsDirty(proxy, index);
+    }
+    
+    /**
+     * Synchronize fields of proxy marked by
+     * {@link #markProxyFieldsDirty(Object, int)}.
+     * 
+     * <p>
+     * Fields are copied once, whatever the count of invocations marked since
+     * last synchronization. Nothing is done if proxy isn't out of date. Proxy is
+     * atomically unmarked before copying fields : all changes marked before are
+     * seen by this copy, and an invocation marking proxy afterwards keeps it out
+     * of date until next call.
+     * </p>
+     * 
+     * @param strategy
+     *            compare strategy
+     * @return changed fields' mask ({@code 0} if nothing changed)
+     * @throws NullPointerException
+     *             if {@code strategy} is null
+     * @see #updateProxyFieldsValue(Object, EqualsCompareStrategy)
+     */
+    public final long flush(EqualsCompareStrategy strategy) throws NullPointerException
+    {
+	if (strategy == null)
+	    throw new NullPointerException("excepted an equals strategy but got null");
+	
+	Delegated proxy = this.deferredProxy;
+	if (proxy == null || !DIRTY.compareAndSet(this, 1, 0))
+	    return 0L;
+	
+	return this.copyFields(proxy, this.delegated, proxy, strategy);
+    }
+    
+    /**
+     * Checking if some proxy's fields are out of date.
+     * 
+     * @return {@code true} if {@link #flush(EqualsCompareStrategy)} has fields to
+     *         synchronize
+     */
+    public final boolean isProxyFieldsDirty()
+    {
+	return this.dirty != 0;
     }
     
     /**
      * Updating all fields value to delegated object from {@ode proxy}.
      * 
      * <p>
-     * This method will explore all declared fields from delegated's class down to
+     * This method will explore all declared fields from delegated type down to
      * {@link java.lang.Object} class. It will compare fields content between two
-     * objects with selected strategy. It will copy only changed field
-     * since last update.
+     * objects (primitive fields by their value and reference fields with selected
+     * strategy). It will copy only changed field since last update.
+     * </p>
+     * 
+     * <p>
+     * If {@code proxy} has been marked by
+     * {@link #markProxyFieldsDirty(Object, int)} and not synchronized since,
+     * its fields are rejected : they can't be told apart from fields written by
+     * caller, so pushing them would overwrite delegated object's changes and
+     * synchronizing them first would drop caller's writes. Call
+     * {@link #flush(EqualsCompareStrategy)} before writing {@code proxy}'s
+     * fields.
      * </p>
      * 
      * @param proxy
      *            proxy object
      * @param strategy
      *            compare strategy
+     * @return changed fields' mask ({@code 0} if nothing changed)
      * @throws NullPointerException
      *             if {@code strategy} or {@code proxy} are null
+     * @throws IllegalStateException
+     *             if {@code proxy}'s fields are marked as out of date
      * @see #updateProxyFieldsValue(Object, EqualsCompareStrategy) Updating
      *      {@code proxy} fields' value instead
+     * @see #delegatedFieldsUpdated(long)
+     * @see FieldCopier#sync(Object, Object, EqualsCompareStrategy)
      */
-    public final void updateDelegatedFieldsValue(Delegated proxy, EqualsCompareStrategy strategy)
-	    throws NullPointerException
+    public final long updateDelegatedFieldsValue(Delegated proxy, EqualsCompareStrategy strategy)
+	    throws NullPointerException, IllegalStateException
     {
-	this.copyFields(proxy, this.delegated, strategy);
+	if (proxy != null && proxy == this.deferredProxy && this.dirty != 0)
+	    throw new IllegalStateException("proxy's fields are out of date, flush them before writing them");
+	
+	long changed = this.copyFields(proxy, proxy, this.delegated, strategy);
+	if (changed != 0L)
+	    this.delegatedFieldsUpdated(changed);
+	
+	return changed;
     }
     
     /**
-     * Utility method to copy all fields value from {@code src} to {@code dest}.
+     * Called once some fields of delegated object have been changed by
+     * {@link #updateDelegatedFieldsValue(Object, EqualsCompareStrategy)}.
      * 
      * <p>
-     * This method will explore all declared fields from {@link #delegated}'s class
-     * down to {@link java.lang.Object} class. It will compare fields content
-     * between two objects with selected strategy. It will copy only changed field
-     * since last update.
+     * Delegators keeping state depending on delegated object (like cached
+     * results) can override it to drop this state. It does nothing by default.
      * </p>
      * 
+     * @param changedFields
+     *            changed fields' mask (never {@code 0})
+     */
+    protected void delegatedFieldsUpdated(long changedFields)
+    {
+    }
+    
+    /**
+     * Utility method to copy all changed fields value from {@code src} to
+     * {@code dest}.
+     * 
+     * <p>
+     * Copied fields are those declared by proxied type (or by {@link #delegated}'s
+     * class if {@code proxy} isn't a proxied object). Synchronization is done by
+     * its {@link FieldCopier}.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object
      * @param src
      *            object source for copy
      * @param dest
      *            object destination for copy
-     * @param srcClass
-     *            first class to explore
      * @param strategy
      *            compare strategy
+     * @return changed fields' mask
      * @throws NullPointerException
      *             if {@code strategy}, {@code src} or {@code dest} are null
      */
-    private void copyFields(Delegated src, Delegated dest, EqualsCompareStrategy strategy) throws NullPointerException
+    private long copyFields(Delegated proxy, Delegated src, Delegated dest, EqualsCompareStrategy strategy)
+	    throws NullPointerException
     {
 	if (strategy == null)
 	    throw new NullPointerException("excepted an equals strategy but got null");
 	if (src == null || dest == null)
 	    throw new NullPointerException("objects to copy may not be null");
 	
-	Class<?> currentClass = this.delegated.getClass();
-	Class<?> superClass = currentClass.getSuperclass();
-	
-	while (currentClass != superClass)
-	{
-	    Field f[] = currentClass.getDeclaredFields();
-	    for (int i = 0; i < f.length; i++)
-	    {
-		try
-		{
-		    // Need to use this method to keep compatibility with Java 8
-		    @SuppressWarnings("deprecation")
-		    boolean accessible = f[i].isAccessible();
-		    f[i].setAccessible(true);
-		    Object srcValue = f[i].get(src);
-		    Object destValue = f[i].get(dest);
-		    
-		    // Copy only if values are different
-		    if (!strategy.equals(srcValue, destValue))
-		    {
-			f[i].set(dest, srcValue);
-		    }
-		    
-		    f[i].setAccessible(accessible);
-		} catch (Exception ex)
-		{
-		    ex.printStackTrace();
-		}
-	    }
-	    
-	    currentClass = superClass;
-	    if (superClass != null)
-		superClass = superClass.getSuperclass();
-	}
+	Class<?> type = proxy instanceof DelegatorFactory.ProxiedObject
+		? MethodTable.ofProxy(proxy.getClass()).getType()
+		: this.delegated.getClass();
+	return FieldCopier.of(type).sync(src, dest, strategy);
+    }
+    
+    /**
+     * Getting methods intercepted by this delegator.
+     * 
+     * @return intercepted methods' matcher
+     */
+    public final MethodMatcher getInterceptedMethods()
+    {
+	return this.interceptedMethods;
+    }
+    
+    /**
+     * Getting methods which never change delegated object's fields.
+     * 
+     * @return read-only methods' matcher
+     * @see #markProxyFieldsDirty(Object, int)
+     */
+    public final MethodMatcher getReadOnlyMethods()
+    {
+	return this.readOnlyMethods;
     }
     
     /**
@@ -1,27 +1,56 @@
 package fr.drogonistudio.delegateme;
 
-import java.lang.reflect.Field;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
+import org.objenesis.instantiator.sun.UnsafeFactoryInstantiator;
 
 import net.bytebuddy.ByteBuddy;
-import net.bytebuddy.TypeCache;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.asm.AsmVisitorWrapper;
 import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Ownership;
 import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.dynamic.loading.ClassInjector;
 import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
 import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.LoadedTypeInitializer;
+import net.bytebuddy.implementation.MethodCall;
 import net.bytebuddy.implementation.Implementation.Context;
-import net.bytebuddy.implementation.MethodDelegation;
-import net.bytebuddy.implementation.bind.annotation.AllArguments;
-import net.bytebuddy.implementation.bind.annotation.Origin;
-import net.bytebuddy.implementation.bind.annotation.RuntimeType;
-import net.bytebuddy.implementation.bind.annotation.This;
 import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.Handle;
+import net.bytebuddy.jar.asm.Label;
 import net.bytebuddy.jar.asm.MethodVisitor;
 import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
 import net.bytebuddy.matcher.ElementMatchers;
 
 public final class DelegatorFactory
@@ -34,19 +63,186 @@ public final class DelegatorFactory
     
     /**
      * Extra method's name used to invoke methods with less accessibility issues.
+     * 
+     * @see ProxiedObject#_DELEGATEME_runInvoke(int, Object[])
      */
     public static final String METHOD_RUNNER_NAME = "_DELEGATEME_runInvoke";
     
+    /**
+     * Extra method's name used to invoke methods from an {@link Invocation}.
+     * 
+     * @see ProxiedObject#_DELEGATEME_proceed(int, Invocation)
+     */
+    public static final String METHOD_PROCEED_NAME = "_DELEGATEME_proceed";
+    
+    /**
+     * Extra static field's name used to store all intercepted methods.
+     */
+    public static final String METHODS_FIELD_NAME = "_DELEGATEME_methods";
+    
+    /**
+     * Extra static field's name used to store sampler's holder of delegated
+     * type.
+     * 
+     * @see #setSampler(Class, Sampler)
+     */
+    public static final String SAMPLING_FIELD_NAME = "_DELEGATEME_sampling";
+    
+    /**
+     * Extra static field's name used to store fingerprint of generated classes'
+     * inputs.
+     * 
+     * <p>
+     * It allow to check if a class generated ahead of time still match its
+     * delegated type.
+     * </p>
+     */
+    public static final String FINGERPRINT_FIELD_NAME = "_DELEGATEME_fingerprint";
+    
+    /**
+     * Suffix appended to delegated type's name to name its proxy class.
+     */
+    public static final String PROXY_CLASS_SUFFIX = "$DelegateMeProxy";
+    
+    /**
+     * Suffix appended to delegated type's name to name its fields copier class.
+     */
+    public static final String COPIER_CLASS_SUFFIX = "$DelegateMeCopier";
+    
+    /**
+     * Package where proxy classes of interfaces loaded by bootstrap class loader
+     * are generated (since no class can be defined into their own package).
+     */
+    private static final String BOOTSTRAP_PROXY_PACKAGE = DelegatorFactory.class.getName().substring(0,
+	    DelegatorFactory.class.getName().lastIndexOf('.')) + ".generated.";
+    
+    /**
+     * Maximum count of proxies created by a single task when
+     * {@link #warpAll(Class, Collection, ForkJoinPool)} split a batch.
+     */
+    private static final int BATCH_SPLIT_THRESHOLD = 1024;
+    
     /**
      * Cache where all proxy classes are stored.
+     * 
+     * <p>
+     * Proxy classes intercepting all methods are identified by their delegated
+     * type. Other proxy classes are identified by a {@link ProxyKey}.
+     * </p>
      */
-    private static final TypeCache<Class<?>> CLASSES_CACHE = new TypeCache<>(TypeCache.Sort.SOFT);
+    private static volatile ProxyClassCache CLASSES_CACHE = ProxyClassCache.fromSystemProperties();
     
     /**
      * Objenesis instance used to instantiate object without calling any constructor
      * (needed to create wrapped objects).
+     * 
+     * <p>
+     * Objenesis' cache is disabled since it identify classes by their name : two
+     * proxy classes loaded by two class loaders would share the same instantiator.
+     * </p>
+     */
+    private static final ObjenesisStd OBJENESIS = new ObjenesisStd(false);
+    
+    /**
+     * Instantiator of each proxy class.
+     * 
+     * <p>
+     * Hidden proxy classes are instantiated with {@code Unsafe} : other
+     * Objenesis' instantiators may generate an accessor class referring to
+     * proxy class by its name, which can't be resolved for hidden classes.
+     * </p>
+     */
+    private static final ClassValue<ObjectInstantiator<?>> INSTANTIATORS = new ClassValue<ObjectInstantiator<?>>()
+    {
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	protected ObjectInstantiator<?> computeValue(Class<?> proxyClass)
+	{
+	    if (HiddenClassDefiner.isHidden(proxyClass))
+		return new UnsafeFactoryInstantiator(proxyClass);
+	    
+	    return OBJENESIS.getInstantiatorOf(proxyClass);
+	}
+    };
+    
+    /**
+     * Lock of each delegated type, held while its classes are generated.
+     * 
+     * <p>
+     * Classes of a type are generated by one thread at a time and each generation
+     * first checks if class is already loaded : a class injected into delegated
+     * type's class loader is never defined twice, while classes of different
+     * types are still generated in parallel. Hidden classes can't be found by
+     * their name, so a hidden class removed from cache is defined again as a new
+     * class.
+     * </p>
+     */
+    private static final ClassValue<Object> GENERATION_LOCKS = new ClassValue<Object>()
+    {
+	@Override
+	protected Object computeValue(Class<?> type)
+	{
+	    return new Object();
+	}
+    };
+    
+    /**
+     * Sampler's holder of each delegated type.
+     * 
+     * <p>
+     * A holder is shared by all proxy classes of a type (whatever methods they
+     * intercept), so changing its sampler affects all proxies of this type.
+     * </p>
+     */
+    private static final ClassValue<DelegatedMethodIntercepter.Sampling> SAMPLINGS =
+	    new ClassValue<DelegatedMethodIntercepter.Sampling>()
+    {
+	@Override
+	protected DelegatedMethodIntercepter.Sampling computeValue(Class<?> type)
+	{
+	    return new DelegatedMethodIntercepter.Sampling();
+	}
+    };
+    
+    /**
+     * Interception switch of each delegated type.
+     * 
+     * <p>
+     * Like {@link #SAMPLINGS}, a switch is shared by all proxy classes of a type.
+     * </p>
+     */
+    private static final ClassValue<InterceptionSwitch> INTERCEPTION_SWITCHES = new ClassValue<InterceptionSwitch>()
+    {
+	@Override
+	protected InterceptionSwitch computeValue(Class<?> type)
+	{
+	    return new InterceptionSwitch();
+	}
+    };
+    
+    /**
+     * Constructor of each interface proxy class.
+     * 
+     * <p>
+     * Each constructor is adapted to {@code (Delegator)Object} type.
+     * </p>
      */
-    private static final ObjenesisStd OBJENESIS = new ObjenesisStd();
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>()
+    {
+	@Override
+	protected MethodHandle computeValue(Class<?> proxyClass)
+	{
+	    try
+	    {
+		return MethodHandles.publicLookup()
+			.findConstructor(proxyClass, MethodType.methodType(void.class, Delegator.class))
+			.asType(MethodType.methodType(Object.class, Delegator.class));
+	    } catch (ReflectiveOperationException ex)
+	    {
+		throw new IllegalStateException("not able to find constructor of " + proxyClass, ex);
+	    }
+	}
+    };
     
     /**
      * Create a wrapped object with {@code delegator} as delegator.
@@ -72,12 +268,24 @@ public final class DelegatorFactory
      * </p>
      * 
      * <p>
+     * If {@code delegator} only intercept some methods (see
+     * {@link Delegator#getInterceptedMethods()}), a dedicated proxy class is
+     * generated for this set of methods : all other methods are directly invoked
+     * on delegated object without calling {@code delegator}.
+     * </p>
+     * 
+     * <p>
      * Once the proxy class is retrieved/generated, a new instance of
      * {@code objectType} is instantiate but no of these constructor are called.
      * From this, you should only use methods since fields couldn't be captured. You
      * can always get delegated object with {@link #unwarp(Object)}.
      * </p>
      * 
+     * <p>
+     * If {@code objectType} is an interface, {@link #warpInterface(Class, Delegator)}
+     * is used instead.
+     * </p>
+     * 
      * @param <Instance>
      *            object's type to warp
      * 	   
@@ -91,272 +299,2679 @@ public final class DelegatorFactory
     @SuppressWarnings("unchecked")
     public static <Instance> Instance warp(Class<Instance> objectType, Delegator<Instance> delegator)
     {
+	if (objectType.isInterface())
+	    return warpInterface(objectType, delegator);
+	
 	// Getting class to use or create new one if not already created
-	Class<?> proxyClass = CLASSES_CACHE.findOrInsert(objectType.getClassLoader(), objectType,
-		() -> createProxyClass(objectType));
-	Object warpped = OBJENESIS.getInstantiatorOf(proxyClass).newInstance();
+	Class<?> proxyClass = proxyClassOf(objectType, delegator.getInterceptedMethods());
+	Object warpped = INSTANTIATORS.get(proxyClass).newInstance();
 	
-	copyFields(delegator.getDelegated(), warpped);
-	try
-	{
-	    proxyClass.getField(EXTRA_FIELD_NAME).set(warpped, delegator);
-	} catch (ReflectiveOperationException ex)
-	{
-	    // Should not happen
-	    ex.printStackTrace();
-	}
+	FieldCopier.of(objectType).copy(delegator.getDelegated(), warpped);
+	((ProxiedObject) warpped)._DELEGATEME_setDelegator(delegator);
 	
 	return (Instance) warpped;
     }
     
     /**
-     * Retrieve delegator of {@code proxy}.
+     * Create a lightweight proxy implementing {@code interfaceType} with
+     * {@code delegator} as delegator.
+     * 
+     * <p>
+     * Unlike {@link #warp(Class, Delegator)}, generated class doesn't extend
+     * delegated object's class : it only implements {@code interfaceType} and
+     * {@link ProxiedObject}. A proxy only store its delegator (no field is copied
+     * from delegated object) and it's created by calling its constructor (without
+     * Objenesis).
+     * </p>
      * 
      * <p>
-     * It will return value stored into {@link #EXTRA_FIELD_NAME} field. If this
-     * field doesn't exist, an {@link java.lang.IllegalArgumentException} is thrown
-     * because {@code proxy} isn't a poxied object.
+     * All methods of {@code interfaceType} and all public methods of
+     * {@link java.lang.Object} are intercepted (or only methods selected by
+     * delegator's {@link Delegator#getInterceptedMethods() matcher}). Fields
+     * synchronization methods of delegator have no effect on these proxies.
      * </p>
      * 
      * @param <Instance>
-     *            wrapped object's type
-     * @param proxy
-     *            wrapped object
-     * @return delegator used to warp with {@link #warp(Class, Delegator)}
+     *            interface to implement
+     * @param interfaceType
+     *            interface to implement
+     * @param delegator
+     *            delegator to use to handle any methods
+     * @return proxy object
      * @throws IllegalArgumentException
-     *             if {@code proxy} isn't a proxied object
+     *             if {@code interfaceType} isn't an interface
      * @see #warp(Class, Delegator)
      */
-    @SuppressWarnings("unchecked")
-    public static <Instance> Delegator<Instance> getDelegator(Instance proxy) throws IllegalArgumentException
+    public static <Instance> Instance warpInterface(Class<Instance> interfaceType, Delegator<Instance> delegator)
+	    throws IllegalArgumentException
     {
+	if (!interfaceType.isInterface())
+	    throw new IllegalArgumentException(interfaceType + " isn't an interface");
+	
+	Class<?> proxyClass = proxyClassOf(interfaceType, delegator.getInterceptedMethods());
 	try
 	{
-	    Field delegatorField = proxy.getClass().getField(EXTRA_FIELD_NAME);
-	    return (Delegator<Instance>) delegatorField.get(proxy);
-	} catch (NoSuchFieldException ex)
+	    return interfaceType.cast((Object) CONSTRUCTORS.get(proxyClass).invokeExact((Delegator<?>) delegator));
+	} catch (RuntimeException | Error ex)
 	{
-	    throw new IllegalArgumentException(proxy + " isn't a proxied object");
-	} catch (Exception otherExceptions)
+	    throw ex;
+	} catch (Throwable t)
 	{
-	    // Should not happen
-	    otherExceptions.printStackTrace();
-	    return null;
+	    // Should not happen, constructor only store delegator
+	    throw new IllegalStateException("not able to instantiate " + proxyClass, t);
 	}
     }
     
     /**
-     * Generate a new proxy class.
+     * Create a proxy whose delegated object is created on first intercepted
+     * invocation.
      * 
      * <p>
-     * A proxy class will intercept any invocated method and delegate it to an
-     * delegator. This delegator will be stored into future object.
+     * Proxy is returned right away : {@code supplier} isn't invoked and no field
+     * is copied. On first invocation, delegated object is created by
+     * {@code supplier}, its delegator by {@code delegatorFactory}, and delegated
+     * object's fields are copied into proxy as {@link #warp(Class, Delegator)}
+     * does. Delegated object is created only once, even if proxy is invoked by
+     * many threads at the same time.
      * </p>
      * 
      * <p>
-     * The generated class will have a new field named {@link #EXTRA_FIELD_NAME}
-     * with a public visibility (to make the access easier). This field will store
-     * the used delegator.
+     * Until then, proxy's delegator is a {@link LazyDelegator} and proxy's fields
+     * keep their default value. Proxy's class intercepts all methods.
      * </p>
      * 
-     * @param <Type>
-     *            delegated type
-     * @param type
-     *            delegated type
-     * @return a proxy class which intercept any methods.
+     * @param <Instance>
+     *            object's type to warp
+     * @param objectType
+     *            object's type to warp
+     * @param supplier
+     *            supplier creating delegated object
+     * @param delegatorFactory
+     *            factory creating delegator of delegated object
+     * @return lazy proxy
+     * @throws NullPointerException
+     *             if an argument is null
+     * @see LazyDelegator
      */
-    private static <Type> Class<?> createProxyClass(Class<Type> type)
+    @SuppressWarnings("unchecked")
+    public static <Instance> Instance warpLazy(Class<Instance> objectType, Supplier<? extends Instance> supplier,
+	    Function<? super Instance, ? extends Delegator<Instance>> delegatorFactory) throws NullPointerException
     {
-	ClassLoadingStrategy<ClassLoader> strategy = null;
+	LazyDelegator<Instance> delegator = new LazyDelegator<>(objectType, supplier, delegatorFactory);
+	if (objectType.isInterface())
+	    return warpInterface(objectType, delegator);
 	
-	// Checking at possibility to generate new class before doing anything
-	if (ClassInjector.UsingLookup.isAvailable())
+	// Fields are copied once delegated object is created
+	Object warpped = INSTANTIATORS.get(proxyClassOf(objectType, MethodMatcher.any())).newInstance();
+	((ProxiedObject) warpped)._DELEGATEME_setDelegator(delegator);
+	
+	return (Instance) warpped;
+    }
+    
+    /**
+     * Generate proxy classes of {@code types} ahead of first warp.
+     * 
+     * <p>
+     * It allow to generate all needed classes at startup instead of during first
+     * {@link #warp(Class, Delegator)} : proxy class (intercepting all methods),
+     * its instantiator and fields copier of each type are generated and stored
+     * into cache.
+     * </p>
+     * 
+     * @param types
+     *            delegated types
+     * @see #getProxyClassCache()
+     */
+    public static void prepare(Class<?>... types)
+    {
+	for (Class<?> type : types)
 	{
-	    try
+	    Class<?> proxyClass = proxyClassOf(type, MethodMatcher.any());
+	    if (type.isInterface())
 	    {
-		Class<?> MethodHandles = Class.forName("java.lang.invoke.MethodHandles");
-		Class<?> MethodHandles$Lookup = Class.forName("java.lang.invoke.MethodHandles$Lookup");
-		
-		Method $privateLookupIn = MethodHandles.getMethod("privateLookupIn", Class.class, MethodHandles$Lookup);
-		Method $lookup = MethodHandles.getMethod("lookup");
-		
-		Object lookup = $lookup.invoke(null);
-		Object lookupIn = $privateLookupIn.invoke(null, type, lookup);
-		
-		strategy = ClassLoadingStrategy.UsingLookup.of(lookupIn);
-	    } catch (ReflectiveOperationException ex)
+		CONSTRUCTORS.get(proxyClass);
+	    } else
 	    {
-		// Should not happen
-		ex.printStackTrace();
+		INSTANTIATORS.get(proxyClass);
+		FieldCopier.of(type);
 	    }
-	} else if (ClassInjector.UsingReflection.isAvailable())
-	{
-	    strategy = ClassLoadingStrategy.Default.INJECTION;
-	} else
-	{
-	    throw new IllegalStateException("not able to load any generated class");
 	}
-	
-	// @formatter:off
-	// Okay, let's creating class...
-	return new ByteBuddy()
-		// Setting class header
-		.subclass(type)
-		.name(type.getName().concat("$DelegateMeProxy"))
-		
-		// Add extra-field to remember current delegator (public access to avoid illegal access)
-		// Warning: this field is modifiable by anybody. Asume nobody will change it
-		.defineField(EXTRA_FIELD_NAME, Delegator.class, Visibility.PUBLIC)
-		
-		// Intercept all public methods
-		.method(ElementMatchers.isPublic())
-		.intercept(MethodDelegation.to(DelegatedMethodIntercepter.class))
-		
-		// Add utility method to bypass access to invoke method
-		// Signature: public final Object _DELEGATEME_runInvoke(Method, Object[]) throws Throwable
-		.defineMethod(METHOD_RUNNER_NAME, Object.class, Modifier.PUBLIC | Modifier.FINAL)
-		.withParameters(Method.class, Object[].class)
-		.throwing(Throwable.class)
-		.intercept(new Implementation.Simple(new MethodRunnerCode()))
-		
-		// And generating
-		.make()
-		.load(type.getClassLoader(), strategy).getLoaded();
-	// @formatter:on
     }
     
     /**
-     * Copy all field value from {@code src} to {@code dest}.
+     * Generate proxy classes of {@code types} in parallel.
+     * 
+     * <p>
+     * Same as {@link #prepareAll(Collection, ExecutorService)} with common
+     * fork-join pool.
+     * </p>
+     * 
+     * @param types
+     *            delegated types
+     * @throws IllegalStateException
+     *             if current thread is interrupted while waiting
+     */
+    public static void prepareAll(Collection<? extends Class<?>> types) throws IllegalStateException
+    {
+	prepareAll(types, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Generate proxy classes of {@code types} in parallel with {@code executor}.
      * 
      * <p>
-     * This method will explore all declared fields from {@code src}'s class down to
-     * {@link java.lang.Object} class. During exploration, all fields from
-     * {@code src} are set to be accessible (if accessibility change failed, copy
-     * isn't done) and got value is set to {@code dest}.
+     * Each type is prepared (see {@link #prepare(Class...)}) by its own task.
+     * Classes of different types are generated in parallel while each class is
+     * still generated only once, even if it's also needed by other threads at the
+     * same time. This method returns once all types are prepared.
      * </p>
      * 
      * <p>
-     * Any errors are printed on {@link java.lang.System#err} (but it should not
-     * happen).
+     * If a type can't be prepared, all other types are still prepared and the
+     * first failure is thrown (next failures are added as suppressed exceptions).
      * </p>
      * 
-     * @param src
-     *            source for copy
-     * @param dest
-     *            destination for copy
+     * @param types
+     *            delegated types
+     * @param executor
+     *            executor running preparation tasks
+     * @throws IllegalStateException
+     *             if current thread is interrupted while waiting
      */
-    private static void copyFields(Object src, Object dest)
+    public static void prepareAll(Collection<? extends Class<?>> types, ExecutorService executor)
+	    throws IllegalStateException
     {
-	Class<?> currentClass = src.getClass();
-	Class<?> superClass = currentClass.getSuperclass();
+	List<Callable<Void>> tasks = new ArrayList<>(types.size());
+	for (Class<?> type : types)
+	{
+	    tasks.add(() -> {
+		prepare(type);
+		return null;
+	    });
+	}
 	
-	while (currentClass != superClass)
+	RuntimeException failure = null;
+	try
 	{
-	    Field f[] = currentClass.getDeclaredFields();
-	    for (int i = 0; i < f.length; i++)
+	    for (Future<Void> task : executor.invokeAll(tasks))
 	    {
 		try
 		{
-		    // Need to use this method to keep compatibility with Java 8
-		    @SuppressWarnings("deprecation")
-		    boolean accessible = f[i].isAccessible();
-		    f[i].setAccessible(true);
-		    f[i].set(dest, f[i].get(src));
-		    f[i].setAccessible(accessible);
-		} catch (ReflectiveOperationException | SecurityException ex)
+		    task.get();
+		} catch (ExecutionException ex)
 		{
-		    // Okay, we're not allowed to do this...
-		    ex.printStackTrace();
+		    Throwable cause = ex.getCause();
+		    if (failure == null)
+			failure = cause instanceof RuntimeException ? (RuntimeException) cause
+				: new IllegalStateException("not able to prepare proxy classes", cause);
+		    else
+			failure.addSuppressed(cause);
 		}
 	    }
-	    
-	    currentClass = superClass;
-	    if (superClass != null)
-		superClass = superClass.getSuperclass();
+	} catch (InterruptedException ex)
+	{
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("interrupted while preparing proxy classes", ex);
 	}
+	
+	if (failure != null)
+	    throw failure;
     }
     
     /**
-     * A method intercepter.
+     * Getting cache where proxy classes are stored.
+     * 
+     * @return current cache
+     */
+    public static ProxyClassCache getProxyClassCache()
+    {
+	return CLASSES_CACHE;
+    }
+    
+    /**
+     * Replace cache where proxy classes are stored.
      * 
      * <p>
-     * This intercepter will retrieve stored delegator and invoke
-     * {@link Delegator#invoke(Method, Object[])}.
+     * Proxy classes stored into previous cache are not moved into new cache :
+     * they will be retrieved again on next warps (without generating them again
+     * since they're still loaded).
      * </p>
      * 
-     * @author DrogoniEntity
+     * @param cache
+     *            new cache
+     * @throws NullPointerException
+     *             if {@code cache} is null
      */
-    public static class DelegatedMethodIntercepter
+    public static void setProxyClassCache(ProxyClassCache cache) throws NullPointerException
     {
-	@RuntimeType
-	public static Object intercept(@This Object proxy, @Origin Method method, @AllArguments Object args[])
-		throws Throwable
-	{
-	    @SuppressWarnings("unchecked")
-	    Delegator<Object> delegator = (Delegator<Object>) proxy.getClass().getField(EXTRA_FIELD_NAME).get(proxy);
-	    return delegator.invoke(proxy, method, args);
-	}
+	if (cache == null)
+	    throw new NullPointerException("excepted a cache but got null");
+	
+	CLASSES_CACHE = cache;
     }
     
     /**
-     * Writing method invoker's code.
+     * Select which invocations of {@code type}'s proxies are intercepted.
      * 
      * <p>
-     * This method allow to bypass method visibility to be sure we can execute-it
-     * without accessibility issue (like "couldn't invoke method from private class
-     * in out-of-scope method).
+     * Once a sampler is set, each intercepted method of {@code type}'s proxies
+     * first calls {@link Sampler#sample()}. Only selected invocations reach
+     * proxy's delegator : other ones are directly invoked on delegated object,
+     * without creating any {@link Method}, argument array or
+     * {@link Invocation}. A {@code null} sampler intercept all invocations again
+     * (it's the default behavior).
      * </p>
      * 
-     * @author DrogoniEntity
+     * <p>
+     * Sampler can be changed at any time : it applies to all proxies of
+     * {@code type} (already created or not), whatever methods their delegators
+     * intercept. Lazy proxies (see {@link #warpLazy(Class, Supplier, Function)})
+     * are always intercepted until they're materialized.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @param sampler
+     *            sampler selecting intercepted invocations or {@code null} to
+     *            intercept all invocations
+     * @throws NullPointerException
+     *             if {@code type} is null
+     * @see Sampler#oneIn(int)
+     * @see Sampler#budget(long, long, java.util.concurrent.TimeUnit)
      */
-    public static class MethodRunnerCode implements ByteCodeAppender
+    public static void setSampler(Class<?> type, Sampler sampler) throws NullPointerException
     {
-	@Override
-	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
-		MethodDescription instrumentedMethod)
-	{
-	    String delegatorOwner = Delegator.class.getName().replace('.', '/');
-	    String delegatorDescriptor = "L" + delegatorOwner + ";";
-	    
-	    /* @formatter:off
-	     * -----------------------------------
-	     * // Java Code :
-	     * 
-	     * Object delegated = this.delegator.getDelegated(); return
-	     * method.invoke(delegated, args);
-	     * 
-	     * ----------------------------------- 
-	     * /* Bytecode (Eclipse format) : // Stack: 3, Locals: 4
-	     * 
-	     * aload_0 [this]
-	     * getfield fr.drogonistudio.delegateme.Temp.delegator : fr.drogonistudio.delegateme.Delegator [23]
-	     * invokevirtual fr.drogonistudio.delegateme.Delegator.getDelegated() : java.lang.Object [25]
-	     * astore_3 [delegated]
-	     * aload_1 [method]
-	     * aload_3 [delegated]
-	     * aload_2 [args]
-	     * invokevirtual java.lang.reflect.Method.invoke(java.lang.Object, java.lang.Object[]) : java.lang.Object [31]
-	     * areturn
-	     * -----------------------------------
-	     * @formatter:on*/
-	    
-	    methodVisitor.visitCode();
-	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
-	    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, implementationContext.getInstrumentedType().getName(),
-		    EXTRA_FIELD_NAME, delegatorDescriptor);
-	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, delegatorOwner, "getDelegated", "()Ljava/lang/Object;",
-		    false);
-	    methodVisitor.visitVarInsn(Opcodes.ASTORE, 3);
-	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
-	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 3);
-	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
-	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/reflect/Method", "invoke",
-		    "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", false);
-	    methodVisitor.visitInsn(Opcodes.ARETURN);
-	    methodVisitor.visitEnd();
-	    
-	    return new ByteCodeAppender.Size(3, 4);
-	}
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	
+	SAMPLINGS.get(type).setSampler(sampler);
+    }
+    
+    /**
+     * Getting sampler selecting which invocations of {@code type}'s proxies are
+     * intercepted.
+     * 
+     * @param type
+     *            delegated type
+     * @return current sampler or {@code null} if all invocations are intercepted
+     * @throws NullPointerException
+     *             if {@code type} is null
+     * @see #setSampler(Class, Sampler)
+     */
+    public static Sampler getSampler(Class<?> type) throws NullPointerException
+    {
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
 	
+	return SAMPLINGS.get(type).getSampler();
+    }
+    
+    /**
+     * Turn on or off interception of {@code type}'s proxies.
+     * 
+     * <p>
+     * While interception is disabled, each intercepted method of {@code type}'s
+     * proxies is directly invoked on delegated object : delegators and
+     * {@link #setSampler(Class, Sampler) sampler} aren't called anymore. Proxies
+     * don't need to be warped again and interception resumes as soon as it's
+     * enabled again. Interception is enabled by default.
+     * </p>
+     * 
+     * <p>
+     * Switch is read by proxies through an {@code invokedynamic} instruction
+     * bound to a {@link MutableCallSite} : the JIT compiles it as a constant, so
+     * disabled proxies cost almost as much as a direct call. Changing it
+     * deoptimizes compiled code using proxies of {@code type}, so it should
+     * rarely be done (during an incident for example), not for each call.
+     * </p>
+     * 
+     * <p>
+     * Like samplers, switch applies to all proxies of {@code type} whatever
+     * methods their delegators intercept. Lazy proxies (see
+     * {@link #warpLazy(Class, Supplier, Function)}) are always intercepted until
+     * they're materialized.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @param enabled
+     *            {@code true} to intercept invocations, {@code false} to directly
+     *            forward them
+     * @throws NullPointerException
+     *             if {@code type} is null
+     */
+    public static void setInterceptionEnabled(Class<?> type, boolean enabled) throws NullPointerException
+    {
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	
+	INTERCEPTION_SWITCHES.get(type).setEnabled(enabled);
+    }
+    
+    /**
+     * Checking if interception of {@code type}'s proxies is enabled.
+     * 
+     * @param type
+     *            delegated type
+     * @return {@code true} if invocations are intercepted
+     * @throws NullPointerException
+     *             if {@code type} is null
+     * @see #setInterceptionEnabled(Class, boolean)
+     */
+    public static boolean isInterceptionEnabled(Class<?> type) throws NullPointerException
+    {
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	
+	return INTERCEPTION_SWITCHES.get(type).isEnabled();
+    }
+    
+    /**
+     * Bind {@code proxy} to {@code delegator}.
+     * 
+     * <p>
+     * It allow to reuse an existing proxy instead of warping a new one : fields of
+     * {@code delegator}'s delegated object are copied into {@code proxy} (except
+     * for interface proxies which don't hold any field) and {@code delegator}
+     * becomes {@code proxy}'s delegator. {@code proxy} must not be used by its
+     * previous delegator anymore.
+     * </p>
+     * 
+     * <p>
+     * {@code delegator} must intercept the same methods as {@code proxy}'s class
+     * (see {@link Delegator#getInterceptedMethods()}).
+     * </p>
+     * 
+     * @param <Instance>
+     *            wrapped object's type
+     * @param proxy
+     *            proxy to rebind
+     * @param delegator
+     *            new delegator
+     * @return {@code proxy}
+     * @throws IllegalArgumentException
+     *             if {@code proxy} isn't a proxied object or if {@code proxy}'s
+     *             class doesn't intercept methods selected by {@code delegator}
+     * @throws ClassCastException
+     *             if delegated object isn't an instance of {@code proxy}'s
+     *             delegated type
+     * @see ProxyPool
+     */
+    public static <Instance> Instance rebind(Instance proxy, Delegator<Instance> delegator)
+	    throws IllegalArgumentException, ClassCastException
+    {
+	if (!(proxy instanceof ProxiedObject))
+	    throw new IllegalArgumentException(proxy + " isn't a proxied object");
+	
+	ProxiedObject proxied = (ProxiedObject) proxy;
+	Class<?> type = MethodTable.ofProxy(proxy.getClass()).getType();
+	Delegator<?> previous = proxied._DELEGATEME_getDelegator();
+	if ((previous == null || previous.getInterceptedMethods() != delegator.getInterceptedMethods())
+		&& proxyClassOf(type, delegator.getInterceptedMethods()) != proxy.getClass())
+	    throw new IllegalArgumentException(proxy.getClass() + " doesn't intercept methods selected by " + delegator);
+	
+	if (!type.isInterface())
+	    FieldCopier.of(type).copy(delegator.getDelegated(), proxy);
+	proxied._DELEGATEME_setDelegator(delegator);
+	
+	return proxy;
+    }
+    
+    /**
+     * Create a wrapped object for each delegator of {@code delegators}.
+     * 
+     * <p>
+     * It does the same job as {@link #warp(Class, Delegator)} (or
+     * {@link #warpInterface(Class, Delegator)} if {@code objectType} is an
+     * interface) for each delegator, but proxy class, its instantiator and fields
+     * copier are resolved only once for the whole batch. Delegators with different
+     * {@link Delegator#getInterceptedMethods() matchers} are still allowed, but
+     * each change of matcher implies a new resolution.
+     * </p>
+     * 
+     * @param <Instance>
+     *            object's type to warp
+     * @param objectType
+     *            object's type to warp
+     * @param delegators
+     *            delegators to use (one proxy is created for each delegator)
+     * @return warped objects, in the same order as {@code delegators}
+     * @see #warpAll(Class, Collection, ForkJoinPool)
+     */
+    public static <Instance> List<Instance> warpAll(Class<Instance> objectType,
+	    Collection<? extends Delegator<Instance>> delegators)
+    {
+	return warpAll(objectType, delegators, null);
+    }
+    
+    /**
+     * Create a wrapped object for each delegator of {@code delegators}, splitting
+     * large batches across {@code pool}.
+     * 
+     * <p>
+     * Batches bigger than {@value #BATCH_SPLIT_THRESHOLD} delegators are split
+     * into tasks executed by {@code pool}. Smaller batches (or all batches if
+     * {@code pool} is {@code null}) are warped by current thread.
+     * </p>
+     * 
+     * @param <Instance>
+     *            object's type to warp
+     * @param objectType
+     *            object's type to warp
+     * @param delegators
+     *            delegators to use (one proxy is created for each delegator)
+     * @param pool
+     *            pool used to split large batches (may be {@code null})
+     * @return warped objects, in the same order as {@code delegators}
+     * @see #warpAll(Class, Collection)
+     */
+    @SuppressWarnings("unchecked")
+    public static <Instance> List<Instance> warpAll(Class<Instance> objectType,
+	    Collection<? extends Delegator<Instance>> delegators, ForkJoinPool pool)
+    {
+	BatchWarper<Instance> warper = new BatchWarper<>(objectType);
+	Delegator<Instance> sources[] = (Delegator<Instance>[]) delegators.toArray(new Delegator<?>[0]);
+	Object warpped[] = new Object[sources.length];
+	
+	if (pool == null || sources.length <= BATCH_SPLIT_THRESHOLD)
+	    warper.warp(sources, warpped, 0, sources.length);
+	else
+	    pool.invoke(new BatchWarpTask<>(warper, sources, warpped, 0, sources.length));
+	
+	return (List<Instance>) Arrays.asList(warpped);
+    }
+    
+    /**
+     * Create a wrapped object for each delegator of {@code delegators}.
+     * 
+     * <p>
+     * Returned stream lazily warp each delegator like
+     * {@link #warpAll(Class, Collection)} : proxy class, its instantiator and
+     * fields copier are resolved only once. If {@code delegators} is a parallel
+     * stream, proxies are created in parallel.
+     * </p>
+     * 
+     * @param <Instance>
+     *            object's type to warp
+     * @param objectType
+     *            object's type to warp
+     * @param delegators
+     *            delegators to use (one proxy is created for each delegator)
+     * @return a stream of warped objects
+     */
+    public static <Instance> Stream<Instance> warpAll(Class<Instance> objectType,
+	    Stream<? extends Delegator<Instance>> delegators)
+    {
+	return delegators.map(new BatchWarper<>(objectType));
+    }
+    
+    /**
+     * Retrieve delegator of {@code proxy}.
+     * 
+     * <p>
+     * It will return value stored into {@link #EXTRA_FIELD_NAME} field. If
+     * {@code proxy} doesn't implement {@link ProxiedObject}, an
+     * {@link java.lang.IllegalArgumentException} is thrown because {@code proxy}
+     * isn't a poxied object.
+     * </p>
+     * 
+     * @param <Instance>
+     *            wrapped object's type
+     * @param proxy
+     *            wrapped object
+     * @return delegator used to warp with {@link #warp(Class, Delegator)}
+     * @throws IllegalArgumentException
+     *             if {@code proxy} isn't a proxied object
+     * @see #warp(Class, Delegator)
+     */
+    @SuppressWarnings("unchecked")
+    public static <Instance> Delegator<Instance> getDelegator(Instance proxy) throws IllegalArgumentException
+    {
+	if (!(proxy instanceof ProxiedObject))
+	    throw new IllegalArgumentException(proxy + " isn't a proxied object");
+	
+	return (Delegator<Instance>) ((ProxiedObject) proxy)._DELEGATEME_getDelegator();
+    }
+    
+    /**
+     * Generate all classes needed to warp {@code type} and save them into
+     * {@code directory}.
+     * 
+     * <p>
+     * This method allow to generate classes ahead of time (during build process for
+     * example) : proxy class and fields copier class are written as class files
+     * into {@code directory} (with a sub-directory for each package). Once these
+     * classes are available into {@code type}'s class loader, they will be used
+     * instead of generating new classes at runtime.
+     * </p>
+     * 
+     * <p>
+     * Generated classes are compiled with the same class file version as
+     * {@code type} (at least Java 8). If {@code type} change after generation,
+     * pre-generated classes will be ignored and new classes will be generated at
+     * runtime.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @param directory
+     *            root directory where class files are saved
+     * @throws IOException
+     *             if {@code type}'s class file can't be read or if a class file
+     *             can't be written
+     */
+    public static void generateClasses(Class<?> type, File directory) throws IOException
+    {
+	ClassFileVersion version = ClassFileVersion.of(type);
+	if (version.isLessThan(ClassFileVersion.JAVA_V8))
+	    version = ClassFileVersion.JAVA_V8;
+	
+	ByteBuddy byteBuddy = new ByteBuddy(version);
+	makeProxyClass(byteBuddy, type, proxyClassNameOf(type), null).saveIn(directory);
+	if (!type.isInterface())
+	    makeFieldCopier(byteBuddy, type, type.getName().concat(COPIER_CLASS_SUFFIX)).saveIn(directory);
+    }
+    
+    /**
+     * Getting proxy class of {@code type} intercepting methods matched by
+     * {@code matcher}.
+     * 
+     * <p>
+     * Proxy classes are generated only once and stored into cache.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @param matcher
+     *            intercepted methods
+     * @return proxy class to instantiate
+     */
+    static Class<?> proxyClassOf(Class<?> type, MethodMatcher matcher)
+    {
+	MethodTable table = MethodTable.of(type);
+	if (matcher.matchesAll(table))
+	    return CLASSES_CACHE.findOrInsert(type, type, () -> findOrCreateProxyClass(type));
+	
+	BitSet mask = matcher.maskOf(table);
+	return CLASSES_CACHE.findOrInsert(type, new ProxyKey(type, mask),
+		() -> createPartialProxyClass(type, mask));
+    }
+    
+    /**
+     * Getting name of {@code type}'s proxy class.
+     * 
+     * @param type
+     *            delegated type
+     * @return proxy class' name
+     */
+    private static String proxyClassNameOf(Class<?> type)
+    {
+	String name = type.getName().concat(PROXY_CLASS_SUFFIX);
+	if (type.isInterface() && type.getClassLoader() == null)
+	    name = BOOTSTRAP_PROXY_PACKAGE.concat(name);
+	
+	return name;
+    }
+    
+    /**
+     * Getting proxy class of {@code type}.
+     * 
+     * <p>
+     * If a proxy class has been generated ahead of time and it still match
+     * {@code type}, it will be used. Otherwise, a new proxy class is generated.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @return a proxy class which intercept any methods
+     * @see #generateClasses(Class, File)
+     */
+    private static Class<?> findOrCreateProxyClass(Class<?> type)
+    {
+	synchronized (GENERATION_LOCKS.get(type))
+	{
+	    return findOrMakeProxyClass(type);
+	}
+    }
+    
+    /**
+     * Getting proxy class of {@code type} (lock of {@code type} must be held).
+     * 
+     * @param type
+     *            delegated type
+     * @return a proxy class which intercept any methods
+     * @see #findOrCreateProxyClass(Class)
+     */
+    private static Class<?> findOrMakeProxyClass(Class<?> type)
+    {
+	String name = proxyClassNameOf(type);
+	long fingerprint = MethodTable.of(type).getFingerprint();
+	
+	Class<?> pregenerated = findPregeneratedClass(type, name);
+	if (pregenerated != null)
+	{
+	    if (isProxyClassOf(pregenerated, type, fingerprint))
+		return pregenerated;
+	    
+	    // Outdated class, using another name to avoid conflict (it may be already generated)
+	    name = name + '$' + Long.toHexString(fingerprint);
+	    pregenerated = findPregeneratedClass(type, name);
+	    if (pregenerated != null && isProxyClassOf(pregenerated, type, fingerprint))
+		return pregenerated;
+	}
+	
+	return loadProxyClass(makeProxyClass(new ByteBuddy(), type, name, null), type);
+    }
+    
+    /**
+     * Checking if {@code candidate} is a proxy class of {@code type} generated
+     * from a method table with {@code fingerprint} as fingerprint.
+     * 
+     * @param candidate
+     *            class to check
+     * @param type
+     *            delegated type
+     * @param fingerprint
+     *            expected fingerprint
+     * @return {@code true} if {@code candidate} can be used as proxy class
+     */
+    private static boolean isProxyClassOf(Class<?> candidate, Class<?> type, long fingerprint)
+    {
+	return ProxiedObject.class.isAssignableFrom(candidate) && type.isAssignableFrom(candidate)
+		&& MethodTable.ofProxy(candidate).getType() == type && fingerprintOf(candidate) == fingerprint;
+    }
+    
+    /**
+     * Generate a proxy class of {@code type} which only intercept some methods.
+     * 
+     * <p>
+     * These classes are never generated ahead of time. Class' name contains
+     * intercepted methods' mask to make it unique : if this class has been
+     * injected into delegated type's class loader before (it has been removed
+     * from cache), it's reused. A hidden class can't be found this way, so it's
+     * generated again.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @param mask
+     *            intercepted methods' indexes into {@code type}'s method table
+     * @return a proxy class which intercept only methods set into {@code mask}
+     */
+    private static Class<?> createPartialProxyClass(Class<?> type, BitSet mask)
+    {
+	StringBuilder name = new StringBuilder(proxyClassNameOf(type)).append("$m");
+	for (long word : mask.toLongArray())
+	    name.append(Long.toHexString(word)).append('_');
+	long fingerprint = MethodTable.of(type).getFingerprint();
+	name.append(Long.toHexString(fingerprint));
+	
+	synchronized (GENERATION_LOCKS.get(type))
+	{
+	    Class<?> loaded = findPregeneratedClass(type, name.toString());
+	    if (loaded != null && isProxyClassOf(loaded, type, fingerprint))
+		return loaded;
+	    
+	    return loadProxyClass(makeProxyClass(new ByteBuddy(), type, name.toString(), mask), type);
+	}
+    }
+    
+    /**
+     * Load a proxy class of {@code type}.
+     * 
+     * <p>
+     * Proxy class is loaded next to {@code type}, excepted for interfaces loaded
+     * by bootstrap class loader : their proxy classes are loaded by a new class
+     * loader (child of this library's class loader).
+     * </p>
+     * 
+     * <p>
+     * When possible, proxy class is defined as a hidden class (see
+     * {@link HiddenClassDefiner}), so it can be unloaded once it's unreachable
+     * (only with delegated type under default {@code STRONG} cache).
+     * Otherwise, it's injected into {@code type}'s class loader with
+     * {@link #loadingStrategyOf(Class)}.
+     * </p>
+     * 
+     * @param proxyClass
+     *            proxy class to load
+     * @param type
+     *            delegated type
+     * @return loaded proxy class
+     */
+    private static Class<?> loadProxyClass(DynamicType.Unloaded<?> proxyClass, Class<?> type)
+    {
+	if (type.isInterface() && type.getClassLoader() == null)
+	    return proxyClass.load(DelegatorFactory.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+		    .getLoaded();
+	
+	Class<?> hidden = defineHiddenProxyClass(proxyClass, type);
+	if (hidden != null)
+	    return hidden;
+	
+	return proxyClass.load(type.getClassLoader(), loadingStrategyOf(type)).getLoaded();
+    }
+    
+    /**
+     * Define a proxy class of {@code type} as a hidden class.
+     * 
+     * <p>
+     * Proxy classes needing auxiliary classes or an initialization after loading
+     * aren't defined as hidden classes. A proxy class is only returned once its
+     * instantiator has been created.
+     * </p>
+     * 
+     * @param proxyClass
+     *            proxy class to define
+     * @param type
+     *            delegated type
+     * @return defined proxy class, or {@code null} if it can't be defined as a
+     *         hidden class
+     */
+    private static Class<?> defineHiddenProxyClass(DynamicType.Unloaded<?> proxyClass, Class<?> type)
+    {
+	if (!HiddenClassDefiner.isAvailable() || !proxyClass.getAuxiliaryTypes().isEmpty())
+	    return null;
+	
+	for (LoadedTypeInitializer initializer : proxyClass.getLoadedTypeInitializers().values())
+	{
+	    if (initializer.isAlive())
+		return null;
+	}
+	
+	try
+	{
+	    Class<?> hidden = HiddenClassDefiner.define(type, proxyClass.getBytes());
+	    if (!type.isInterface())
+		INSTANTIATORS.get(hidden);
+	    
+	    return hidden;
+	} catch (ReflectiveOperationException | RuntimeException | LinkageError ex)
+	{
+	    // Falling back to class loader's injection
+	    return null;
+	}
+    }
+    
+    /**
+     * Getting fields copier of {@code type}.
+     * 
+     * <p>
+     * If a copier class has been generated ahead of time and it still match
+     * {@code type}, it will be used. Otherwise, a new copier class is generated.
+     * </p>
+     * 
+     * @param type
+     *            type where fields are declared
+     * @return an instance of copier class
+     * @throws IllegalStateException
+     *             if copier class can't be loaded or instantiated
+     * @see #generateClasses(Class, File)
+     */
+    static FieldCopier findOrCreateFieldCopier(Class<?> type) throws IllegalStateException
+    {
+	String name = type.getName().concat(COPIER_CLASS_SUFFIX);
+	long fingerprint = FieldLayout.of(type).getFingerprint();
+	
+	Class<?> copierClass;
+	synchronized (GENERATION_LOCKS.get(type))
+	{
+	    copierClass = findPregeneratedClass(type, name);
+	    if (copierClass != null && !isFieldCopierOf(copierClass, fingerprint))
+	    {
+		// Outdated class, using another name to avoid conflict (it may be already generated)
+		name = name + '$' + Long.toHexString(fingerprint);
+		copierClass = findPregeneratedClass(type, name);
+	    }
+	    
+	    if (copierClass == null || !isFieldCopierOf(copierClass, fingerprint))
+		copierClass = makeFieldCopier(new ByteBuddy(), type, name)
+			.load(type.getClassLoader(), loadingStrategyOf(type)).getLoaded();
+	}
+	
+	try
+	{
+	    return (FieldCopier) copierClass.getConstructor(Class.class).newInstance(type);
+	} catch (ReflectiveOperationException ex)
+	{
+	    throw new IllegalStateException("not able to instantiate " + copierClass, ex);
+	}
+    }
+    
+    /**
+     * Checking if {@code candidate} is a fields copier class generated from a
+     * fields layout with {@code fingerprint} as fingerprint.
+     * 
+     * @param candidate
+     *            class to check
+     * @param fingerprint
+     *            expected fingerprint
+     * @return {@code true} if {@code candidate} can be used as copier class
+     */
+    private static boolean isFieldCopierOf(Class<?> candidate, long fingerprint)
+    {
+	return FieldCopier.class.isAssignableFrom(candidate) && fingerprintOf(candidate) == fingerprint;
+    }
+    
+    /**
+     * Search a class generated ahead of time.
+     * 
+     * @param type
+     *            delegated type
+     * @param name
+     *            generated class' name
+     * @return found class or {@code null} if not found
+     */
+    private static Class<?> findPregeneratedClass(Class<?> type, String name)
+    {
+	try
+	{
+	    return Class.forName(name, false, type.getClassLoader());
+	} catch (ClassNotFoundException | LinkageError | SecurityException ex)
+	{
+	    return null;
+	}
+    }
+    
+    /**
+     * Read fingerprint stored into a generated class.
+     * 
+     * @param generated
+     *            generated class
+     * @return stored fingerprint or {@code 0} if it can't be read
+     */
+    private static long fingerprintOf(Class<?> generated)
+    {
+	try
+	{
+	    return generated.getField(FINGERPRINT_FIELD_NAME).getLong(null);
+	} catch (ReflectiveOperationException | RuntimeException ex)
+	{
+	    return 0L;
+	}
+    }
+    
+    /**
+     * Generate a new proxy class.
+     * 
+     * <p>
+     * A proxy class will intercept any invocated method and delegate it to an
+     * delegator. This delegator will be stored into future object.
+     * </p>
+     * 
+     * <p>
+     * The generated class will have a new field named {@link #EXTRA_FIELD_NAME}
+     * with a public visibility (to make the access easier). This field will store
+     * the used delegator. The generated class also implements
+     * {@link ProxiedObject} to read and write this field without any reflection.
+     * </p>
+     * 
+     * <p>
+     * If {@code intercepted} is given, only methods set into this mask are
+     * intercepted. All other methods are compiled as direct invocations on
+     * delegated object.
+     * </p>
+     * 
+     * <p>
+     * If {@code type} is an interface, generated class extends
+     * {@link java.lang.Object} and implements {@code type}. Its only constructor
+     * takes delegator to store.
+     * </p>
+     * 
+     * @param byteBuddy
+     *            ByteBuddy instance used to generate class
+     * @param type
+     *            delegated type
+     * @param name
+     *            generated class' name
+     * @param intercepted
+     *            intercepted methods' mask or {@code null} to intercept all
+     *            methods
+     * @return a proxy class which intercept methods (not loaded yet)
+     */
+    private static DynamicType.Unloaded<?> makeProxyClass(ByteBuddy byteBuddy, Class<?> type, String name,
+	    BitSet intercepted)
+    {
+	MethodTable table = MethodTable.of(type);
+	
+	// @formatter:off
+	DynamicType.Builder<?> builder;
+	if (type.isInterface())
+	{
+	    // Interface proxy: a constructor which only store delegator
+	    builder = byteBuddy
+		    .subclass(Object.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+		    .implement(type)
+		    .defineConstructor(Visibility.PUBLIC)
+		    .withParameters(Delegator.class)
+		    .intercept(MethodCall.invoke(TypeDescription.OBJECT.getDeclaredMethods()
+			    .filter(ElementMatchers.isConstructor()).getOnly())
+			    .andThen(FieldAccessor.ofField(EXTRA_FIELD_NAME).setsArgumentAt(0)));
+	} else
+	{
+	    builder = byteBuddy.subclass(type);
+	}
+	
+	// Okay, let's creating class...
+	return builder
+		// Setting class header
+		.name(name)
+		
+		// Generated code contains branches, frames must be computed
+		.visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+		
+		// Add extra-field to check if class still match delegated type
+		.defineField(FINGERPRINT_FIELD_NAME, long.class, Visibility.PUBLIC, Ownership.STATIC,
+			FieldManifestation.FINAL)
+		.value(table.getFingerprint())
+		
+		// Add extra-field to remember current delegator (public access to avoid illegal access)
+		// Warning: this field is modifiable by anybody. Asume nobody will change it
+		.defineField(EXTRA_FIELD_NAME, Delegator.class, Visibility.PUBLIC)
+		
+		// Add extra-field to store all intercepted methods
+		.defineField(METHODS_FIELD_NAME, Method[].class, Visibility.PRIVATE, Ownership.STATIC,
+			FieldManifestation.FINAL)
+		.initializer(new MethodsInitializerCode(type))
+		
+		// Add extra-field to read sampler of delegated type
+		.defineField(SAMPLING_FIELD_NAME, DelegatedMethodIntercepter.Sampling.class, Visibility.PRIVATE,
+			Ownership.STATIC, FieldManifestation.FINAL)
+		
+		// Forward public methods found into method table which aren't intercepted
+		.method((method) -> {
+		    int index = table.indexOf(method.getInternalName(), method.getDescriptor());
+		    return index >= 0 && intercepted != null && !intercepted.get(index);
+		})
+		.intercept(new Implementation.Simple(new ForwardingMethodCode(type, table)))
+		
+		// Intercept all other public methods found into method table
+		.method((method) -> {
+		    int index = table.indexOf(method.getInternalName(), method.getDescriptor());
+		    return index >= 0 && (intercepted == null || intercepted.get(index));
+		})
+		.intercept(new Implementation.Simple(new InterceptedMethodCode(table)))
+		
+		// Implement accessors to extra-field (declared after to take precedence over interception)
+		.implement(ProxiedObject.class)
+		.method(ElementMatchers.isDeclaredBy(ProxiedObject.class))
+		.intercept(FieldAccessor.ofField(EXTRA_FIELD_NAME))
+		
+		// Add utility method to bypass access to invoke method
+		// Signature: public Object _DELEGATEME_runInvoke(int, Object[]) throws Throwable
+		.method(ElementMatchers.named(METHOD_RUNNER_NAME))
+		.intercept(new Implementation.Simple(new MethodRunnerCode(type, table)))
+		
+		// Add utility method to invoke method from an invocation
+		// Signature: public void _DELEGATEME_proceed(int, Invocation) throws Throwable
+		.method(ElementMatchers.named(METHOD_PROCEED_NAME))
+		.intercept(new Implementation.Simple(new ProceedCode(type, table)))
+		
+		// And generating
+		.make();
+	// @formatter:on
+    }
+    
+    /**
+     * Generate a new fields copier class for {@code type}.
+     * 
+     * <p>
+     * Each field is read and written by an {@code invokedynamic} instruction linked
+     * by {@link FieldCopier#bootstrap}. It implements both
+     * {@link FieldCopier#copy(Object, Object)} and
+     * {@link FieldCopier#sync(Object, Object, Delegator.EqualsCompareStrategy)}.
+     * </p>
+     * 
+     * @param byteBuddy
+     *            ByteBuddy instance used to generate class
+     * @param type
+     *            type where fields are declared
+     * @param name
+     *            generated class' name
+     * @return a copier class (not loaded yet)
+     */
+    private static DynamicType.Unloaded<?> makeFieldCopier(ByteBuddy byteBuddy, Class<?> type, String name)
+    {
+	// @formatter:off
+	return byteBuddy
+		.subclass(FieldCopier.class)
+		.name(name)
+		
+		// Synchronization code contains branches, frames must be computed
+		.visit(new AsmVisitorWrapper.ForDeclaredMethods().writerFlags(ClassWriter.COMPUTE_FRAMES))
+		
+		// Add extra-field to check if class still match fields layout
+		.defineField(FINGERPRINT_FIELD_NAME, long.class, Visibility.PUBLIC, Ownership.STATIC,
+			FieldManifestation.FINAL)
+		.value(FieldLayout.of(type).getFingerprint())
+		
+		.method(ElementMatchers.named("copy"))
+		.intercept(new Implementation.Simple(new FieldCopierCode(type)))
+		.method(ElementMatchers.named("sync"))
+		.intercept(new Implementation.Simple(new FieldSyncCode(type)))
+		.make();
+	// @formatter:on
+    }
+    
+    /**
+     * Select strategy to use to load a class generated next to {@code type}.
+     * 
+     * <p>
+     * A private lookup into {@code type} is used when possible. Otherwise, class is
+     * injected with reflection.
+     * </p>
+     * 
+     * @param type
+     *            type next to generated class
+     * @return strategy to use
+     * @throws IllegalStateException
+     *             if it isn't possible to load any generated class
+     */
+    private static ClassLoadingStrategy<ClassLoader> loadingStrategyOf(Class<?> type) throws IllegalStateException
+    {
+	ClassLoadingStrategy<ClassLoader> strategy = null;
+	
+	// Checking at possibility to generate new class before doing anything
+	if (ClassInjector.UsingLookup.isAvailable())
+	{
+	    try
+	    {
+		Class<?> MethodHandles = Class.forName("java.lang.invoke.MethodHandles");
+		Class<?> MethodHandles$Lookup = Class.forName("java.lang.invoke.MethodHandles$Lookup");
+		
+		Method $privateLookupIn = MethodHandles.getMethod("privateLookupIn", Class.class, MethodHandles$Lookup);
+		Method $lookup = MethodHandles.getMethod("lookup");
+		
+		Object lookup = $lookup.invoke(null);
+		Object lookupIn = $privateLookupIn.invoke(null, type, lookup);
+		
+		strategy = ClassLoadingStrategy.UsingLookup.of(lookupIn);
+	    } catch (ReflectiveOperationException ex)
+	    {
+		// Should not happen
+		ex.printStackTrace();
+	    }
+	} else if (ClassInjector.UsingReflection.isAvailable())
+	{
+	    strategy = ClassLoadingStrategy.Default.INJECTION;
+	} else
+	{
+	    throw new IllegalStateException("not able to load any generated class");
+	}
+	
+	return strategy;
+    }
+    
+    /**
+     * Proxy factory used to warp a batch of delegators.
+     * 
+     * <p>
+     * Proxy class and its instantiator (or its constructor for interface proxies)
+     * are resolved once and reused while delegators use the same matcher. It can
+     * be used by many threads at the same time.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     * @param <Instance>
+     *            object's type to warp
+     */
+    private static final class BatchWarper<Instance> implements Function<Delegator<Instance>, Instance>
+    {
+	/**
+	 * Object's type to warp.
+	 */
+	private final Class<Instance> type;
+	
+	/**
+	 * Fields copier of {@link #type} ({@code null} for interfaces).
+	 */
+	private final FieldCopier copier;
+	
+	/**
+	 * Last resolved proxy class.
+	 */
+	private volatile ResolvedProxy resolved;
+	
+	/**
+	 * Prepare a batch.
+	 * 
+	 * @param type
+	 *            object's type to warp
+	 */
+	private BatchWarper(Class<Instance> type)
+	{
+	    this.type = type;
+	    this.copier = type.isInterface() ? null : FieldCopier.of(type);
+	}
+	
+	/**
+	 * Warp delegators from {@code start} (inclusive) to {@code end} (exclusive).
+	 * 
+	 * @param sources
+	 *            delegators to use
+	 * @param warpped
+	 *            array where warped objects are stored
+	 * @param start
+	 *            first index
+	 * @param end
+	 *            last index (excluded)
+	 */
+	private void warp(Delegator<Instance> sources[], Object warpped[], int start, int end)
+	{
+	    for (int i = start; i < end; i++)
+		warpped[i] = this.apply(sources[i]);
+	}
+	
+	@Override
+	public Instance apply(Delegator<Instance> delegator)
+	{
+	    MethodMatcher matcher = delegator.getInterceptedMethods();
+	    ResolvedProxy resolved = this.resolved;
+	    if (resolved == null || resolved.matcher != matcher)
+	    {
+		resolved = new ResolvedProxy(matcher, proxyClassOf(this.type, matcher), this.type.isInterface());
+		this.resolved = resolved;
+	    }
+	    
+	    Object warpped;
+	    if (resolved.constructor != null)
+	    {
+		try
+		{
+		    warpped = (Object) resolved.constructor.invokeExact((Delegator<?>) delegator);
+		} catch (RuntimeException | Error ex)
+		{
+		    throw ex;
+		} catch (Throwable t)
+		{
+		    // Should not happen, constructor only store delegator
+		    throw new IllegalStateException("not able to instantiate " + resolved.proxyClass, t);
+		}
+	    } else
+	    {
+		warpped = resolved.instantiator.newInstance();
+		this.copier.copy(delegator.getDelegated(), warpped);
+		((ProxiedObject) warpped)._DELEGATEME_setDelegator(delegator);
+	    }
+	    
+	    return this.type.cast(warpped);
+	}
+    }
+    
+    /**
+     * A proxy class resolved for a matcher.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class ResolvedProxy
+    {
+	/**
+	 * Matcher used to select proxy class.
+	 */
+	private final MethodMatcher matcher;
+	
+	/**
+	 * Proxy class.
+	 */
+	private final Class<?> proxyClass;
+	
+	/**
+	 * Proxy class' instantiator ({@code null} for interface proxies).
+	 */
+	private final ObjectInstantiator<?> instantiator;
+	
+	/**
+	 * Proxy class' constructor ({@code null} for class proxies).
+	 */
+	private final MethodHandle constructor;
+	
+	/**
+	 * Resolve instantiation of {@code proxyClass}.
+	 * 
+	 * @param matcher
+	 *            matcher used to select proxy class
+	 * @param proxyClass
+	 *            proxy class
+	 * @param isInterfaceProxy
+	 *            {@code true} if {@code proxyClass} is an interface proxy class
+	 */
+	private ResolvedProxy(MethodMatcher matcher, Class<?> proxyClass, boolean isInterfaceProxy)
+	{
+	    this.matcher = matcher;
+	    this.proxyClass = proxyClass;
+	    this.instantiator = isInterfaceProxy ? null : INSTANTIATORS.get(proxyClass);
+	    this.constructor = isInterfaceProxy ? CONSTRUCTORS.get(proxyClass) : null;
+	}
+    }
+    
+    /**
+     * Task warping a part of a batch.
+     * 
+     * <p>
+     * Task is split in two halves until it contains less than
+     * {@link DelegatorFactory#BATCH_SPLIT_THRESHOLD} delegators.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     * @param <Instance>
+     *            object's type to warp
+     */
+    private static final class BatchWarpTask<Instance> extends RecursiveAction
+    {
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Batch's proxy factory.
+	 */
+	private final BatchWarper<Instance> warper;
+	
+	/**
+	 * Delegators to use.
+	 */
+	private final Delegator<Instance> sources[];
+	
+	/**
+	 * Array where warped objects are stored.
+	 */
+	private final Object warpped[];
+	
+	/**
+	 * First index of this task.
+	 */
+	private final int start;
+	
+	/**
+	 * Last index of this task (excluded).
+	 */
+	private final int end;
+	
+	/**
+	 * Prepare a task.
+	 * 
+	 * @param warper
+	 *            batch's proxy factory
+	 * @param sources
+	 *            delegators to use
+	 * @param warpped
+	 *            array where warped objects are stored
+	 * @param start
+	 *            first index
+	 * @param end
+	 *            last index (excluded)
+	 */
+	private BatchWarpTask(BatchWarper<Instance> warper, Delegator<Instance> sources[], Object warpped[],
+		int start, int end)
+	{
+	    this.warper = warper;
+	    this.sources = sources;
+	    this.warpped = warpped;
+	    this.start = start;
+	    this.end = end;
+	}
+	
+	@Override
+	protected void compute()
+	{
+	    if (this.end - this.start <= BATCH_SPLIT_THRESHOLD)
+	    {
+		this.warper.warp(this.sources, this.warpped, this.start, this.end);
+		return;
+	    }
+	    
+	    int middle = (this.start + this.end) >>> 1;
+	    invokeAll(new BatchWarpTask<>(this.warper, this.sources, this.warpped, this.start, middle),
+		    new BatchWarpTask<>(this.warper, this.sources, this.warpped, middle, this.end));
+	}
+    }
+    
+    /**
+     * Key of a proxy class which only intercept some methods.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class ProxyKey
+    {
+	/**
+	 * Delegated type.
+	 */
+	private final Class<?> type;
+	
+	/**
+	 * Intercepted methods' mask.
+	 */
+	private final BitSet mask;
+	
+	/**
+	 * Build a key.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @param mask
+	 *            intercepted methods' mask
+	 */
+	private ProxyKey(Class<?> type, BitSet mask)
+	{
+	    this.type = type;
+	    this.mask = mask;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+	    if (this == obj)
+		return true;
+	    if (!(obj instanceof ProxyKey))
+		return false;
+	    
+	    ProxyKey other = (ProxyKey) obj;
+	    return this.type == other.type && this.mask.equals(other.mask);
+	}
+	
+	@Override
+	public int hashCode()
+	{
+	    return 31 * this.type.hashCode() + this.mask.hashCode();
+	}
+    }
+    
+    /**
+     * A method intercepter.
+     * 
+     * <p>
+     * This intercepter is invoked by generated proxy classes. It will invoke
+     * stored delegator with {@link Delegator#invoke(Object, Method, Object[])} or
+     * with {@link InvocationDelegator#invoke(Invocation)} if delegator handle
+     * invocations without boxing.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class DelegatedMethodIntercepter
+    {
+	/**
+	 * Arguments passed to methods without parameter.
+	 */
+	public static final Object NO_ARGUMENTS[] = new Object[0];
+	
+	/**
+	 * Invoke {@code delegator} with boxed arguments.
+	 * 
+	 * @param proxy
+	 *            proxy object
+	 * @param delegator
+	 *            stored delegator
+	 * @param index
+	 *            invoked method's index
+	 * @param method
+	 *            invoked method
+	 * @param args
+	 *            passed parameters
+	 * @return invocation return value
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static Object intercept(Object proxy, Delegator<Object> delegator, int index, Method method,
+		Object args[]) throws Throwable
+	{
+	    return delegator.invoke(proxy, index, method, args);
+	}
+	
+	/**
+	 * Getting all methods which may be intercepted by {@code type}'s proxy class.
+	 * 
+	 * <p>
+	 * Methods are sorted by their index into {@link MethodTable}.
+	 * </p>
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @return all methods which may be intercepted
+	 */
+	public static Method[] methods(Class<?> type)
+	{
+	    return MethodTable.of(type).getMethods().clone();
+	}
+	
+	/**
+	 * Getting sampler's holder of {@code type}.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @return holder shared by all proxy classes of {@code type}
+	 * @see DelegatorFactory#setSampler(Class, Sampler)
+	 */
+	public static Sampling sampling(Class<?> type)
+	{
+	    return SAMPLINGS.get(type);
+	}
+	
+	/**
+	 * Start a new invocation.
+	 * 
+	 * @param proxy
+	 *            proxy object
+	 * @param methods
+	 *            methods of proxy's class
+	 * @param index
+	 *            invoked method's index
+	 * @param argumentCount
+	 *            how many arguments are passed
+	 * @return invocation to fill
+	 * @see Invocation
+	 */
+	public static Invocation enter(ProxiedObject proxy, Method methods[], int index, int argumentCount)
+	{
+	    return Invocation.enter(proxy, methods, index, argumentCount);
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code void}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static void dispatchVoid(InvocationDelegator<?> delegator, Invocation invocation) throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code boolean}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static boolean dispatchBoolean(InvocationDelegator<?> delegator, Invocation invocation)
+		throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.booleanResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code byte}, {@code char}, {@code short} or {@code int}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static int dispatchInt(InvocationDelegator<?> delegator, Invocation invocation) throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.intResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code long}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static long dispatchLong(InvocationDelegator<?> delegator, Invocation invocation) throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.longResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code float}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static float dispatchFloat(InvocationDelegator<?> delegator, Invocation invocation) throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.floatResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * {@code double}.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static double dispatchDouble(InvocationDelegator<?> delegator, Invocation invocation)
+		throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.doubleResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Invoke {@code delegator} with {@code invocation} for a method returning
+	 * an object.
+	 * 
+	 * @param delegator
+	 *            stored delegator
+	 * @param invocation
+	 *            current invocation
+	 * @return invocation result
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public static Object dispatchObject(InvocationDelegator<?> delegator, Invocation invocation)
+		throws Throwable
+	{
+	    try
+	    {
+		delegator.invoke(invocation);
+		return invocation.objectResult();
+	    } finally
+	    {
+		invocation.exit();
+	    }
+	}
+	
+	/**
+	 * Link a dispatch from an intercepted method to its delegator.
+	 * 
+	 * <p>
+	 * This method is only used as bootstrap method by generated proxy classes.
+	 * Invokedynamic's name and type are the same as the static method of this
+	 * class it replaces ({@code intercept} or {@code dispatch<Kind>}). Bound
+	 * call site is an inline cache specialized for each delegator's class, so
+	 * the JIT can inline delegator's {@code invoke} method into proxy's method.
+	 * </p>
+	 * 
+	 * @param caller
+	 *            proxy class' lookup
+	 * @param name
+	 *            replaced method's name
+	 * @param methodType
+	 *            replaced method's type
+	 * @return call site dispatching invocations
+	 * @throws ReflectiveOperationException
+	 *             if there is no method named {@code name} of type
+	 *             {@code methodType} in this class
+	 */
+	public static CallSite dispatch(MethodHandles.Lookup caller, String name, MethodType methodType)
+		throws ReflectiveOperationException
+	{
+	    return new DispatchCallSite(caller.lookupClass(), name, methodType);
+	}
+	
+	/**
+	 * Link interception switch of a delegated type.
+	 * 
+	 * <p>
+	 * This method is only used as bootstrap method by generated proxy classes.
+	 * Bound call site returns {@code true} if invocations must be intercepted.
+	 * All call sites of a type are bound to the same switch.
+	 * </p>
+	 * 
+	 * @param caller
+	 *            proxy class' lookup
+	 * @param name
+	 *            invokedynamic's name
+	 * @param methodType
+	 *            invokedynamic's type (must be {@code ()boolean})
+	 * @param type
+	 *            delegated type
+	 * @return call site reading interception switch
+	 * @throws IllegalArgumentException
+	 *             if {@code methodType} isn't {@code ()boolean}
+	 * @see DelegatorFactory#setInterceptionEnabled(Class, boolean)
+	 */
+	public static CallSite interception(MethodHandles.Lookup caller, String name, MethodType methodType,
+		Class<?> type) throws IllegalArgumentException
+	{
+	    if (!methodType.equals(InterceptionSwitch.TYPE))
+		throw new IllegalArgumentException("excepted " + InterceptionSwitch.TYPE + " but got " + methodType);
+	    
+	    return INTERCEPTION_SWITCHES.get(type);
+	}
+	
+	/**
+	 * Holder of a delegated type's sampler.
+	 * 
+	 * <p>
+	 * Each proxy class stores holder of its delegated type into
+	 * {@link DelegatorFactory#SAMPLING_FIELD_NAME} static field, and reads its
+	 * sampler before each intercepted invocation.
+	 * </p>
+	 * 
+	 * @author DrogoniEntity
+	 */
+	public static final class Sampling
+	{
+	    /**
+	     * Current sampler ({@code null} to intercept all invocations).
+	     */
+	    private volatile Sampler sampler;
+	    
+	    Sampling()
+	    {
+	    }
+	    
+	    /**
+	     * Getting current sampler.
+	     * 
+	     * @return current sampler or {@code null} if all invocations are
+	     *         intercepted
+	     */
+	    public Sampler getSampler()
+	    {
+		return this.sampler;
+	    }
+	    
+	    /**
+	     * Setting current sampler.
+	     * 
+	     * @param sampler
+	     *            new sampler or {@code null} to intercept all invocations
+	     */
+	    void setSampler(Sampler sampler)
+	    {
+		this.sampler = sampler;
+	    }
+	}
+    }
+    
+    /**
+     * Interception switch of a delegated type.
+     * 
+     * <p>
+     * Its target always returns a constant. Switching it replaces its target and
+     * synchronizes it with all threads.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class InterceptionSwitch extends MutableCallSite
+    {
+	/**
+	 * Switch's type.
+	 */
+	static final MethodType TYPE = MethodType.methodType(boolean.class);
+	
+	/**
+	 * Current state.
+	 */
+	private volatile boolean enabled = true;
+	
+	/**
+	 * Build an enabled switch.
+	 */
+	InterceptionSwitch()
+	{
+	    super(MethodHandles.constant(boolean.class, true));
+	}
+	
+	/**
+	 * Switch interception.
+	 * 
+	 * @param enabled
+	 *            new state
+	 */
+	synchronized void setEnabled(boolean enabled)
+	{
+	    if (this.enabled == enabled)
+		return;
+	    
+	    this.setTarget(MethodHandles.constant(boolean.class, enabled));
+	    MutableCallSite.syncAll(new MutableCallSite[] { this });
+	    this.enabled = enabled;
+	}
+	
+	/**
+	 * Getting current state.
+	 * 
+	 * @return {@code true} if interception is enabled
+	 */
+	boolean isEnabled()
+	{
+	    return this.enabled;
+	}
+    }
+    
+    /**
+     * Accessors implemented by any proxy class.
+     * 
+     * <p>
+     * Each generated proxy class implements this interface with a direct access to
+     * {@link DelegatorFactory#EXTRA_FIELD_NAME} field. It allow to retrieve or to
+     * change delegator without looking up this field by reflection.
+     * </p>
+     * 
+     * <p>
+     * Methods' names are prefixed to avoid any conflict with delegated type's
+     * methods.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static interface ProxiedObject
+    {
+	/**
+	 * Getting stored delegator.
+	 * 
+	 * @return delegator stored into {@link DelegatorFactory#EXTRA_FIELD_NAME}
+	 */
+	public Delegator<?> _DELEGATEME_getDelegator();
+	
+	/**
+	 * Setting stored delegator.
+	 * 
+	 * @param delegator
+	 *            delegator to store into
+	 *            {@link DelegatorFactory#EXTRA_FIELD_NAME}
+	 */
+	public void _DELEGATEME_setDelegator(Delegator<?> delegator);
+	
+	/**
+	 * Invoke method at {@code index} on delegated object.
+	 * 
+	 * <p>
+	 * Method is directly invoked on delegated object : any exception thrown
+	 * during invocation is thrown as it is.
+	 * </p>
+	 * 
+	 * @param index
+	 *            method's index into its {@link MethodTable}
+	 * @param args
+	 *            passed parameters
+	 * @return invocation result or {@code null} if method return {@code void}
+	 *         type
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 */
+	public Object _DELEGATEME_runInvoke(int index, Object args[]) throws Throwable;
+	
+	/**
+	 * Invoke method at {@code index} on delegated object with arguments stored
+	 * into {@code invocation}.
+	 * 
+	 * <p>
+	 * Invocation's result is stored into {@code invocation}.
+	 * </p>
+	 * 
+	 * @param index
+	 *            method's index into its {@link MethodTable}
+	 * @param invocation
+	 *            current invocation
+	 * @throws Throwable
+	 *             if something went wrong during invocation process
+	 * @see Invocation#proceed()
+	 */
+	public void _DELEGATEME_proceed(int index, Invocation invocation) throws Throwable;
+    }
+    
+    /**
+     * Writing intercepted method's code.
+     * 
+     * <p>
+     * Written code will retrieve stored delegator. If this delegator is an
+     * {@link InvocationDelegator}, arguments are stored into an
+     * {@link Invocation} without boxing. Otherwise, arguments are boxed into an
+     * array and {@link Delegator#invoke(Object, Method, Object[])} is used.
+     * </p>
+     * 
+     * <p>
+     * Delegator is invoked through an {@code invokedynamic} instruction linked
+     * to an inline cache (see {@link DispatchCallSite}) instead of a static
+     * method shared by all proxy classes, so the JIT can inline delegator into
+     * each intercepted method.
+     * </p>
+     * 
+     * <p>
+     * If interception of delegated type is disabled (see
+     * {@link DelegatorFactory#setInterceptionEnabled(Class, boolean)}) or if a
+     * {@link Sampler} is set for delegated type and it doesn't select current
+     * invocation, invocation is directly forwarded to delegated object (as
+     * {@link ForwardingMethodCode} does).
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class InterceptedMethodCode implements ByteCodeAppender
+    {
+	/**
+	 * Bootstrap method linking interception switch of delegated type.
+	 */
+	private static final Handle INTERCEPTION_BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+		Bytecodes.INTERCEPTER_OWNER, "interception",
+		"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/Class;)Ljava/lang/invoke/CallSite;",
+		false);
+	
+	/**
+	 * Intercepted methods.
+	 */
+	private final MethodTable table;
+	
+	/**
+	 * Prepare intercepted method's code.
+	 * 
+	 * @param table
+	 *            intercepted methods
+	 */
+	public InterceptedMethodCode(MethodTable table)
+	{
+	    this.table = table;
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    String proxyOwner = implementationContext.getInstrumentedType().getInternalName();
+	    int index = this.table.indexOf(instrumentedMethod.getInternalName(), instrumentedMethod.getDescriptor());
+	    Type arguments[] = Type.getArgumentTypes(instrumentedMethod.getDescriptor());
+	    Type returned = Type.getReturnType(instrumentedMethod.getDescriptor());
+	    
+	    int delegatorSlot = 1;
+	    for (Type argument : arguments)
+		delegatorSlot += argument.getSize();
+	    int invocationSlot = delegatorSlot + 1;
+	    int samplerSlot = invocationSlot + 1;
+	    int delegatedSlot = samplerSlot + 1;
+	    
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * Sampler sampler;
+	     * if (!INTERCEPTING // invokedynamic bound to interception switch
+	     *         || ((sampler = SAMPLING.getSampler()) != null && !sampler.sample()))
+	     * {
+	     *     Object delegated = this.delegator.getDelegated();
+	     *     if (delegated != null) // Lazy proxies aren't materialized yet
+	     *         return ((Type) delegated).method(arg0, ...);
+	     * }
+	     * 
+	     * Delegator delegator = this.delegator;
+	     * if (delegator instanceof InvocationDelegator)
+	     * {
+	     *     Invocation invocation = DelegatedMethodIntercepter.enter(this, METHODS, index, argc);
+	     *     invocation.setIntArg(0, arg0); ...
+	     *     // invokedynamic linked to DelegatedMethodIntercepter.dispatch(...)
+	     *     return DelegatedMethodIntercepter.dispatchInt((InvocationDelegator) delegator, invocation);
+	     * }
+	     * // invokedynamic linked to DelegatedMethodIntercepter.dispatch(...)
+	     * return (Integer) DelegatedMethodIntercepter.intercept(this, delegator, index, METHODS[index],
+	     *         new Object[] { arg0, ... });
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    // Interception switch (constant for the JIT until it's switched)
+	    Label intercepted = new Label();
+	    Label forwarded = new Label();
+	    methodVisitor.visitInvokeDynamicInsn("intercepting", "()Z", INTERCEPTION_BOOTSTRAP,
+		    Type.getType(this.table.getType()));
+	    methodVisitor.visitJumpInsn(Opcodes.IFEQ, forwarded);
+	    
+	    // Sampling
+	    methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, proxyOwner, SAMPLING_FIELD_NAME,
+		    Bytecodes.SAMPLING_DESCRIPTOR);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.SAMPLING_OWNER, "getSampler",
+		    "()L" + Bytecodes.SAMPLER_OWNER + ";", false);
+	    methodVisitor.visitVarInsn(Opcodes.ASTORE, samplerSlot);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, samplerSlot);
+	    methodVisitor.visitJumpInsn(Opcodes.IFNULL, intercepted);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, samplerSlot);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.SAMPLER_OWNER, "sample", "()Z", false);
+	    methodVisitor.visitJumpInsn(Opcodes.IFNE, intercepted);
+	    
+	    // Direct invocation
+	    methodVisitor.visitLabel(forwarded);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, proxyOwner, EXTRA_FIELD_NAME,
+		    Bytecodes.DELEGATOR_DESCRIPTOR);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.DELEGATOR_OWNER, "getDelegated",
+		    "()Ljava/lang/Object;", false);
+	    methodVisitor.visitVarInsn(Opcodes.ASTORE, delegatedSlot);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, delegatedSlot);
+	    methodVisitor.visitJumpInsn(Opcodes.IFNULL, intercepted);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, delegatedSlot);
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(this.table.getType()));
+	    int slot = Bytecodes.loadArguments(methodVisitor, arguments, 1);
+	    Bytecodes.invokeMethod(methodVisitor, this.table.getType(), this.table.getMethod(index));
+	    Bytecodes.returnValue(methodVisitor, returned);
+	    
+	    // Interception
+	    methodVisitor.visitLabel(intercepted);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, proxyOwner, EXTRA_FIELD_NAME,
+		    Bytecodes.DELEGATOR_DESCRIPTOR);
+	    methodVisitor.visitVarInsn(Opcodes.ASTORE, delegatorSlot);
+	    
+	    // Invocation without boxing
+	    Label boxedInvocation = new Label();
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, delegatorSlot);
+	    methodVisitor.visitTypeInsn(Opcodes.INSTANCEOF, Bytecodes.INVOCATION_DELEGATOR_OWNER);
+	    methodVisitor.visitJumpInsn(Opcodes.IFEQ, boxedInvocation);
+	    
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, proxyOwner, METHODS_FIELD_NAME,
+		    "[Ljava/lang/reflect/Method;");
+	    Bytecodes.pushInt(methodVisitor, index);
+	    Bytecodes.pushInt(methodVisitor, arguments.length);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Bytecodes.INTERCEPTER_OWNER, "enter", "(L"
+		    + Bytecodes.PROXIED_OBJECT_OWNER + ";[Ljava/lang/reflect/Method;II)" + Bytecodes.INVOCATION_DESCRIPTOR,
+		    false);
+	    methodVisitor.visitVarInsn(Opcodes.ASTORE, invocationSlot);
+	    
+	    slot = 1;
+	    for (int i = 0; i < arguments.length; i++)
+	    {
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, invocationSlot);
+		Bytecodes.pushInt(methodVisitor, i);
+		methodVisitor.visitVarInsn(arguments[i].getOpcode(Opcodes.ILOAD), slot);
+		Bytecodes.invokeInvocationSetter(methodVisitor, "Arg", arguments[i], true);
+		slot += arguments[i].getSize();
+	    }
+	    
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, delegatorSlot);
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Bytecodes.INVOCATION_DELEGATOR_OWNER);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, invocationSlot);
+	    Bytecodes.invokeDispatch(methodVisitor, returned);
+	    Bytecodes.returnValue(methodVisitor, returned);
+	    
+	    // Invocation with boxed arguments
+	    methodVisitor.visitLabel(boxedInvocation);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, delegatorSlot);
+	    Bytecodes.pushInt(methodVisitor, index);
+	    methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, proxyOwner, METHODS_FIELD_NAME,
+		    "[Ljava/lang/reflect/Method;");
+	    Bytecodes.pushInt(methodVisitor, index);
+	    methodVisitor.visitInsn(Opcodes.AALOAD);
+	    Bytecodes.boxArguments(methodVisitor, arguments, 1);
+	    methodVisitor.visitInvokeDynamicInsn("intercept", "(Ljava/lang/Object;" + Bytecodes.DELEGATOR_DESCRIPTOR
+		    + "ILjava/lang/reflect/Method;[Ljava/lang/Object;)Ljava/lang/Object;", Bytecodes.DISPATCH_BOOTSTRAP);
+	    if (returned.getSort() == Type.VOID)
+		methodVisitor.visitInsn(Opcodes.POP);
+	    else
+		Bytecodes.unbox(methodVisitor, returned);
+	    Bytecodes.returnValue(methodVisitor, returned);
+	    
+	    return new ByteCodeAppender.Size(Math.max(9, slot), delegatedSlot + 1);
+	}
+    }
+    
+    /**
+     * Writing forwarded method's code.
+     * 
+     * <p>
+     * Written code will directly invoke the same method on delegated object,
+     * without calling stored delegator.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class ForwardingMethodCode implements ByteCodeAppender
+    {
+	/**
+	 * Delegated type.
+	 */
+	private final Class<?> type;
+	
+	/**
+	 * Proxied methods.
+	 */
+	private final MethodTable table;
+	
+	/**
+	 * Prepare forwarded method's code.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @param table
+	 *            proxied methods
+	 */
+	public ForwardingMethodCode(Class<?> type, MethodTable table)
+	{
+	    this.type = type;
+	    this.table = table;
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    String proxyOwner = implementationContext.getInstrumentedType().getInternalName();
+	    int index = this.table.indexOf(instrumentedMethod.getInternalName(), instrumentedMethod.getDescriptor());
+	    Type arguments[] = Type.getArgumentTypes(instrumentedMethod.getDescriptor());
+	    Type returned = Type.getReturnType(instrumentedMethod.getDescriptor());
+	    
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * return ((Type) this.delegator.getDelegated()).method(arg0, ...);
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, proxyOwner, EXTRA_FIELD_NAME,
+		    Bytecodes.DELEGATOR_DESCRIPTOR);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.DELEGATOR_OWNER, "getDelegated",
+		    "()Ljava/lang/Object;", false);
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(this.type));
+	    int slot = Bytecodes.loadArguments(methodVisitor, arguments, 1);
+	    Bytecodes.invokeMethod(methodVisitor, this.type, this.table.getMethod(index));
+	    Bytecodes.returnValue(methodVisitor, returned);
+	    
+	    return new ByteCodeAppender.Size(Math.max(slot, returned.getSize()), slot);
+	}
+    }
+    
+    /**
+     * Writing static initializer's code.
+     * 
+     * <p>
+     * Written code will store all intercepted methods into
+     * {@link DelegatorFactory#METHODS_FIELD_NAME} static field.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class MethodsInitializerCode implements ByteCodeAppender
+    {
+	/**
+	 * Delegated type.
+	 */
+	private final Class<?> type;
+	
+	/**
+	 * Prepare static initializer's code.
+	 * 
+	 * @param type
+	 *            delegated type
+	 */
+	public MethodsInitializerCode(Class<?> type)
+	{
+	    this.type = type;
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * METHODS = DelegatedMethodIntercepter.methods(Type.class);
+	     * SAMPLING = DelegatedMethodIntercepter.sampling(Type.class);
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    String proxyOwner = implementationContext.getInstrumentedType().getInternalName();
+	    methodVisitor.visitLdcInsn(Type.getType(this.type));
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Bytecodes.INTERCEPTER_OWNER, "methods",
+		    "(Ljava/lang/Class;)[Ljava/lang/reflect/Method;", false);
+	    methodVisitor.visitFieldInsn(Opcodes.PUTSTATIC, proxyOwner, METHODS_FIELD_NAME,
+		    "[Ljava/lang/reflect/Method;");
+	    
+	    methodVisitor.visitLdcInsn(Type.getType(this.type));
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, Bytecodes.INTERCEPTER_OWNER, "sampling",
+		    "(Ljava/lang/Class;)" + Bytecodes.SAMPLING_DESCRIPTOR, false);
+	    methodVisitor.visitFieldInsn(Opcodes.PUTSTATIC, proxyOwner, SAMPLING_FIELD_NAME,
+		    Bytecodes.SAMPLING_DESCRIPTOR);
+	    
+	    return new ByteCodeAppender.Size(1, 0);
+	}
+    }
+    
+    /**
+     * Writing {@link FieldCopier#copy(Object, Object)} of a generated copier
+     * class.
+     * 
+     * <p>
+     * Written code will read each field of source object and write it into
+     * destination object. Each access is done by an {@code invokedynamic}
+     * instruction linked to field's getter or setter, with field's type as value
+     * type (references are passed as {@link java.lang.Object}).
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class FieldCopierCode implements ByteCodeAppender
+    {
+	/**
+	 * Bootstrap method used to link field accesses.
+	 */
+	private static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC, Bytecodes.FIELD_COPIER_OWNER,
+		"bootstrap",
+		"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/Class;I)Ljava/lang/invoke/CallSite;",
+		false);
+	
+	/**
+	 * Type where fields are declared.
+	 */
+	protected final Class<?> type;
+	
+	/**
+	 * Fields layout to copy.
+	 */
+	protected final FieldLayout layout;
+	
+	/**
+	 * Prepare copier's code.
+	 * 
+	 * @param type
+	 *            type where fields are declared
+	 */
+	public FieldCopierCode(Class<?> type)
+	{
+	    this.type = type;
+	    this.layout = FieldLayout.of(type);
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code (for each field) :
+	     * 
+	     * dest.field = src.field;
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    for (int i = 0; i < this.layout.size(); i++)
+	    {
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+		this.getField(methodVisitor, i);
+		this.setField(methodVisitor, i);
+	    }
+	    methodVisitor.visitInsn(Opcodes.RETURN);
+	    
+	    return new ByteCodeAppender.Size(3, instrumentedMethod.getStackSize());
+	}
+	
+	/**
+	 * Getting type used to pass value of field at {@code index}.
+	 * 
+	 * @param index
+	 *            field's index
+	 * @return field's type if it's a primitive type, {@link java.lang.Object}
+	 *         otherwise
+	 */
+	protected Type valueType(int index)
+	{
+	    Class<?> fieldType = this.layout.getField(index).getType();
+	    return fieldType.isPrimitive() ? Type.getType(fieldType) : Type.getType(Object.class);
+	}
+	
+	/**
+	 * Read field at {@code index} from object on top of stack.
+	 * 
+	 * @param methodVisitor
+	 *            method's writer
+	 * @param index
+	 *            field's index
+	 */
+	protected void getField(MethodVisitor methodVisitor, int index)
+	{
+	    methodVisitor.visitInvokeDynamicInsn("get",
+		    Type.getMethodDescriptor(this.valueType(index), Type.getType(Object.class)), BOOTSTRAP,
+		    Type.getType(this.type), index);
+	}
+	
+	/**
+	 * Write field at {@code index} with object and value on top of stack.
+	 * 
+	 * @param methodVisitor
+	 *            method's writer
+	 * @param index
+	 *            field's index
+	 */
+	protected void setField(MethodVisitor methodVisitor, int index)
+	{
+	    methodVisitor.visitInvokeDynamicInsn("set",
+		    Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Object.class), this.valueType(index)),
+		    BOOTSTRAP, Type.getType(this.type), index);
+	}
+    }
+    
+    /**
+     * Writing
+     * {@link FieldCopier#sync(Object, Object, Delegator.EqualsCompareStrategy)} of
+     * a generated copier class.
+     * 
+     * <p>
+     * Written code will compare each field of source object with the same field
+     * of destination object and copy it only if values are different. Primitive
+     * values are directly compared (floating values by their raw bits) and
+     * reference values are compared with given strategy. Changed fields' mask is
+     * returned.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class FieldSyncCode extends FieldCopierCode
+    {
+	/**
+	 * Local variable where changed fields' mask is stored.
+	 */
+	private static final int MASK_SLOT = 4;
+	
+	/**
+	 * Local variable where source's field value is stored.
+	 */
+	private static final int VALUE_SLOT = 6;
+	
+	/**
+	 * Prepare synchronization's code.
+	 * 
+	 * @param type
+	 *            type where fields are declared
+	 */
+	public FieldSyncCode(Class<?> type)
+	{
+	    super(type);
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * long mask = 0L;
+	     * 
+	     * // For each primitive field :
+	     * value = src.field;
+	     * if (value != dest.field)
+	     * {
+	     *     dest.field = value;
+	     *     mask |= FieldCopier.maskOf(index);
+	     * }
+	     * 
+	     * // For each reference field :
+	     * value = src.field;
+	     * if (!strategy.equals(value, dest.field))
+	     * {
+	     *     dest.field = value;
+	     *     mask |= FieldCopier.maskOf(index);
+	     * }
+	     * 
+	     * return mask;
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    methodVisitor.visitInsn(Opcodes.LCONST_0);
+	    methodVisitor.visitVarInsn(Opcodes.LSTORE, MASK_SLOT);
+	    
+	    for (int i = 0; i < this.layout.size(); i++)
+	    {
+		Type valueType = this.valueType(i);
+		Label unchanged = new Label();
+		
+		// Reading source's value
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 1);
+		this.getField(methodVisitor, i);
+		methodVisitor.visitVarInsn(valueType.getOpcode(Opcodes.ISTORE), VALUE_SLOT);
+		
+		// Comparing with destination's value
+		if (valueType.getSort() == Type.OBJECT)
+		{
+		    methodVisitor.visitVarInsn(Opcodes.ALOAD, 3);
+		    methodVisitor.visitVarInsn(Opcodes.ALOAD, VALUE_SLOT);
+		    methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		    this.getField(methodVisitor, i);
+		    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.EQUALS_STRATEGY_OWNER, "equals",
+			    "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+		    methodVisitor.visitJumpInsn(Opcodes.IFNE, unchanged);
+		} else
+		{
+		    methodVisitor.visitVarInsn(valueType.getOpcode(Opcodes.ILOAD), VALUE_SLOT);
+		    this.rawBits(methodVisitor, valueType);
+		    methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		    this.getField(methodVisitor, i);
+		    this.rawBits(methodVisitor, valueType);
+		    if (valueType.getSize() == 2)
+		    {
+			methodVisitor.visitInsn(Opcodes.LCMP);
+			methodVisitor.visitJumpInsn(Opcodes.IFEQ, unchanged);
+		    } else
+		    {
+			methodVisitor.visitJumpInsn(Opcodes.IF_ICMPEQ, unchanged);
+		    }
+		}
+		
+		// Copying value and updating mask
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		methodVisitor.visitVarInsn(valueType.getOpcode(Opcodes.ILOAD), VALUE_SLOT);
+		this.setField(methodVisitor, i);
+		methodVisitor.visitVarInsn(Opcodes.LLOAD, MASK_SLOT);
+		methodVisitor.visitLdcInsn(FieldCopier.maskOf(i));
+		methodVisitor.visitInsn(Opcodes.LOR);
+		methodVisitor.visitVarInsn(Opcodes.LSTORE, MASK_SLOT);
+		
+		methodVisitor.visitLabel(unchanged);
+	    }
+	    
+	    methodVisitor.visitVarInsn(Opcodes.LLOAD, MASK_SLOT);
+	    methodVisitor.visitInsn(Opcodes.LRETURN);
+	    
+	    return new ByteCodeAppender.Size(4, VALUE_SLOT + 2);
+	}
+	
+	/**
+	 * Convert floating value on top of stack to its raw bits.
+	 * 
+	 * <p>
+	 * Nothing is done for other types.
+	 * </p>
+	 * 
+	 * @param methodVisitor
+	 *            method's writer
+	 * @param valueType
+	 *            value's type
+	 */
+	private void rawBits(MethodVisitor methodVisitor, Type valueType)
+	{
+	    if (valueType.getSort() == Type.FLOAT)
+		methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Float", "floatToRawIntBits", "(F)I",
+			false);
+	    else if (valueType.getSort() == Type.DOUBLE)
+		methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits",
+			"(D)J", false);
+	}
+    }
+    
+    /**
+     * Writing a method which select a method to invoke from its index.
+     * 
+     * <p>
+     * Written code will retrieve delegated object and it will select method to
+     * invoke from first parameter (an {@code int}) with a {@code tableswitch}.
+     * Each case is written by {@link #writeCase(MethodVisitor, Method)}. Any
+     * unknown index will throw an {@link IllegalArgumentException}.
+     * </p>
+     * 
+     * <p>
+     * When a case is written, delegated object is stored into the third local
+     * variable.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static abstract class MethodSwitchCode implements ByteCodeAppender
+    {
+	/**
+	 * Local variable's slot where delegated object is stored.
+	 */
+	protected static final int DELEGATED_SLOT = 3;
+	
+	/**
+	 * Delegated type.
+	 */
+	protected final Class<?> type;
+	
+	/**
+	 * Methods to be invoked.
+	 */
+	protected final MethodTable table;
+	
+	/**
+	 * Prepare method's code.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @param table
+	 *            methods to be invoked
+	 */
+	protected MethodSwitchCode(Class<?> type, MethodTable table)
+	{
+	    this.type = type;
+	    this.table = table;
+	}
+	
+	@Override
+	public ByteCodeAppender.Size apply(MethodVisitor methodVisitor, Context implementationContext,
+		MethodDescription instrumentedMethod)
+	{
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+	    methodVisitor.visitFieldInsn(Opcodes.GETFIELD, implementationContext.getInstrumentedType().getInternalName(),
+		    EXTRA_FIELD_NAME, Bytecodes.DELEGATOR_DESCRIPTOR);
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Bytecodes.DELEGATOR_OWNER, "getDelegated",
+		    "()Ljava/lang/Object;", false);
+	    methodVisitor.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(this.type));
+	    methodVisitor.visitVarInsn(Opcodes.ASTORE, DELEGATED_SLOT);
+	    
+	    Label defaultCase = new Label();
+	    Label cases[] = new Label[this.table.size()];
+	    for (int i = 0; i < cases.length; i++)
+		cases[i] = new Label();
+	    
+	    if (cases.length > 0)
+	    {
+		methodVisitor.visitVarInsn(Opcodes.ILOAD, 1);
+		methodVisitor.visitTableSwitchInsn(0, cases.length - 1, defaultCase, cases);
+	    }
+	    
+	    for (int i = 0; i < cases.length; i++)
+	    {
+		methodVisitor.visitLabel(cases[i]);
+		this.writeCase(methodVisitor, this.table.getMethod(i));
+	    }
+	    
+	    // Unknown index
+	    methodVisitor.visitLabel(defaultCase);
+	    methodVisitor.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+	    methodVisitor.visitInsn(Opcodes.DUP);
+	    methodVisitor.visitLdcInsn("unknown method index");
+	    methodVisitor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>",
+		    "(Ljava/lang/String;)V", false);
+	    methodVisitor.visitInsn(Opcodes.ATHROW);
+	    
+	    return new ByteCodeAppender.Size(8, DELEGATED_SLOT + 1);
+	}
+	
+	/**
+	 * Write code invoking {@code method} on delegated object.
+	 * 
+	 * <p>
+	 * Written code must return from current method.
+	 * </p>
+	 * 
+	 * @param methodVisitor
+	 *            method's writer
+	 * @param method
+	 *            method to invoke
+	 */
+	protected abstract void writeCase(MethodVisitor methodVisitor, Method method);
+    }
+    
+    /**
+     * Writing method invoker's code.
+     * 
+     * <p>
+     * This method allow to bypass method visibility to be sure we can execute-it
+     * without accessibility issue (like "couldn't invoke method from private class
+     * in out-of-scope method).
+     * </p>
+     * 
+     * <p>
+     * Written method will select the method to invoke from its index into
+     * {@link MethodTable} and it will invoke it directly on delegated object (no
+     * reflection is used). Any exception thrown by invoked method isn't wrapped.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class MethodRunnerCode extends MethodSwitchCode
+    {
+	/**
+	 * Prepare method invoker's code.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @param table
+	 *            methods to be invoked
+	 */
+	public MethodRunnerCode(Class<?> type, MethodTable table)
+	{
+	    super(type, table);
+	}
+	
+	@Override
+	protected void writeCase(MethodVisitor methodVisitor, Method method)
+	{
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * case index:
+	     *     return delegated.method((Arg0) args[0], ...);
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    Type arguments[] = Type.getArgumentTypes(method);
+	    Type returned = Type.getReturnType(method);
+	    
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, DELEGATED_SLOT);
+	    for (int arg = 0; arg < arguments.length; arg++)
+	    {
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		Bytecodes.pushInt(methodVisitor, arg);
+		methodVisitor.visitInsn(Opcodes.AALOAD);
+		Bytecodes.unbox(methodVisitor, arguments[arg]);
+	    }
+	    
+	    Bytecodes.invokeMethod(methodVisitor, this.type, method);
+	    if (returned.getSort() == Type.VOID)
+		methodVisitor.visitInsn(Opcodes.ACONST_NULL);
+	    else
+		Bytecodes.box(methodVisitor, returned);
+	    methodVisitor.visitInsn(Opcodes.ARETURN);
+	}
+    }
+    
+    /**
+     * Writing invocation's proceed code.
+     * 
+     * <p>
+     * Written method will select the method to invoke from its index, read its
+     * arguments from an {@link Invocation} with typed getters and store its
+     * result into this invocation. No value is boxed.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static class ProceedCode extends MethodSwitchCode
+    {
+	/**
+	 * Prepare invocation's proceed code.
+	 * 
+	 * @param type
+	 *            delegated type
+	 * @param table
+	 *            methods to be invoked
+	 */
+	public ProceedCode(Class<?> type, MethodTable table)
+	{
+	    super(type, table);
+	}
+	
+	@Override
+	protected void writeCase(MethodVisitor methodVisitor, Method method)
+	{
+	    /* @formatter:off
+	     * -----------------------------------
+	     * // Java Code :
+	     * 
+	     * case index:
+	     *     invocation.setIntResult(delegated.method(invocation.intArg(0), ...));
+	     *     return;
+	     * -----------------------------------
+	     * @formatter:on*/
+	    
+	    Type arguments[] = Type.getArgumentTypes(method);
+	    Type returned = Type.getReturnType(method);
+	    
+	    if (returned.getSort() != Type.VOID)
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+	    methodVisitor.visitVarInsn(Opcodes.ALOAD, DELEGATED_SLOT);
+	    for (int arg = 0; arg < arguments.length; arg++)
+	    {
+		methodVisitor.visitVarInsn(Opcodes.ALOAD, 2);
+		Bytecodes.pushInt(methodVisitor, arg);
+		Bytecodes.invokeInvocationGetter(methodVisitor, arguments[arg]);
+	    }
+	    
+	    Bytecodes.invokeMethod(methodVisitor, this.type, method);
+	    if (returned.getSort() != Type.VOID)
+		Bytecodes.invokeInvocationSetter(methodVisitor, "Result", returned, false);
+	    methodVisitor.visitInsn(Opcodes.RETURN);
+	}
     }
 }
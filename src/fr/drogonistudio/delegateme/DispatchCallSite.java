@@ -0,0 +1,422 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * A call site dispatching intercepted invocations to delegators.
+ * 
+ * <p>
+ * Each intercepted method of a proxy class owns its call sites (linked by
+ * {@link DelegatorFactory.DelegatedMethodIntercepter#dispatch(MethodHandles.Lookup, String, MethodType)}).
+ * A call site is an inline cache : for each delegator's class reaching it, a
+ * target guarded by this class is linked, where delegator's {@code invoke}
+ * method is invoked on a receiver of this exact class. While a call site stays
+ * monomorphic (or only sees a few classes), the JIT inlines delegator's
+ * {@code invoke} method into proxy's method instead of going through a shared
+ * static method whose profile is polluted by all delegators.
+ * </p>
+ * 
+ * <p>
+ * Once more than {@value #MAX_LINKED_CLASSES} classes reached a call site, it
+ * becomes megamorphic and it's linked to static method of
+ * {@link DelegatorFactory.DelegatedMethodIntercepter} with the same name.
+ * </p>
+ * 
+ * <p>
+ * Linked classes are kept by call site as long as its proxy class. So only
+ * delegator's classes visible from proxy class' loader (defined by this loader
+ * or one of its parents) are linked : a delegator's class of another loader
+ * (a plugin for example) would keep its loader alive as long as delegated type.
+ * Such classes are dispatched through the same static method as a megamorphic
+ * call site, and no class is linked after them.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+final class DispatchCallSite extends MutableCallSite
+{
+    
+    /**
+     * Maximum count of delegator's classes linked before considering a call site
+     * as megamorphic.
+     */
+    static final int MAX_LINKED_CLASSES = 4;
+    
+    /**
+     * Name of call sites handling boxed arguments.
+     */
+    private static final String INTERCEPT = "intercept";
+    
+    /**
+     * Lookup used to find linked methods.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    /**
+     * {@link #relink(Object[])}.
+     */
+    private static final MethodHandle RELINK;
+    
+    /**
+     * {@link #isInstanceOf(Class, Object)}.
+     */
+    private static final MethodHandle IS_INSTANCE_OF;
+    
+    /**
+     * {@link #failed(Throwable, InvocationDelegator, Invocation)}.
+     */
+    private static final MethodHandle FAILED;
+    
+    /**
+     * {@link Delegator#invoke(Object, int, Method, Object[])}.
+     */
+    private static final MethodHandle INVOKE;
+    
+    /**
+     * {@link InvocationDelegator#invoke(Invocation)}.
+     */
+    private static final MethodHandle INVOKE_INVOCATION;
+    
+    static
+    {
+	try
+	{
+	    RELINK = LOOKUP.findVirtual(DispatchCallSite.class, "relink",
+		    MethodType.methodType(Object.class, Object[].class));
+	    IS_INSTANCE_OF = LOOKUP.findStatic(DispatchCallSite.class, "isInstanceOf",
+		    MethodType.methodType(boolean.class, Class.class, Object.class));
+	    FAILED = LOOKUP.findStatic(DispatchCallSite.class, "failed",
+		    MethodType.methodType(void.class, Throwable.class, InvocationDelegator.class, Invocation.class));
+	    INVOKE = LOOKUP.findVirtual(Delegator.class, "invoke",
+		    MethodType.methodType(Object.class, Object.class, int.class, Method.class, Object[].class));
+	    INVOKE_INVOCATION = LOOKUP.findVirtual(InvocationDelegator.class, "invoke",
+		    MethodType.methodType(void.class, Invocation.class));
+	} catch (ReflectiveOperationException ex)
+	{
+	    throw new ExceptionInInitializerError(ex);
+	}
+    }
+    
+    /**
+     * Call site's name ({@code intercept} or {@code dispatch<Kind>}).
+     */
+    private final String name;
+    
+    /**
+     * Target used once call site is megamorphic.
+     */
+    private final MethodHandle generic;
+    
+    /**
+     * Target used when no linked class matches delegator.
+     */
+    private final MethodHandle fallback;
+    
+    /**
+     * Class loader of call site's proxy class.
+     */
+    private final ClassLoader loader;
+    
+    /**
+     * Delegator's classes linked so far.
+     */
+    private Class<?> linkedClasses[] = new Class<?>[0];
+    
+    /**
+     * {@code true} once a delegator's class not visible from {@link #loader}
+     * reached call site.
+     */
+    private boolean foreignClassSeen = false;
+    
+    /**
+     * Build an unlinked call site.
+     * 
+     * @param proxyClass
+     *            proxy class owning call site
+     * @param name
+     *            call site's name ({@code intercept} or {@code dispatch<Kind>})
+     * @param type
+     *            call site's type (the same as the static method of
+     *            {@link DelegatorFactory.DelegatedMethodIntercepter} named
+     *            {@code name})
+     * @throws ReflectiveOperationException
+     *             if there is no static method matching {@code name} and
+     *             {@code type}
+     */
+    DispatchCallSite(Class<?> proxyClass, String name, MethodType type) throws ReflectiveOperationException
+    {
+	super(type);
+	this.loader = proxyClass.getClassLoader();
+	this.name = name;
+	this.generic = LOOKUP.findStatic(DelegatorFactory.DelegatedMethodIntercepter.class, name, type);
+	this.fallback = RELINK.bindTo(this).asCollector(Object[].class, type.parameterCount()).asType(type);
+	this.setTarget(this.fallback);
+    }
+    
+    /**
+     * Link delegator's class of current invocation, then invoke it.
+     * 
+     * @param args
+     *            call site's arguments
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     */
+    private Object relink(Object args[]) throws Throwable
+    {
+	boolean boxed = INTERCEPT.equals(this.name);
+	Class<?> delegatorClass = args[boxed ? 1 : 0].getClass();
+	
+	MethodHandle linked;
+	synchronized (this)
+	{
+	    if (Arrays.asList(this.linkedClasses).contains(delegatorClass))
+	    {
+		// Linked by another thread meanwhile
+		linked = this.specialize(delegatorClass, boxed);
+	    } else if (this.linkedClasses.length >= MAX_LINKED_CLASSES)
+	    {
+		linked = this.generic;
+		this.setTarget(this.generic);
+	    } else if (this.foreignClassSeen || !this.isVisible(delegatorClass))
+	    {
+		// Already linked classes are kept, others go straight to generic target
+		linked = this.generic;
+		if (!this.foreignClassSeen)
+		{
+		    this.foreignClassSeen = true;
+		    MethodHandle target = this.generic;
+		    for (Class<?> linkedClass : this.linkedClasses)
+			target = this.guard(linkedClass, this.specialize(linkedClass, boxed), target, boxed);
+		    this.setTarget(target);
+		}
+	    } else
+	    {
+		linked = this.specialize(delegatorClass, boxed);
+		
+		// Delegator's class is tested before previously linked classes
+		this.setTarget(this.guard(delegatorClass, linked, this.getTarget(), boxed));
+		
+		this.linkedClasses = Arrays.copyOf(this.linkedClasses, this.linkedClasses.length + 1);
+		this.linkedClasses[this.linkedClasses.length - 1] = delegatorClass;
+	    }
+	}
+	
+	return linked.invokeWithArguments(args);
+    }
+    
+    /**
+     * Checking if {@code delegatorClass} is visible from {@link #loader}.
+     * 
+     * @param delegatorClass
+     *            delegator's exact class
+     * @return {@code true} if {@code delegatorClass} is defined by
+     *         {@link #loader} or one of its parents
+     */
+    private boolean isVisible(Class<?> delegatorClass)
+    {
+	ClassLoader delegatorLoader = delegatorClass.getClassLoader();
+	if (delegatorLoader == null)
+	    return true;
+	
+	for (ClassLoader current = this.loader; current != null; current = current.getParent())
+	{
+	    if (current == delegatorLoader)
+		return true;
+	}
+	
+	return false;
+    }
+    
+    /**
+     * Guard {@code linked} with a test of delegator's class.
+     * 
+     * @param delegatorClass
+     *            delegator's exact class
+     * @param linked
+     *            target invoking delegators of {@code delegatorClass}
+     * @param otherwise
+     *            target used for other delegators
+     * @param boxed
+     *            {@code true} if call site handles boxed arguments
+     * @return guarded target
+     */
+    private MethodHandle guard(Class<?> delegatorClass, MethodHandle linked, MethodHandle otherwise, boolean boxed)
+    {
+	MethodHandle test = IS_INSTANCE_OF.bindTo(delegatorClass)
+		.asType(MethodType.methodType(boolean.class, this.type().parameterType(boxed ? 1 : 0)));
+	if (boxed)
+	    test = MethodHandles.dropArguments(test, 0, this.type().parameterType(0));
+	return MethodHandles.guardWithTest(test, linked, otherwise);
+    }
+    
+    /**
+     * Build a target invoking delegators of {@code delegatorClass}.
+     * 
+     * @param delegatorClass
+     *            delegator's exact class
+     * @param boxed
+     *            {@code true} if call site handles boxed arguments
+     * @return target matching call site's type
+     * @throws ReflectiveOperationException
+     *             if result's getter can't be found
+     */
+    private MethodHandle specialize(Class<?> delegatorClass, boolean boxed) throws ReflectiveOperationException
+    {
+	MethodType type = this.type();
+	if (boxed)
+	{
+	    // (Delegator, Object, int, Method, Object[]) -> (Object, Delegator, int, Method, Object[])
+	    MethodHandle invoke = INVOKE.asType(INVOKE.type().changeParameterType(0, delegatorClass));
+	    MethodType permuted = type.changeParameterType(1, delegatorClass);
+	    return MethodHandles.permuteArguments(invoke, permuted, 1, 0, 2, 3, 4).asType(type);
+	}
+	
+	// invocation.exit() is called even if delegator threw something
+	MethodHandle invoke = INVOKE_INVOCATION
+		.asType(INVOKE_INVOCATION.type().changeParameterType(0, delegatorClass))
+		.asType(INVOKE_INVOCATION.type());
+	invoke = MethodHandles.catchException(invoke, Throwable.class, FAILED);
+	
+	String kind = this.name.substring("dispatch".length());
+	MethodHandle finish = LOOKUP.findStatic(DispatchCallSite.class, "finish" + kind,
+		MethodType.methodType(type.returnType(), Invocation.class));
+	finish = MethodHandles.dropArguments(finish, 0, InvocationDelegator.class);
+	return MethodHandles.foldArguments(finish, invoke).asType(type);
+    }
+    
+    /**
+     * Checking if {@code object}'s class is exactly {@code type}.
+     * 
+     * @param type
+     *            linked class
+     * @param object
+     *            delegator
+     * @return {@code true} if {@code object} is an instance of {@code type} (and
+     *         not of a subclass)
+     */
+    private static boolean isInstanceOf(Class<?> type, Object object)
+    {
+	return object.getClass() == type;
+    }
+    
+    /**
+     * End {@code invocation} after delegator threw {@code thrown}.
+     * 
+     * @param thrown
+     *            thrown exception
+     * @param delegator
+     *            invoked delegator
+     * @param invocation
+     *            current invocation
+     * @throws Throwable
+     *             always {@code thrown}
+     */
+    private static void failed(Throwable thrown, InvocationDelegator<?> delegator, Invocation invocation)
+	    throws Throwable
+    {
+	invocation.exit();
+	throw thrown;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code void}.
+     * 
+     * @param invocation
+     *            current invocation
+     */
+    private static void finishVoid(Invocation invocation)
+    {
+	invocation.exit();
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code boolean}.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static boolean finishBoolean(Invocation invocation)
+    {
+	boolean result = invocation.booleanResult();
+	invocation.exit();
+	return result;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code byte}, {@code char},
+     * {@code short} or {@code int}.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static int finishInt(Invocation invocation)
+    {
+	int result = invocation.intResult();
+	invocation.exit();
+	return result;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code long}.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static long finishLong(Invocation invocation)
+    {
+	long result = invocation.longResult();
+	invocation.exit();
+	return result;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code float}.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static float finishFloat(Invocation invocation)
+    {
+	float result = invocation.floatResult();
+	invocation.exit();
+	return result;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning {@code double}.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static double finishDouble(Invocation invocation)
+    {
+	double result = invocation.doubleResult();
+	invocation.exit();
+	return result;
+    }
+    
+    /**
+     * End {@code invocation} of a method returning an object.
+     * 
+     * @param invocation
+     *            current invocation
+     * @return invocation result
+     */
+    private static Object finishObject(Invocation invocation)
+    {
+	Object result = invocation.objectResult();
+	invocation.exit();
+	return result;
+    }
+}
@@ -0,0 +1,465 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Fields copier of a delegated type.
+ * 
+ * <p>
+ * A copier copy all instance fields (declared from its type down to
+ * {@link java.lang.Object} class) from an object to another one. Its fields
+ * layout is computed only once and a copier class is generated for each type :
+ * each field is directly read and written with its own type, so no primitive
+ * value is boxed during copy.
+ * </p>
+ * 
+ * <p>
+ * A copier can also synchronize two objects : only changed fields are copied
+ * and changed fields are reported in a bitmask. Primitive fields are compared by
+ * their value (floating values are compared by their raw bits) and only
+ * reference fields are compared with an
+ * {@link Delegator.EqualsCompareStrategy equals strategy}.
+ * </p>
+ * 
+ * <p>
+ * If copier class can't be generated (for example, if it's not allowed to
+ * define a new class next to delegated type), a copier using reflection is used
+ * instead.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public abstract class FieldCopier
+{
+    
+    /**
+     * Bit set into synchronization's mask when a field with an index greater than
+     * or equals to {@code 63} has been changed.
+     */
+    public static final long OVERFLOW_MASK = 1L << 63;
+    
+    /**
+     * Copiers already created for each type.
+     */
+    private static final ClassValue<FieldCopier> COPIERS = new ClassValue<FieldCopier>()
+    {
+	@Override
+	protected FieldCopier computeValue(Class<?> type)
+	{
+	    FieldLayout layout = FieldLayout.of(type);
+	    // Nothing to generate without any field (interfaces for example)
+	    if (layout.size() > 0 && layout.hasHandles())
+	    {
+		try
+		{
+		    return DelegatorFactory.findOrCreateFieldCopier(type);
+		} catch (RuntimeException | LinkageError ex)
+		{
+		    // Not able to generate copier class, reflection will be used
+		}
+	    }
+	    
+	    return new ReflectiveFieldCopier(type, layout);
+	}
+    };
+    
+    /**
+     * Type where fields are declared.
+     */
+    private final Class<?> type;
+    
+    /**
+     * Fields layout of {@link #type}.
+     */
+    private final FieldLayout layout;
+    
+    /**
+     * Build a copier for {@code type}.
+     * 
+     * @param type
+     *            type where fields are declared
+     */
+    protected FieldCopier(Class<?> type)
+    {
+	this.type = type;
+	this.layout = FieldLayout.of(type);
+    }
+    
+    /**
+     * Getting fields copier of {@code type}.
+     * 
+     * <p>
+     * Copiers are created only once for each type.
+     * </p>
+     * 
+     * @param type
+     *            type where fields are declared
+     * @return fields copier of {@code type}
+     */
+    public static FieldCopier of(Class<?> type)
+    {
+	return COPIERS.get(type);
+    }
+    
+    /**
+     * Copy all fields value from {@code src} to {@code dest}.
+     * 
+     * @param src
+     *            source for copy
+     * @param dest
+     *            destination for copy
+     * @throws ClassCastException
+     *             if {@code src} or {@code dest} isn't an instance of copier's
+     *             type
+     */
+    public abstract void copy(Object src, Object dest) throws ClassCastException;
+    
+    /**
+     * Copy only changed fields from {@code src} to {@code dest}.
+     * 
+     * <p>
+     * Each field of {@code src} is compared to the same field of {@code dest}.
+     * Primitive fields are compared by their value while reference fields are
+     * compared with {@code strategy}. A field is copied only if both values are
+     * different.
+     * </p>
+     * 
+     * <p>
+     * Returned mask contains a bit set for each copied field (see
+     * {@link #maskOf(int)}). So, {@code 0} means nothing has been changed.
+     * </p>
+     * 
+     * @param src
+     *            source for synchronization
+     * @param dest
+     *            destination for synchronization
+     * @param strategy
+     *            strategy used to compare reference fields
+     * @return changed fields' mask
+     * @throws ClassCastException
+     *             if {@code src} or {@code dest} isn't an instance of copier's
+     *             type
+     */
+    public abstract long sync(Object src, Object dest, Delegator.EqualsCompareStrategy strategy)
+	    throws ClassCastException;
+    
+    /**
+     * Set all reference fields of {@code dest} to {@code null}.
+     * 
+     * <p>
+     * Primitive fields are kept. It allows an object which isn't used anymore (a
+     * released proxy for example) to drop references to objects graph copied from
+     * another object.
+     * </p>
+     * 
+     * @param dest
+     *            object to clear
+     * @throws ClassCastException
+     *             if {@code dest} isn't an instance of copier's type
+     */
+    public final void clearReferences(Object dest) throws ClassCastException
+    {
+	this.type.cast(dest);
+	for (int i = 0; i < this.layout.size(); i++)
+	{
+	    Field field = this.layout.getField(i);
+	    if (field.getType().isPrimitive())
+		continue;
+	    
+	    try
+	    {
+		field.set(dest, null);
+	    } catch (IllegalAccessException ex)
+	    {
+		// Okay, we're not allowed to do this...
+		ex.printStackTrace();
+	    }
+	}
+    }
+    
+    /**
+     * Getting type where fields are declared.
+     * 
+     * @return copier's type
+     */
+    public final Class<?> getType()
+    {
+	return this.type;
+    }
+    
+    /**
+     * Getting how many fields are handled by this copier.
+     * 
+     * @return fields count
+     */
+    public final int getFieldCount()
+    {
+	return this.layout.size();
+    }
+    
+    /**
+     * Getting field at {@code index}.
+     * 
+     * @param index
+     *            field's index
+     * @return field at {@code index}
+     * @throws ArrayIndexOutOfBoundsException
+     *             if {@code index} is out of range
+     */
+    public final Field getField(int index) throws ArrayIndexOutOfBoundsException
+    {
+	return this.layout.getField(index);
+    }
+    
+    /**
+     * Getting index of field named {@code name}.
+     * 
+     * <p>
+     * If many fields have the same name (a field hidden by a subclass), the one
+     * declared by the deepest subclass is selected.
+     * </p>
+     * 
+     * @param name
+     *            field's name
+     * @return field's index or {@code -1} if not found
+     */
+    public final int indexOf(String name)
+    {
+	for (int i = 0; i < this.layout.size(); i++)
+	{
+	    if (this.layout.getField(i).getName().equals(name))
+		return i;
+	}
+	
+	return -1;
+    }
+    
+    /**
+     * Getting mask of field named {@code name}.
+     * 
+     * @param name
+     *            field's name
+     * @return field's mask or {@code 0} if not found
+     * @see #maskOf(int)
+     */
+    public final long maskOf(String name)
+    {
+	int index = this.indexOf(name);
+	return index < 0 ? 0L : maskOf(index);
+    }
+    
+    /**
+     * Getting bit set into synchronization's mask when field at {@code index} is
+     * changed.
+     * 
+     * <p>
+     * The first 63 fields got their own bit. All next fields share the same bit
+     * ({@link #OVERFLOW_MASK}).
+     * </p>
+     * 
+     * @param index
+     *            field's index
+     * @return field's mask
+     */
+    public static long maskOf(int index)
+    {
+	return index < 63 ? 1L << index : OVERFLOW_MASK;
+    }
+    
+    /**
+     * Link a field access from a generated copier class.
+     * 
+     * <p>
+     * This method is only used as bootstrap method by generated copier classes.
+     * Invokedynamic's name is {@code get} or {@code set} and bound call site will
+     * directly read or write field at {@code index} in fields layout of
+     * {@code type}.
+     * </p>
+     * 
+     * <p>
+     * Field accesses are only linked for the copier class used by
+     * {@link #of(Class)} for {@code type}, with a full privilege lookup : other
+     * classes can't get accessors to fields made accessible by this library.
+     * </p>
+     * 
+     * @param caller
+     *            generated copier class' lookup
+     * @param name
+     *            access kind ({@code get} or {@code set})
+     * @param methodType
+     *            invokedynamic's type
+     * @param type
+     *            type where fields are declared
+     * @param index
+     *            field's index into fields layout
+     * @return call site accessing field
+     * @throws IllegalAccessException
+     *             if caller isn't the generated copier class of {@code type}
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType methodType, Class<?> type,
+	    int index) throws IllegalAccessException
+    {
+	if ((caller.lookupModes() & MethodHandles.Lookup.PRIVATE) == 0
+		|| !FieldCopier.class.isAssignableFrom(caller.lookupClass())
+		|| COPIERS.get(type).getClass() != caller.lookupClass())
+	    throw new IllegalAccessException(caller + " isn't the generated copier of " + type);
+	
+	FieldLayout layout = FieldLayout.of(type);
+	MethodHandle handle = "get".equals(name) ? layout.getter(index) : layout.setter(index);
+	return new ConstantCallSite(handle.asType(methodType));
+    }
+    
+    /**
+     * Fields copier using reflection.
+     * 
+     * <p>
+     * It's used when copier class can't be generated. Fields are still set
+     * accessible only once and primitive values are copied and compared with typed
+     * accessors.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class ReflectiveFieldCopier extends FieldCopier
+    {
+	
+	/**
+	 * Fields to copy.
+	 */
+	private final Field fields[];
+	
+	/**
+	 * Build a copier from {@code layout}.
+	 * 
+	 * @param layout
+	 *            fields layout to copy
+	 */
+	private ReflectiveFieldCopier(Class<?> type, FieldLayout layout)
+	{
+	    super(type);
+	    this.fields = new Field[layout.size()];
+	    for (int i = 0; i < this.fields.length; i++)
+		this.fields[i] = layout.getField(i);
+	}
+	
+	@Override
+	public void copy(Object src, Object dest) throws ClassCastException
+	{
+	    for (Field field : this.fields)
+	    {
+		try
+		{
+		    Class<?> type = field.getType();
+		    if (!type.isPrimitive())
+			field.set(dest, field.get(src));
+		    else if (type == int.class)
+			field.setInt(dest, field.getInt(src));
+		    else if (type == long.class)
+			field.setLong(dest, field.getLong(src));
+		    else if (type == boolean.class)
+			field.setBoolean(dest, field.getBoolean(src));
+		    else if (type == double.class)
+			field.setDouble(dest, field.getDouble(src));
+		    else if (type == float.class)
+			field.setFloat(dest, field.getFloat(src));
+		    else if (type == byte.class)
+			field.setByte(dest, field.getByte(src));
+		    else if (type == short.class)
+			field.setShort(dest, field.getShort(src));
+		    else
+			field.setChar(dest, field.getChar(src));
+		} catch (IllegalAccessException ex)
+		{
+		    // Okay, we're not allowed to do this...
+		    ex.printStackTrace();
+		}
+	    }
+	}
+	
+	@Override
+	public long sync(Object src, Object dest, Delegator.EqualsCompareStrategy strategy)
+		throws ClassCastException
+	{
+	    long mask = 0L;
+	    for (int i = 0; i < this.fields.length; i++)
+	    {
+		Field field = this.fields[i];
+		try
+		{
+		    Class<?> type = field.getType();
+		    boolean changed;
+		    if (!type.isPrimitive())
+		    {
+			Object value = field.get(src);
+			changed = !strategy.equals(value, field.get(dest));
+			if (changed)
+			    field.set(dest, value);
+		    } else if (type == int.class)
+		    {
+			int value = field.getInt(src);
+			changed = value != field.getInt(dest);
+			if (changed)
+			    field.setInt(dest, value);
+		    } else if (type == long.class)
+		    {
+			long value = field.getLong(src);
+			changed = value != field.getLong(dest);
+			if (changed)
+			    field.setLong(dest, value);
+		    } else if (type == boolean.class)
+		    {
+			boolean value = field.getBoolean(src);
+			changed = value != field.getBoolean(dest);
+			if (changed)
+			    field.setBoolean(dest, value);
+		    } else if (type == double.class)
+		    {
+			double value = field.getDouble(src);
+			changed = Double.doubleToRawLongBits(value) != Double
+				.doubleToRawLongBits(field.getDouble(dest));
+			if (changed)
+			    field.setDouble(dest, value);
+		    } else if (type == float.class)
+		    {
+			float value = field.getFloat(src);
+			changed = Float.floatToRawIntBits(value) != Float.floatToRawIntBits(field.getFloat(dest));
+			if (changed)
+			    field.setFloat(dest, value);
+		    } else if (type == byte.class)
+		    {
+			byte value = field.getByte(src);
+			changed = value != field.getByte(dest);
+			if (changed)
+			    field.setByte(dest, value);
+		    } else if (type == short.class)
+		    {
+			short value = field.getShort(src);
+			changed = value != field.getShort(dest);
+			if (changed)
+			    field.setShort(dest, value);
+		    } else
+		    {
+			char value = field.getChar(src);
+			changed = value != field.getChar(dest);
+			if (changed)
+			    field.setChar(dest, value);
+		    }
+		    
+		    if (changed)
+			mask |= maskOf(i);
+		} catch (IllegalAccessException ex)
+		{
+		    // Okay, we're not allowed to do this...
+		    ex.printStackTrace();
+		}
+	    }
+	    
+	    return mask;
+	}
+    }
+}
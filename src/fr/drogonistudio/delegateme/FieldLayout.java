@@ -0,0 +1,229 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * Fields layout of a delegated type.
+ * 
+ * <p>
+ * A layout list all instance fields declared from a type down to
+ * {@link java.lang.Object} class. Each field is set accessible once when layout
+ * is built and its index is its position into this layout. Fields which couldn't
+ * be set accessible are ignored.
+ * </p>
+ * 
+ * <p>
+ * When possible, a getter and a setter method handles are also resolved for each
+ * field. They are used by generated {@link FieldCopier field copiers}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+final class FieldLayout
+{
+    
+    /**
+     * Layouts already computed for each type.
+     */
+    private static final ClassValue<FieldLayout> LAYOUTS = new ClassValue<FieldLayout>()
+    {
+	@Override
+	protected FieldLayout computeValue(Class<?> type)
+	{
+	    return new FieldLayout(type);
+	}
+    };
+    
+    /**
+     * All accessible fields.
+     */
+    private final Field fields[];
+    
+    /**
+     * Getter of each field (or {@code null} if method handles couldn't be
+     * resolved).
+     */
+    private final MethodHandle getters[];
+    
+    /**
+     * Setter of each field (or {@code null} if method handles couldn't be
+     * resolved).
+     */
+    private final MethodHandle setters[];
+    
+    /**
+     * Fingerprint of all fields.
+     */
+    private final long fingerprint;
+    
+    /**
+     * Build fields layout of {@code type}.
+     * 
+     * @param type
+     *            type to explore
+     */
+    private FieldLayout(Class<?> type)
+    {
+	List<Field> found = new ArrayList<>();
+	
+	Class<?> currentClass = type;
+	while (currentClass != null)
+	{
+	    Field declared[] = currentClass.getDeclaredFields();
+	    Arrays.sort(declared, Comparator.comparing(Field::getName));
+	    
+	    for (Field field : declared)
+	    {
+		if (Modifier.isStatic(field.getModifiers()))
+		    continue;
+		
+		try
+		{
+		    field.setAccessible(true);
+		    found.add(field);
+		} catch (RuntimeException ex)
+		{
+		    // Okay, we're not allowed to do this...
+		    ex.printStackTrace();
+		}
+	    }
+	    
+	    currentClass = currentClass.getSuperclass();
+	}
+	
+	this.fields = found.toArray(new Field[found.size()]);
+	
+	List<String> keys = new ArrayList<>(this.fields.length);
+	for (Field field : this.fields)
+	    keys.add(field.getDeclaringClass().getName() + '.' + field.getName() + ':'
+		    + Type.getDescriptor(field.getType()));
+	this.fingerprint = Bytecodes.fingerprintOf(keys);
+	
+	// Resolving method handles (to be used by generated code)
+	MethodHandle getters[] = new MethodHandle[this.fields.length];
+	MethodHandle setters[] = new MethodHandle[this.fields.length];
+	try
+	{
+	    MethodHandles.Lookup lookup = MethodHandles.lookup();
+	    for (int i = 0; i < this.fields.length; i++)
+	    {
+		getters[i] = lookup.unreflectGetter(this.fields[i]);
+		setters[i] = lookup.unreflectSetter(this.fields[i]);
+	    }
+	} catch (IllegalAccessException ex)
+	{
+	    // Not able to use method handles, only reflection will be used
+	    getters = null;
+	    setters = null;
+	}
+	
+	this.getters = getters;
+	this.setters = setters;
+    }
+    
+    /**
+     * Getting fields layout of {@code type}.
+     * 
+     * <p>
+     * Layouts are computed only once for each type.
+     * </p>
+     * 
+     * @param type
+     *            type to explore
+     * @return fields layout of {@code type}
+     */
+    static FieldLayout of(Class<?> type)
+    {
+	return LAYOUTS.get(type);
+    }
+    
+    /**
+     * Getting layout's fingerprint.
+     * 
+     * <p>
+     * Two layouts with the same fingerprint contain the same fields at the same
+     * indexes.
+     * </p>
+     * 
+     * @return layout's fingerprint
+     */
+    long getFingerprint()
+    {
+	return this.fingerprint;
+    }
+    
+    /**
+     * Getting how many fields are stored into this layout.
+     * 
+     * @return layout's size
+     */
+    int size()
+    {
+	return this.fields.length;
+    }
+    
+    /**
+     * Getting field at {@code index}.
+     * 
+     * @param index
+     *            field's index
+     * @return field stored at {@code index}
+     */
+    Field getField(int index)
+    {
+	return this.fields[index];
+    }
+    
+    /**
+     * Checking if method handles are available for all fields.
+     * 
+     * @return {@code true} if fields may be accessed with method handles
+     */
+    boolean hasHandles()
+    {
+	return this.getters != null;
+    }
+    
+    /**
+     * Getting getter of field at {@code index}.
+     * 
+     * @param index
+     *            field's index
+     * @return field's getter
+     * @throws IllegalStateException
+     *             if method handles are not available
+     */
+    MethodHandle getter(int index) throws IllegalStateException
+    {
+	if (this.getters == null)
+	    throw new IllegalStateException("method handles are not available");
+	
+	return this.getters[index];
+    }
+    
+    /**
+     * Getting setter of field at {@code index}.
+     * 
+     * @param index
+     *            field's index
+     * @return field's setter
+     * @throws IllegalStateException
+     *             if method handles are not available
+     */
+    MethodHandle setter(int index) throws IllegalStateException
+    {
+	if (this.setters == null)
+	    throw new IllegalStateException("method handles are not available");
+	
+	return this.setters[index];
+    }
+}
@@ -0,0 +1,158 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+/**
+ * Define generated proxy classes as hidden classes.
+ * 
+ * <p>
+ * Hidden classes (Java 15 or later) are defined with
+ * {@code Lookup.defineHiddenClass} : they aren't registered into their class
+ * loader, so they can't be found by their name and they are unloaded once they
+ * are unreachable, even if their class loader is still alive. Proxy classes are
+ * defined with a private lookup into delegated type, so they still belong to
+ * its package and to its class loader.
+ * </p>
+ * 
+ * <p>
+ * Hidden classes are used when they are available, unless
+ * {@code delegateme.hiddenClasses} system property is set to {@code false}.
+ * Otherwise, {@link DelegatorFactory} injects proxy classes into delegated
+ * type's class loader as before. Java 15 API is used with reflection since
+ * this library still target Java 8.
+ * </p>
+ * 
+ * <p>
+ * A hidden proxy class is only unloaded once {@link ProxyClassCache} drops it.
+ * Default cache keeps hidden proxy classes strongly, so they're unloaded with
+ * their delegated type. Other policies unload them earlier, but a dropped class
+ * is generated again as a new class.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+final class HiddenClassDefiner
+{
+    
+    /**
+     * {@code MethodHandles.privateLookupIn(Class, Lookup)}.
+     */
+    private static final Method PRIVATE_LOOKUP_IN;
+    
+    /**
+     * {@code Lookup.defineHiddenClass(byte[], boolean, ClassOption[])}.
+     */
+    private static final Method DEFINE_HIDDEN_CLASS;
+    
+    /**
+     * {@code Class.isHidden()}.
+     */
+    private static final Method IS_HIDDEN;
+    
+    /**
+     * Empty array of {@code Lookup.ClassOption} : hidden classes aren't nestmates
+     * of delegated type and they don't live as long as their class loader.
+     */
+    private static final Object NO_OPTIONS;
+    
+    static
+    {
+	Method privateLookupIn = null;
+	Method defineHiddenClass = null;
+	Method isHidden = null;
+	Object noOptions = null;
+	
+	if (Boolean.parseBoolean(System.getProperty("delegateme.hiddenClasses", "true").trim()))
+	{
+	    try
+	    {
+		Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+		noOptions = Array.newInstance(classOption, 0);
+		
+		privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class,
+			MethodHandles.Lookup.class);
+		defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class,
+			boolean.class, noOptions.getClass());
+		isHidden = Class.class.getMethod("isHidden");
+	    } catch (ReflectiveOperationException | RuntimeException ex)
+	    {
+		// Hidden classes aren't available
+		privateLookupIn = null;
+		defineHiddenClass = null;
+		isHidden = null;
+	    }
+	}
+	
+	PRIVATE_LOOKUP_IN = privateLookupIn;
+	DEFINE_HIDDEN_CLASS = defineHiddenClass;
+	IS_HIDDEN = isHidden;
+	NO_OPTIONS = noOptions;
+    }
+    
+    private HiddenClassDefiner()
+    {
+    }
+    
+    /**
+     * Checking if proxy classes can be defined as hidden classes.
+     * 
+     * @return {@code true} if hidden classes are available and not disabled
+     */
+    static boolean isAvailable()
+    {
+	return DEFINE_HIDDEN_CLASS != null;
+    }
+    
+    /**
+     * Define a hidden class next to {@code type}.
+     * 
+     * <p>
+     * Defined class is initialized. Since it's hidden, its name is the name found
+     * into {@code bytes} followed by a suffix given by the virtual machine.
+     * </p>
+     * 
+     * @param type
+     *            delegated type (defined class belongs to its package)
+     * @param bytes
+     *            class file of class to define
+     * @return defined class
+     * @throws IllegalStateException
+     *             if hidden classes aren't available
+     * @throws ReflectiveOperationException
+     *             if class can't be defined (no access to {@code type}'s package,
+     *             invalid class file...)
+     */
+    static Class<?> define(Class<?> type, byte bytes[]) throws IllegalStateException, ReflectiveOperationException
+    {
+	if (!isAvailable())
+	    throw new IllegalStateException("hidden classes aren't available");
+	
+	Object lookup = PRIVATE_LOOKUP_IN.invoke(null, type, MethodHandles.lookup());
+	Object defined = DEFINE_HIDDEN_CLASS.invoke(lookup, bytes, true, NO_OPTIONS);
+	return ((MethodHandles.Lookup) defined).lookupClass();
+    }
+    
+    /**
+     * Checking if {@code type} is a hidden class.
+     * 
+     * @param type
+     *            class to check
+     * @return {@code true} if {@code type} is hidden
+     */
+    static boolean isHidden(Class<?> type)
+    {
+	if (IS_HIDDEN == null)
+	    return false;
+	
+	try
+	{
+	    return (Boolean) IS_HIDDEN.invoke(type);
+	} catch (ReflectiveOperationException ex)
+	{
+	    // Should not happen
+	    return false;
+	}
+    }
+}
@@ -0,0 +1,793 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+
+/**
+ * An intercepted method invocation.
+ * 
+ * <p>
+ * An invocation is given to {@link InvocationDelegator} each time an intercepted
+ * method is invoked. It store invocation's arguments and result without boxing
+ * any primitive value : each argument can be read (and changed) with typed
+ * accessors like {@link #intArg(int)} and original method can be invoked with
+ * typed methods like {@link #proceedInt()}.
+ * </p>
+ * 
+ * <p>
+ * To avoid any allocation during method invocation, invocations are reused :
+ * each thread keep its own stack of invocations and an invocation is only valid
+ * until its intercepted method returns. An invocation must not be stored or
+ * shared with another thread.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see InvocationDelegator
+ */
+public final class Invocation
+{
+    
+    /**
+     * Invocations' stack of each thread.
+     */
+    private static final ThreadLocal<Stack> STACKS = ThreadLocal.withInitial(Stack::new);
+    
+    /**
+     * Stack where this invocation is stored.
+     */
+    private final Stack stack;
+    
+    /**
+     * Next invocation into the stack (created only if needed).
+     */
+    private Invocation next;
+    
+    /**
+     * Proxy object where method has been invoked.
+     */
+    private DelegatorFactory.ProxiedObject proxy;
+    
+    /**
+     * Methods of proxy's class (sorted by their index).
+     */
+    private Method methods[];
+    
+    /**
+     * Invoked method's index.
+     */
+    private int index;
+    
+    /**
+     * How many arguments are passed.
+     */
+    private int argumentCount;
+    
+    /**
+     * Pipeline's stages handling invoked method ({@code null} outside of a
+     * {@link Pipeline}).
+     */
+    private InvocationDelegator<?> stages[];
+    
+    /**
+     * Index of stage currently handling this invocation.
+     */
+    private int stage;
+    
+    /**
+     * Primitive arguments (stored as raw bits).
+     */
+    private long primitives[];
+    
+    /**
+     * Reference arguments.
+     */
+    private Object references[];
+    
+    /**
+     * Primitive result (stored as raw bits).
+     */
+    private long primitiveResult;
+    
+    /**
+     * Reference result.
+     */
+    private Object referenceResult;
+    
+    /**
+     * Build an invocation stored into {@code stack}.
+     * 
+     * @param stack
+     *            stack owning this invocation
+     */
+    private Invocation(Stack stack)
+    {
+	this.stack = stack;
+	this.primitives = new long[4];
+	this.references = new Object[4];
+    }
+    
+    /**
+     * Start a new invocation on current thread.
+     * 
+     * <p>
+     * Returned invocation must be released with {@link #exit()} once invocation is
+     * done.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy object where method has been invoked
+     * @param methods
+     *            methods of proxy's class
+     * @param index
+     *            invoked method's index
+     * @param argumentCount
+     *            how many arguments are passed
+     * @return invocation to fill
+     */
+    static Invocation enter(DelegatorFactory.ProxiedObject proxy, Method methods[], int index, int argumentCount)
+    {
+	Stack stack = STACKS.get();
+	Invocation invocation = stack.top;
+	stack.top = invocation.next();
+	
+	invocation.proxy = proxy;
+	invocation.methods = methods;
+	invocation.index = index;
+	invocation.argumentCount = argumentCount;
+	invocation.primitiveResult = 0L;
+	invocation.stages = null;
+	if (invocation.primitives.length < argumentCount)
+	{
+	    invocation.primitives = new long[argumentCount];
+	    invocation.references = new Object[argumentCount];
+	}
+	
+	return invocation;
+    }
+    
+    /**
+     * Release this invocation.
+     * 
+     * <p>
+     * Any stored reference is cleared and invocation is given back to its stack.
+     * </p>
+     */
+    void exit()
+    {
+	for (int i = 0; i < this.argumentCount; i++)
+	    this.references[i] = null;
+	this.referenceResult = null;
+	this.proxy = null;
+	this.stages = null;
+	
+	this.stack.top = this;
+    }
+    
+    /**
+     * Getting invocation above this one (create it if needed).
+     * 
+     * @return next invocation
+     */
+    private Invocation next()
+    {
+	if (this.next == null)
+	    this.next = new Invocation(this.stack);
+	
+	return this.next;
+    }
+    
+    /**
+     * Getting proxy object where method has been invoked.
+     * 
+     * @return proxy object
+     */
+    public Object getProxy()
+    {
+	return this.proxy;
+    }
+    
+    /**
+     * Getting invoked method.
+     * 
+     * @return invoked method
+     */
+    public Method getMethod()
+    {
+	return this.methods[this.index];
+    }
+    
+    /**
+     * Getting invoked method's index.
+     * 
+     * <p>
+     * This index is the same for all invocations of the same method on the same
+     * proxy class.
+     * </p>
+     * 
+     * @return invoked method's index
+     */
+    public int getMethodIndex()
+    {
+	return this.index;
+    }
+    
+    /**
+     * Getting how many arguments are passed.
+     * 
+     * @return arguments count
+     */
+    public int getArgumentCount()
+    {
+	return this.argumentCount;
+    }
+    
+    /**
+     * Invoke original method on delegated object with current arguments.
+     * 
+     * <p>
+     * Method's result is stored into this invocation and it can be retrieved with
+     * result's getters (like {@link #intResult()}).
+     * </p>
+     * 
+     * <p>
+     * If this invocation is handled by a {@link Pipeline}, next stage is invoked
+     * instead : only the last stage invokes original method.
+     * </p>
+     * 
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     */
+    public void proceed() throws Throwable
+    {
+	InvocationDelegator<?> stages[] = this.stages;
+	int current = this.stage;
+	if (stages != null && current + 1 < stages.length)
+	{
+	    this.stage = current + 1;
+	    try
+	    {
+		stages[current + 1].invoke(this);
+	    } finally
+	    {
+		this.stage = current;
+	    }
+	    return;
+	}
+	
+	this.proxy._DELEGATEME_proceed(this.index, this);
+    }
+    
+    /**
+     * Handle this invocation with a pipeline's stages.
+     * 
+     * <p>
+     * First stage is invoked : next ones are invoked each time previous stage
+     * proceed.
+     * </p>
+     * 
+     * @param stages
+     *            stages handling invoked method (at least one)
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     */
+    void runStages(InvocationDelegator<?> stages[]) throws Throwable
+    {
+	InvocationDelegator<?> previousStages[] = this.stages;
+	int previousStage = this.stage;
+	this.stages = stages;
+	this.stage = 0;
+	try
+	{
+	    stages[0].invoke(this);
+	} finally
+	{
+	    this.stages = previousStages;
+	    this.stage = previousStage;
+	}
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code boolean}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public boolean proceedBoolean() throws Throwable
+    {
+	this.proceed();
+	return this.booleanResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code byte}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public byte proceedByte() throws Throwable
+    {
+	this.proceed();
+	return this.byteResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code char}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public char proceedChar() throws Throwable
+    {
+	this.proceed();
+	return this.charResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code short}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public short proceedShort() throws Throwable
+    {
+	this.proceed();
+	return this.shortResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code int}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public int proceedInt() throws Throwable
+    {
+	this.proceed();
+	return this.intResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code long}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public long proceedLong() throws Throwable
+    {
+	this.proceed();
+	return this.longResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code float}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public float proceedFloat() throws Throwable
+    {
+	this.proceed();
+	return this.floatResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as {@code double}.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public double proceedDouble() throws Throwable
+    {
+	this.proceed();
+	return this.doubleResult();
+    }
+    
+    /**
+     * Invoke original method and getting its result as an object.
+     * 
+     * @return invocation result
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     * @see #proceed()
+     */
+    public Object proceedObject() throws Throwable
+    {
+	this.proceed();
+	return this.objectResult();
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code boolean}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public boolean booleanArg(int index)
+    {
+	return this.primitives[index] != 0L;
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code byte}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public byte byteArg(int index)
+    {
+	return (byte) this.primitives[index];
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code char}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public char charArg(int index)
+    {
+	return (char) this.primitives[index];
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code short}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public short shortArg(int index)
+    {
+	return (short) this.primitives[index];
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code int}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public int intArg(int index)
+    {
+	return (int) this.primitives[index];
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code long}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public long longArg(int index)
+    {
+	return this.primitives[index];
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code float}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public float floatArg(int index)
+    {
+	return Float.intBitsToFloat((int) this.primitives[index]);
+    }
+    
+    /**
+     * Getting argument at {@code index} as {@code double}.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public double doubleArg(int index)
+    {
+	return Double.longBitsToDouble(this.primitives[index]);
+    }
+    
+    /**
+     * Getting argument at {@code index} as an object.
+     * 
+     * @param index
+     *            argument's index
+     * @return argument's value
+     */
+    public Object objectArg(int index)
+    {
+	return this.references[index];
+    }
+    
+    /**
+     * Changing argument at {@code index} with a {@code boolean} value.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setBooleanArg(int index, boolean value)
+    {
+	this.primitives[index] = value ? 1L : 0L;
+    }
+    
+    /**
+     * Changing argument at {@code index} with a {@code byte}, {@code char},
+     * {@code short} or {@code int} value.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setIntArg(int index, int value)
+    {
+	this.primitives[index] = value;
+    }
+    
+    /**
+     * Changing argument at {@code index} with a {@code long} value.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setLongArg(int index, long value)
+    {
+	this.primitives[index] = value;
+    }
+    
+    /**
+     * Changing argument at {@code index} with a {@code float} value.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setFloatArg(int index, float value)
+    {
+	this.primitives[index] = Float.floatToRawIntBits(value);
+    }
+    
+    /**
+     * Changing argument at {@code index} with a {@code double} value.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setDoubleArg(int index, double value)
+    {
+	this.primitives[index] = Double.doubleToRawLongBits(value);
+    }
+    
+    /**
+     * Changing argument at {@code index} with an object.
+     * 
+     * @param index
+     *            argument's index
+     * @param value
+     *            new argument's value
+     */
+    public void setObjectArg(int index, Object value)
+    {
+	this.references[index] = value;
+    }
+    
+    /**
+     * Getting invocation result as {@code boolean}.
+     * 
+     * @return invocation result
+     */
+    public boolean booleanResult()
+    {
+	return this.primitiveResult != 0L;
+    }
+    
+    /**
+     * Getting invocation result as {@code byte}.
+     * 
+     * @return invocation result
+     */
+    public byte byteResult()
+    {
+	return (byte) this.primitiveResult;
+    }
+    
+    /**
+     * Getting invocation result as {@code char}.
+     * 
+     * @return invocation result
+     */
+    public char charResult()
+    {
+	return (char) this.primitiveResult;
+    }
+    
+    /**
+     * Getting invocation result as {@code short}.
+     * 
+     * @return invocation result
+     */
+    public short shortResult()
+    {
+	return (short) this.primitiveResult;
+    }
+    
+    /**
+     * Getting invocation result as {@code int}.
+     * 
+     * @return invocation result
+     */
+    public int intResult()
+    {
+	return (int) this.primitiveResult;
+    }
+    
+    /**
+     * Getting invocation result as {@code long}.
+     * 
+     * @return invocation result
+     */
+    public long longResult()
+    {
+	return this.primitiveResult;
+    }
+    
+    /**
+     * Getting invocation result as {@code float}.
+     * 
+     * @return invocation result
+     */
+    public float floatResult()
+    {
+	return Float.intBitsToFloat((int) this.primitiveResult);
+    }
+    
+    /**
+     * Getting invocation result as {@code double}.
+     * 
+     * @return invocation result
+     */
+    public double doubleResult()
+    {
+	return Double.longBitsToDouble(this.primitiveResult);
+    }
+    
+    /**
+     * Getting invocation result as an object.
+     * 
+     * @return invocation result
+     */
+    public Object objectResult()
+    {
+	return this.referenceResult;
+    }
+    
+    /**
+     * Setting invocation result with a {@code boolean} value.
+     * 
+     * <p>
+     * It allow to return a value without invoking original method (or to replace
+     * its result).
+     * </p>
+     * 
+     * @param value
+     *            invocation result
+     */
+    public void setBooleanResult(boolean value)
+    {
+	this.primitiveResult = value ? 1L : 0L;
+    }
+    
+    /**
+     * Setting invocation result with a {@code byte}, {@code char}, {@code short}
+     * or {@code int} value.
+     * 
+     * @param value
+     *            invocation result
+     * @see #setBooleanResult(boolean)
+     */
+    public void setIntResult(int value)
+    {
+	this.primitiveResult = value;
+    }
+    
+    /**
+     * Setting invocation result with a {@code long} value.
+     * 
+     * @param value
+     *            invocation result
+     * @see #setBooleanResult(boolean)
+     */
+    public void setLongResult(long value)
+    {
+	this.primitiveResult = value;
+    }
+    
+    /**
+     * Setting invocation result with a {@code float} value.
+     * 
+     * @param value
+     *            invocation result
+     * @see #setBooleanResult(boolean)
+     */
+    public void setFloatResult(float value)
+    {
+	this.primitiveResult = Float.floatToRawIntBits(value);
+    }
+    
+    /**
+     * Setting invocation result with a {@code double} value.
+     * 
+     * @param value
+     *            invocation result
+     * @see #setBooleanResult(boolean)
+     */
+    public void setDoubleResult(double value)
+    {
+	this.primitiveResult = Double.doubleToRawLongBits(value);
+    }
+    
+    /**
+     * Setting invocation result with an object.
+     * 
+     * @param value
+     *            invocation result
+     * @see #setBooleanResult(boolean)
+     */
+    public void setObjectResult(Object value)
+    {
+	this.referenceResult = value;
+    }
+    
+    /**
+     * Invocations' stack of a thread.
+     * 
+     * <p>
+     * Invocations are created once and reused by all methods invoked by the same
+     * thread.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Stack
+    {
+	/**
+	 * First free invocation.
+	 */
+	private Invocation top;
+	
+	/**
+	 * Build an empty stack.
+	 */
+	private Stack()
+	{
+	    this.top = new Invocation(this);
+	}
+    }
+}
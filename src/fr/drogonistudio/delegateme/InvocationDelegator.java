@@ -0,0 +1,175 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * A delegator handling invocations without boxing.
+ * 
+ * <p>
+ * Unlike {@link Delegator#invoke(Object, Method, Object[])}, intercepted
+ * methods are handled in {@link #invoke(Invocation)} with an
+ * {@link Invocation} object. This object give typed access to all arguments
+ * and can invoke original method with typed methods (like
+ * {@link Invocation#proceedInt()}). Generated proxy classes detect this kind of
+ * delegator : no argument array is created and no primitive value is boxed
+ * during invocation.
+ * </p>
+ * 
+ * <p>
+ * Invocation's result is the one stored into {@link Invocation} when
+ * {@link #invoke(Invocation)} returns. It may be set by proceeding original
+ * method or by using result's setters (like
+ * {@link Invocation#setIntResult(int)}).
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ * @see Invocation
+ */
+public abstract class InvocationDelegator<Delegated> extends Delegator<Delegated>
+{
+    
+    /**
+     * Setup delegation by storing object to delegate
+     * 
+     * @param delegated
+     *            object to delegate
+     */
+    public InvocationDelegator(Delegated delegated)
+    {
+	super(delegated);
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate and methods to intercept.
+     * 
+     * @param delegated
+     *            object to delegate
+     * @param interceptedMethods
+     *            methods to intercept
+     * @throws NullPointerException
+     *             if {@code delegated} or {@code interceptedMethods} are null
+     * @see Delegator#Delegator(Object, MethodMatcher)
+     */
+    public InvocationDelegator(Delegated delegated, MethodMatcher interceptedMethods) throws NullPointerException
+    {
+	super(delegated, interceptedMethods);
+    }
+    
+    /**
+     * Handle an invocation.
+     * 
+     * <p>
+     * To perform default behavior, one of the {@code proceed} methods of
+     * {@code invocation} must be invoked (like {@link Invocation#proceed()}).
+     * </p>
+     * 
+     * @param invocation
+     *            current invocation (only valid until this method returns)
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     */
+    public abstract void invoke(Invocation invocation) throws Throwable;
+    
+    /**
+     * Handle {@code method} invocation with boxed arguments.
+     * 
+     * <p>
+     * Proxy classes never use this method with this kind of delegator. It only
+     * convert {@code args} into an {@link Invocation} and invoke
+     * {@link #invoke(Invocation)}.
+     * </p>
+     * 
+     * @param method
+     *            invoked method
+     * @param args
+     *            passed parameters
+     * @return invocation return value
+     * @throws IllegalArgumentException
+     *             if {@code proxy} is not proxied object or if {@code method}
+     *             isn't handled by {@code proxy}
+     * @throws Throwable
+     *             if something went wrong during invocation process
+     */
+    @Override
+    public final Object invoke(Delegated proxy, Method method, Object args[]) throws Throwable
+    {
+	if (!(proxy instanceof DelegatorFactory.ProxiedObject))
+	    throw new IllegalArgumentException("object is not proxied object");
+	
+	MethodTable table = MethodTable.ofProxy(proxy.getClass());
+	int index = table.indexOf(method);
+	if (index < 0)
+	    throw new IllegalArgumentException(method + " isn't handled by proxied object");
+	
+	Method invoked = table.getMethod(index);
+	Type arguments[] = Type.getArgumentTypes(invoked);
+	Invocation invocation = Invocation.enter((DelegatorFactory.ProxiedObject) proxy, table.getMethods(), index,
+		arguments.length);
+	try
+	{
+	    // Unboxing arguments
+	    for (int i = 0; i < arguments.length; i++)
+	    {
+		switch (arguments[i].getSort())
+		{
+		    case Type.BOOLEAN:
+			invocation.setBooleanArg(i, (Boolean) args[i]);
+			break;
+		    case Type.CHAR:
+			invocation.setIntArg(i, (Character) args[i]);
+			break;
+		    case Type.BYTE:
+		    case Type.SHORT:
+		    case Type.INT:
+			invocation.setIntArg(i, ((Number) args[i]).intValue());
+			break;
+		    case Type.LONG:
+			invocation.setLongArg(i, (Long) args[i]);
+			break;
+		    case Type.FLOAT:
+			invocation.setFloatArg(i, (Float) args[i]);
+			break;
+		    case Type.DOUBLE:
+			invocation.setDoubleArg(i, (Double) args[i]);
+			break;
+		    default:
+			invocation.setObjectArg(i, args[i]);
+		}
+	    }
+	    
+	    this.invoke(invocation);
+	    
+	    // Boxing result
+	    switch (Type.getReturnType(invoked).getSort())
+	    {
+		case Type.VOID:
+		    return null;
+		case Type.BOOLEAN:
+		    return invocation.booleanResult();
+		case Type.CHAR:
+		    return invocation.charResult();
+		case Type.BYTE:
+		    return invocation.byteResult();
+		case Type.SHORT:
+		    return invocation.shortResult();
+		case Type.INT:
+		    return invocation.intResult();
+		case Type.LONG:
+		    return invocation.longResult();
+		case Type.FLOAT:
+		    return invocation.floatResult();
+		case Type.DOUBLE:
+		    return invocation.doubleResult();
+		default:
+		    return invocation.objectResult();
+	    }
+	} finally
+	{
+	    invocation.exit();
+	}
+    }
+}
@@ -0,0 +1,192 @@
+package fr.drogonistudio.delegateme;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with a fixed memory footprint.
+ * 
+ * <p>
+ * Recorded values (in nanoseconds) are counted into buckets : values below
+ * {@code 8} got their own bucket, then each power of two is split into
+ * {@code 8} buckets of equal width. So any positive {@code long} value can be
+ * recorded into {@value #BUCKET_COUNT} counters and percentiles are known with
+ * a relative error below 12.5%.
+ * </p>
+ * 
+ * <p>
+ * Recording a value only increment a counter : no lock is taken and nothing is
+ * allocated once counters are striped. Each bucket is a {@link LongAdder}, so
+ * threads recording values into the same bucket don't contend on a single
+ * atomic value. Counters can be read at any time while other threads are
+ * recording values.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public final class LatencyHistogram
+{
+    
+    /**
+     * Bits used to split each power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    
+    /**
+     * Buckets count of each power of two.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    
+    /**
+     * Buckets count (enough to store {@link Long#MAX_VALUE}).
+     */
+    public static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+    
+    /**
+     * Counter of each bucket.
+     */
+    private final LongAdder counts[];
+    
+    /**
+     * Create an empty histogram.
+     */
+    public LatencyHistogram()
+    {
+	this.counts = new LongAdder[BUCKET_COUNT];
+	for (int i = 0; i < BUCKET_COUNT; i++)
+	    this.counts[i] = new LongAdder();
+    }
+    
+    /**
+     * Record a value.
+     * 
+     * <p>
+     * Negative values are recorded as {@code 0}.
+     * </p>
+     * 
+     * @param nanos
+     *            recorded latency
+     */
+    public void record(long nanos)
+    {
+	this.counts[bucketOf(nanos)].increment();
+    }
+    
+    /**
+     * Getting count of recorded values.
+     * 
+     * @return recorded values count
+     */
+    public long getCount()
+    {
+	long count = 0L;
+	for (int i = 0; i < BUCKET_COUNT; i++)
+	    count += this.counts[i].sum();
+	
+	return count;
+    }
+    
+    /**
+     * Getting count of values recorded into a bucket.
+     * 
+     * @param bucket
+     *            bucket's index
+     * @return bucket's count
+     * @throws IndexOutOfBoundsException
+     *             if {@code bucket} isn't between {@code 0} and
+     *             {@link #BUCKET_COUNT}
+     */
+    public long getBucketCount(int bucket) throws IndexOutOfBoundsException
+    {
+	return this.counts[bucket].sum();
+    }
+    
+    /**
+     * Getting value below which {@code percentile} percents of recorded values
+     * are.
+     * 
+     * <p>
+     * Returned value is the highest value of the bucket holding this percentile.
+     * </p>
+     * 
+     * @param percentile
+     *            percentile between {@code 0} and {@code 100}
+     * @return percentile's value ({@code 0} if nothing is recorded)
+     * @throws IllegalArgumentException
+     *             if {@code percentile} isn't between {@code 0} and {@code 100}
+     */
+    public long getValueAtPercentile(double percentile) throws IllegalArgumentException
+    {
+	if (!(percentile >= 0.0 && percentile <= 100.0))
+	    throw new IllegalArgumentException("invalid percentile: " + percentile);
+	
+	// Taking a snapshot, so rank and buckets are consistent
+	long snapshot[] = new long[BUCKET_COUNT];
+	long total = 0L;
+	for (int i = 0; i < BUCKET_COUNT; i++)
+	{
+	    snapshot[i] = this.counts[i].sum();
+	    total += snapshot[i];
+	}
+	if (total == 0L)
+	    return 0L;
+	
+	long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+	long seen = 0L;
+	for (int i = 0; i < BUCKET_COUNT; i++)
+	{
+	    seen += snapshot[i];
+	    if (seen >= rank)
+		return highestValueOf(i);
+	}
+	
+	return highestValueOf(BUCKET_COUNT - 1);
+    }
+    
+    /**
+     * Getting bucket where {@code nanos} is counted.
+     * 
+     * @param nanos
+     *            recorded value
+     * @return bucket's index
+     */
+    static int bucketOf(long nanos)
+    {
+	if (nanos < SUB_BUCKET_COUNT)
+	    return nanos < 0L ? 0 : (int) nanos;
+	
+	int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+	int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+	
+	return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+    
+    /**
+     * Getting lowest value counted into {@code bucket}.
+     * 
+     * @param bucket
+     *            bucket's index
+     * @return bucket's lowest value
+     */
+    static long lowestValueOf(int bucket)
+    {
+	if (bucket < SUB_BUCKET_COUNT)
+	    return bucket;
+	
+	int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+	long sub = bucket % SUB_BUCKET_COUNT;
+	
+	return (SUB_BUCKET_COUNT + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+    
+    /**
+     * Getting highest value counted into {@code bucket}.
+     * 
+     * @param bucket
+     *            bucket's index
+     * @return bucket's highest value
+     */
+    static long highestValueOf(int bucket)
+    {
+	return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowestValueOf(bucket + 1) - 1L;
+    }
+}
@@ -0,0 +1,244 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A placeholder delegator of a proxy whose delegated object isn't created yet.
+ * 
+ * <p>
+ * It's created by {@link DelegatorFactory#warpLazy(Class, Supplier, Function)}
+ * : proxy is returned right away, without creating its delegated object nor
+ * copying any field. On first intercepted invocation, delegated object is
+ * created by its supplier, its delegator is created by its factory and its
+ * fields are copied into proxy. This delegator is then replaced by created one
+ * into proxy and invocation is handled by created delegator. Delegated object
+ * is created only once, even if many threads invoke proxy at the same time.
+ * </p>
+ * 
+ * <p>
+ * Until it's materialized, a lazy proxy intercepts all methods (its
+ * {@link #getDelegated()} returns {@code null}, so no method can be forwarded).
+ * If created delegator only intercepts some methods, it's wrapped to forward
+ * other methods directly to delegated object : use
+ * {@link #getMaterializedDelegator()} to get created delegator itself.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ * @see DelegatorFactory#warpLazy(Class, Supplier, Function)
+ */
+public final class LazyDelegator<Delegated> extends Delegator<Delegated>
+{
+    
+    /**
+     * Delegated type (the one given to {@link DelegatorFactory}).
+     */
+    private final Class<Delegated> type;
+    
+    /**
+     * Supplier creating delegated object ({@code null} once materialized).
+     */
+    private Supplier<? extends Delegated> supplier;
+    
+    /**
+     * Factory creating delegator of delegated object ({@code null} once
+     * materialized).
+     */
+    private Function<? super Delegated, ? extends Delegator<Delegated>> delegatorFactory;
+    
+    /**
+     * Delegator created by {@link #delegatorFactory} ({@code null} until
+     * materialized).
+     */
+    private volatile Delegator<Delegated> materialized;
+    
+    /**
+     * Delegator bound to proxy once materialized.
+     */
+    private Delegator<Delegated> installed;
+    
+    /**
+     * Setup a lazy delegator.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param supplier
+     *            supplier creating delegated object
+     * @param delegatorFactory
+     *            factory creating delegator of delegated object
+     * @throws NullPointerException
+     *             if an argument is null
+     */
+    LazyDelegator(Class<Delegated> type, Supplier<? extends Delegated> supplier,
+	    Function<? super Delegated, ? extends Delegator<Delegated>> delegatorFactory) throws NullPointerException
+    {
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	if (supplier == null)
+	    throw new NullPointerException("excepted a supplier but got null");
+	if (delegatorFactory == null)
+	    throw new NullPointerException("excepted a delegator factory but got null");
+	
+	this.type = type;
+	this.supplier = supplier;
+	this.delegatorFactory = delegatorFactory;
+    }
+    
+    @Override
+    public Object invoke(Delegated proxy, Method method, Object args[]) throws Throwable
+    {
+	return this.invoke(proxy, MethodTable.of(this.type).indexOf(method), method, args);
+    }
+    
+    @Override
+    public Object invoke(Delegated proxy, int methodIndex, Method method, Object args[]) throws Throwable
+    {
+	// Next invocations directly reach installed delegator
+	return this.materialize(proxy).invoke(proxy, methodIndex, method, args);
+    }
+    
+    /**
+     * Create delegated object and its delegator, and bind them to {@code proxy}.
+     * 
+     * <p>
+     * It's done only once : next calls return the same delegator.
+     * </p>
+     * 
+     * @param proxy
+     *            lazy proxy
+     * @return delegator bound to {@code proxy}
+     * @throws NullPointerException
+     *             if supplier or delegator factory returned null
+     */
+    private Delegator<Delegated> materialize(Delegated proxy) throws NullPointerException
+    {
+	if (this.materialized == null)
+	{
+	    synchronized (this)
+	    {
+		if (this.materialized == null)
+		{
+		    Delegated delegated = this.supplier.get();
+		    if (delegated == null)
+			throw new NullPointerException("excepted a delegated object from supplier but got null");
+		    Delegator<Delegated> delegator = this.delegatorFactory.apply(delegated);
+		    if (delegator == null)
+			throw new NullPointerException("excepted a delegator from factory but got null");
+		    
+		    // Proxy class intercepts all methods, so a selective delegator needs a filter
+		    MethodTable table = MethodTable.of(this.type);
+		    MethodMatcher matcher = delegator.getInterceptedMethods();
+		    Delegator<Delegated> installed;
+		    if (matcher.matchesAll(table))
+			installed = delegator;
+		    else if (delegator instanceof InvocationDelegator)
+			installed = Pipeline.of(this.type, (InvocationDelegator<Delegated>) delegator);
+		    else
+			installed = new Selective<>(delegator, matcher.maskOf(table));
+		    
+		    if (!this.type.isInterface())
+			FieldCopier.of(this.type).copy(delegator.getDelegated(), proxy);
+		    ((DelegatorFactory.ProxiedObject) proxy)._DELEGATEME_setDelegator(installed);
+		    
+		    this.installed = installed;
+		    this.supplier = null;
+		    this.delegatorFactory = null;
+		    this.materialized = delegator;
+		}
+	    }
+	}
+	
+	return this.installed;
+    }
+    
+    /**
+     * Checking if delegated object has been created.
+     * 
+     * @return {@code true} if proxy has been materialized
+     */
+    public boolean isMaterialized()
+    {
+	return this.materialized != null;
+    }
+    
+    /**
+     * Getting delegator created on first invocation.
+     * 
+     * @return created delegator or {@code null} if proxy isn't materialized yet
+     */
+    public Delegator<Delegated> getMaterializedDelegator()
+    {
+	return this.materialized;
+    }
+    
+    /**
+     * Getting delegated type.
+     * 
+     * @return delegated type
+     */
+    public Class<Delegated> getType()
+    {
+	return this.type;
+    }
+    
+    /**
+     * A delegator forwarding methods not matched by materialized delegator.
+     * 
+     * @author DrogoniEntity
+     * @param <Delegated>
+     *            Object's type to delegate
+     */
+    private static final class Selective<Delegated> extends Delegator<Delegated>
+    {
+	
+	/**
+	 * Materialized delegator.
+	 */
+	private final Delegator<Delegated> delegator;
+	
+	/**
+	 * Methods intercepted by {@link #delegator} (by method's index).
+	 */
+	private final BitSet intercepted;
+	
+	/**
+	 * Setup filter of {@code delegator}.
+	 * 
+	 * @param delegator
+	 *            materialized delegator
+	 * @param intercepted
+	 *            methods intercepted by {@code delegator}
+	 */
+	Selective(Delegator<Delegated> delegator, BitSet intercepted)
+	{
+	    super(delegator.getDelegated(), delegator.getInterceptedMethods());
+	    this.delegator = delegator;
+	    this.intercepted = intercepted;
+	}
+	
+	@Override
+	public Object invoke(Delegated proxy, Method method, Object args[]) throws Throwable
+	{
+	    return this.invoke(proxy, MethodTable.ofProxy(proxy.getClass()).indexOf(method), method, args);
+	}
+	
+	@Override
+	public Object invoke(Delegated proxy, int methodIndex, Method method, Object args[]) throws Throwable
+	{
+	    if (this.intercepted.get(methodIndex))
+		return this.delegator.invoke(proxy, methodIndex, method, args);
+	    
+	    return this.delegate(proxy, methodIndex, args);
+	}
+	
+	@Override
+	protected void delegatedFieldsUpdated(long changedFields)
+	{
+	    this.delegator.delegatedFieldsUpdated(changedFields);
+	}
+    }
+}
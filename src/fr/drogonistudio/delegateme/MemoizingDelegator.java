@@ -0,0 +1,557 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A delegator caching results of pure methods.
+ * 
+ * <p>
+ * Results of memoized methods (selected by a {@link MethodMatcher}, like
+ * {@link MethodMatcher#annotatedWith(Class)} or
+ * {@link MethodMatcher#named(String...)}) are stored with their arguments :
+ * next invocations with equal arguments (compared with
+ * {@link Arrays#deepEquals(Object[], Object[])}) get stored result without
+ * invoking original method. Methods returning {@code void} are never memoized.
+ * </p>
+ * 
+ * <p>
+ * Cache is bounded : once {@link #getMaximumSize()} results are stored, least
+ * recently used one is removed. Results may also expire after a time to live.
+ * If many threads invoke a method with the same arguments at the same time,
+ * original method is invoked only once and other threads wait for its result
+ * (or its exception).
+ * </p>
+ * 
+ * <p>
+ * All stored results are dropped once delegated object's fields are changed by
+ * {@link #updateDelegatedFieldsValue(Object, EqualsCompareStrategy)}, so stale
+ * results are never returned after a synchronization.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ */
+public class MemoizingDelegator<Delegated> extends InvocationDelegator<Delegated>
+{
+    
+    /**
+     * Parameters of each memoized method ({@code null} for other methods).
+     */
+    private final Class<?> parameters[][];
+    
+    /**
+     * Maximum count of stored results.
+     */
+    private final int maximumSize;
+    
+    /**
+     * Results' time to live in nanoseconds ({@code 0} if results never expire).
+     */
+    private final long timeToLive;
+    
+    /**
+     * Stored results sorted from least to most recently used.
+     */
+    private final LinkedHashMap<Key, Memo> memos;
+    
+    /**
+     * Count of invocations answered by a stored result.
+     */
+    private final LongAdder hits = new LongAdder();
+    
+    /**
+     * Count of invocations which invoked original method.
+     */
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * Count of removed results (least recently used or expired).
+     */
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * Count of invalidations.
+     */
+    private final LongAdder invalidations = new LongAdder();
+    
+    /**
+     * Setup delegation with results which never expire.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @param memoizedMethods
+     *            methods to memoize
+     * @param maximumSize
+     *            maximum count of stored results
+     * @throws NullPointerException
+     *             if an argument is null
+     * @throws IllegalArgumentException
+     *             if {@code maximumSize} isn't strictly positive
+     */
+    public MemoizingDelegator(Class<Delegated> type, Delegated delegated, MethodMatcher memoizedMethods,
+	    int maximumSize) throws NullPointerException, IllegalArgumentException
+    {
+	this(type, delegated, memoizedMethods, maximumSize, 0L, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Setup delegation.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @param memoizedMethods
+     *            methods to memoize
+     * @param maximumSize
+     *            maximum count of stored results
+     * @param timeToLive
+     *            how long a result is kept ({@code 0} to keep it until it's
+     *            evicted)
+     * @param unit
+     *            {@code timeToLive}'s unit
+     * @throws NullPointerException
+     *             if an argument is null
+     * @throws IllegalArgumentException
+     *             if {@code maximumSize} isn't strictly positive or if
+     *             {@code timeToLive} is negative
+     */
+    public MemoizingDelegator(Class<Delegated> type, Delegated delegated, MethodMatcher memoizedMethods,
+	    int maximumSize, long timeToLive, TimeUnit unit) throws NullPointerException, IllegalArgumentException
+    {
+	super(delegated, memoizedMethods);
+	if (type == null || unit == null)
+	    throw new NullPointerException("excepted a type and a time unit but got null");
+	if (maximumSize <= 0)
+	    throw new IllegalArgumentException("maximum size must be strictly positive");
+	if (timeToLive < 0L)
+	    throw new IllegalArgumentException("time to live can't be negative");
+	
+	MethodTable table = MethodTable.of(type);
+	this.parameters = new Class<?>[table.size()][];
+	for (int i = 0; i < table.size(); i++)
+	{
+	    Method method = table.getMethod(i);
+	    if (method.getReturnType() != void.class && memoizedMethods.matches(method))
+		this.parameters[i] = method.getParameterTypes();
+	}
+	
+	this.maximumSize = maximumSize;
+	this.timeToLive = unit.toNanos(timeToLive);
+	this.memos = new LinkedHashMap<Key, Memo>(16, 0.75f, true)
+	{
+	    private static final long serialVersionUID = 1L;
+	    
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<Key, Memo> eldest)
+	    {
+		if (this.size() <= MemoizingDelegator.this.maximumSize)
+		    return false;
+		
+		MemoizingDelegator.this.evictions.increment();
+		return true;
+	    }
+	};
+    }
+    
+    @Override
+    public void invoke(Invocation invocation) throws Throwable
+    {
+	int index = invocation.getMethodIndex();
+	Class<?> types[] = this.parameters[index];
+	if (types == null)
+	{
+	    invocation.proceed();
+	    return;
+	}
+	
+	Key key = new Key(index, boxArguments(invocation, types));
+	Memo memo;
+	boolean owner = false;
+	synchronized (this.memos)
+	{
+	    memo = this.memos.get(key);
+	    if (memo != null && memo.isExpired(this.timeToLive))
+	    {
+		this.memos.remove(key);
+		this.evictions.increment();
+		memo = null;
+	    }
+	    
+	    if (memo == null)
+	    {
+		memo = new Memo();
+		this.memos.put(key, memo);
+		owner = true;
+	    }
+	}
+	
+	if (!owner)
+	{
+	    // Stored result or another thread is loading it
+	    this.hits.increment();
+	    memo.await();
+	    invocation.setLongResult(memo.primitiveResult);
+	    invocation.setObjectResult(memo.referenceResult);
+	    return;
+	}
+	
+	this.misses.increment();
+	try
+	{
+	    invocation.proceed();
+	} catch (Throwable ex)
+	{
+	    synchronized (this.memos)
+	    {
+		this.memos.remove(key, memo);
+	    }
+	    memo.completeExceptionally(ex);
+	    throw ex;
+	}
+	
+	memo.primitiveResult = invocation.longResult();
+	memo.referenceResult = invocation.objectResult();
+	memo.loadedAt = System.nanoTime();
+	memo.complete(null);
+    }
+    
+    /**
+     * Drop all stored results once delegated object's fields changed.
+     * 
+     * @param changedFields
+     *            changed fields' mask
+     */
+    @Override
+    protected void delegatedFieldsUpdated(long changedFields)
+    {
+	this.invalidateAll();
+    }
+    
+    /**
+     * Drop all stored results.
+     * 
+     * <p>
+     * Invocations which are loading a result still return it, but it isn't
+     * stored.
+     * </p>
+     */
+    public final void invalidateAll()
+    {
+	synchronized (this.memos)
+	{
+	    this.memos.clear();
+	}
+	this.invalidations.increment();
+    }
+    
+    /**
+     * Getting count of stored results.
+     * 
+     * @return stored results count
+     */
+    public final int size()
+    {
+	synchronized (this.memos)
+	{
+	    return this.memos.size();
+	}
+    }
+    
+    /**
+     * Getting maximum count of stored results.
+     * 
+     * @return maximum size
+     */
+    public final int getMaximumSize()
+    {
+	return this.maximumSize;
+    }
+    
+    /**
+     * Getting results' time to live.
+     * 
+     * @param unit
+     *            returned time's unit
+     * @return time to live ({@code 0} if results never expire)
+     */
+    public final long getTimeToLive(TimeUnit unit)
+    {
+	return unit.convert(this.timeToLive, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Getting a snapshot of cache's statistics.
+     * 
+     * @return current statistics
+     */
+    public final Statistics getStatistics()
+    {
+	return new Statistics(this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.invalidations.sum());
+    }
+    
+    /**
+     * Box arguments of an invocation.
+     * 
+     * @param invocation
+     *            current invocation
+     * @param types
+     *            parameters' types
+     * @return boxed arguments
+     */
+    private static Object[] boxArguments(Invocation invocation, Class<?> types[])
+    {
+	Object arguments[] = new Object[types.length];
+	for (int i = 0; i < types.length; i++)
+	{
+	    Class<?> type = types[i];
+	    if (!type.isPrimitive())
+		arguments[i] = invocation.objectArg(i);
+	    else if (type == boolean.class)
+		arguments[i] = invocation.booleanArg(i);
+	    else if (type == char.class)
+		arguments[i] = invocation.charArg(i);
+	    else if (type == long.class)
+		arguments[i] = invocation.longArg(i);
+	    else if (type == float.class)
+		arguments[i] = invocation.floatArg(i);
+	    else if (type == double.class)
+		arguments[i] = invocation.doubleArg(i);
+	    else
+		arguments[i] = invocation.intArg(i);
+	}
+	
+	return arguments;
+    }
+    
+    /**
+     * Key of a stored result.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Key
+    {
+	/**
+	 * Method's index.
+	 */
+	private final int index;
+	
+	/**
+	 * Boxed arguments.
+	 */
+	private final Object arguments[];
+	
+	/**
+	 * Key's hash code.
+	 */
+	private final int hash;
+	
+	/**
+	 * Build a key.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @param arguments
+	 *            boxed arguments
+	 */
+	private Key(int index, Object arguments[])
+	{
+	    this.index = index;
+	    this.arguments = arguments;
+	    this.hash = 31 * index + Arrays.deepHashCode(arguments);
+	}
+	
+	@Override
+	public int hashCode()
+	{
+	    return this.hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj)
+	{
+	    if (!(obj instanceof Key))
+		return false;
+	    
+	    Key other = (Key) obj;
+	    return this.index == other.index && this.hash == other.hash
+		    && Arrays.deepEquals(this.arguments, other.arguments);
+	}
+    }
+    
+    /**
+     * A stored result (or a result being loaded).
+     * 
+     * <p>
+     * Result is stored as raw bits and reference, like into an
+     * {@link Invocation}, so primitive results aren't boxed. It's completed once
+     * result is loaded.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Memo extends CompletableFuture<Void>
+    {
+	/**
+	 * Primitive result (stored as raw bits).
+	 */
+	private long primitiveResult;
+	
+	/**
+	 * Reference result.
+	 */
+	private Object referenceResult;
+	
+	/**
+	 * When result has been loaded (from {@link System#nanoTime()}).
+	 */
+	private long loadedAt;
+	
+	/**
+	 * Wait until result is loaded.
+	 * 
+	 * @throws Throwable
+	 *             exception thrown by original method
+	 */
+	private void await() throws Throwable
+	{
+	    try
+	    {
+		this.join();
+	    } catch (CompletionException ex)
+	    {
+		throw ex.getCause() != null ? ex.getCause() : ex;
+	    }
+	}
+	
+	/**
+	 * Checking if result expired.
+	 * 
+	 * @param timeToLive
+	 *            results' time to live ({@code 0} if results never expire)
+	 * @return {@code true} if result is loaded and expired
+	 */
+	private boolean isExpired(long timeToLive)
+	{
+	    return timeToLive > 0L && this.isDone() && System.nanoTime() - this.loadedAt >= timeToLive;
+	}
+    }
+    
+    /**
+     * Statistics of a memoizing delegator.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class Statistics
+    {
+	/**
+	 * Count of invocations answered by a stored result.
+	 */
+	private final long hits;
+	
+	/**
+	 * Count of invocations which invoked original method.
+	 */
+	private final long misses;
+	
+	/**
+	 * Count of removed results.
+	 */
+	private final long evictions;
+	
+	/**
+	 * Count of invalidations.
+	 */
+	private final long invalidations;
+	
+	/**
+	 * Build a snapshot.
+	 * 
+	 * @param hits
+	 *            count of invocations answered by a stored result
+	 * @param misses
+	 *            count of invocations which invoked original method
+	 * @param evictions
+	 *            count of removed results
+	 * @param invalidations
+	 *            count of invalidations
+	 */
+	private Statistics(long hits, long misses, long evictions, long invalidations)
+	{
+	    this.hits = hits;
+	    this.misses = misses;
+	    this.evictions = evictions;
+	    this.invalidations = invalidations;
+	}
+	
+	/**
+	 * Getting count of invocations answered by a stored result (including
+	 * invocations which waited for another thread to load it).
+	 * 
+	 * @return hit count
+	 */
+	public long getHits()
+	{
+	    return this.hits;
+	}
+	
+	/**
+	 * Getting count of invocations which invoked original method.
+	 * 
+	 * @return miss count
+	 */
+	public long getMisses()
+	{
+	    return this.misses;
+	}
+	
+	/**
+	 * Getting count of results removed because cache was full or because they
+	 * expired.
+	 * 
+	 * @return eviction count
+	 */
+	public long getEvictions()
+	{
+	    return this.evictions;
+	}
+	
+	/**
+	 * Getting how many times all results were dropped.
+	 * 
+	 * @return invalidation count
+	 */
+	public long getInvalidations()
+	{
+	    return this.invalidations;
+	}
+	
+	/**
+	 * Getting ratio of invocations answered by a stored result.
+	 * 
+	 * @return hit ratio (between {@code 0} and {@code 1})
+	 */
+	public double getHitRatio()
+	{
+	    long total = this.hits + this.misses;
+	    return total == 0L ? 0.0 : (double) this.hits / total;
+	}
+	
+	@Override
+	public String toString()
+	{
+	    return "hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions
+		    + ", invalidations=" + this.invalidations;
+	}
+    }
+}
@@ -0,0 +1,252 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Select methods intercepted by a delegator.
+ * 
+ * <p>
+ * A matcher is given to a {@link Delegator} when it's created. When an object
+ * is warped, matcher is evaluated on all methods of warped type : matched
+ * methods are intercepted by delegator while all other methods are directly
+ * invoked on delegated object (without any call to delegator).
+ * </p>
+ * 
+ * <p>
+ * Proxy classes are generated for each set of intercepted methods. Matcher's
+ * result is computed only once for each type, so a matcher must always give
+ * the same result for the same method.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see Delegator#Delegator(Object, MethodMatcher)
+ */
+public abstract class MethodMatcher
+{
+    
+    /**
+     * Matcher matching all methods.
+     */
+    private static final MethodMatcher ANY = new MethodMatcher()
+    {
+	@Override
+	public boolean matches(Method method)
+	{
+	    return true;
+	}
+    };
+    
+    /**
+     * Matcher matching no method.
+     */
+    private static final MethodMatcher NONE = new MethodMatcher()
+    {
+	@Override
+	public boolean matches(Method method)
+	{
+	    return false;
+	}
+    };
+    
+    /**
+     * Intercepted methods' mask for each type.
+     */
+    private final ClassValue<BitSet> masks = new ClassValue<BitSet>()
+    {
+	@Override
+	protected BitSet computeValue(Class<?> type)
+	{
+	    MethodTable table = MethodTable.of(type);
+	    BitSet mask = new BitSet(table.size());
+	    for (int i = 0; i < table.size(); i++)
+	    {
+		if (MethodMatcher.this.matches(table.getMethod(i)))
+		    mask.set(i);
+	    }
+	    
+	    return mask;
+	}
+    };
+    
+    /**
+     * Build a matcher.
+     */
+    protected MethodMatcher()
+    {
+    }
+    
+    /**
+     * Checking if {@code method} must be intercepted.
+     * 
+     * @param method
+     *            method to check
+     * @return {@code true} if {@code method} must be intercepted
+     */
+    public abstract boolean matches(Method method);
+    
+    /**
+     * Getting intercepted methods of {@code table}.
+     * 
+     * <p>
+     * Returned mask is shared and must not be modified.
+     * </p>
+     * 
+     * @param table
+     *            method table of warped type
+     * @return a mask where each intercepted method's index is set
+     */
+    BitSet maskOf(MethodTable table)
+    {
+	return this.masks.get(table.getType());
+    }
+    
+    /**
+     * Checking if this matcher matches all methods.
+     * 
+     * @param table
+     *            method table of warped type
+     * @return {@code true} if all methods of {@code table} are intercepted
+     */
+    boolean matchesAll(MethodTable table)
+    {
+	return this == ANY || this.maskOf(table).cardinality() == table.size();
+    }
+    
+    /**
+     * Build a matcher matching methods matched by this matcher or by
+     * {@code other}.
+     * 
+     * @param other
+     *            other matcher
+     * @return combined matcher
+     */
+    public MethodMatcher or(MethodMatcher other)
+    {
+	MethodMatcher self = this;
+	return new MethodMatcher()
+	{
+	    @Override
+	    public boolean matches(Method method)
+	    {
+		return self.matches(method) || other.matches(method);
+	    }
+	};
+    }
+    
+    /**
+     * Build a matcher matching methods which are not matched by this matcher.
+     * 
+     * @return negated matcher
+     */
+    public MethodMatcher negate()
+    {
+	MethodMatcher self = this;
+	return new MethodMatcher()
+	{
+	    @Override
+	    public boolean matches(Method method)
+	    {
+		return !self.matches(method);
+	    }
+	};
+    }
+    
+    /**
+     * Getting a matcher matching all methods.
+     * 
+     * <p>
+     * It's the default matcher of delegators.
+     * </p>
+     * 
+     * @return a matcher matching all methods
+     */
+    public static MethodMatcher any()
+    {
+	return ANY;
+    }
+    
+    /**
+     * Getting a matcher matching no method.
+     * 
+     * <p>
+     * It's the default matcher of read-only methods.
+     * </p>
+     * 
+     * @return a matcher matching no method
+     * @see Delegator#getReadOnlyMethods()
+     */
+    public static MethodMatcher none()
+    {
+	return NONE;
+    }
+    
+    /**
+     * Build a matcher matching methods named as one of {@code names}.
+     * 
+     * @param names
+     *            names of methods to intercept
+     * @return built matcher
+     */
+    public static MethodMatcher named(String... names)
+    {
+	Set<String> nameSet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(names)));
+	return new MethodMatcher()
+	{
+	    @Override
+	    public boolean matches(Method method)
+	    {
+		return nameSet.contains(method.getName());
+	    }
+	};
+    }
+    
+    /**
+     * Build a matcher matching methods annotated with {@code annotation}.
+     * 
+     * <p>
+     * Annotation is searched on the method's declaration found on warped type
+     * (annotation must be retained at runtime).
+     * </p>
+     * 
+     * @param annotation
+     *            annotation's type
+     * @return built matcher
+     */
+    public static MethodMatcher annotatedWith(Class<? extends Annotation> annotation)
+    {
+	return new MethodMatcher()
+	{
+	    @Override
+	    public boolean matches(Method method)
+	    {
+		return method.isAnnotationPresent(annotation);
+	    }
+	};
+    }
+    
+    /**
+     * Build a matcher from a predicate.
+     * 
+     * @param predicate
+     *            predicate selecting methods to intercept
+     * @return built matcher
+     */
+    public static MethodMatcher matching(Predicate<Method> predicate)
+    {
+	return new MethodMatcher()
+	{
+	    @Override
+	    public boolean matches(Method method)
+	    {
+		return predicate.test(method);
+	    }
+	};
+    }
+}
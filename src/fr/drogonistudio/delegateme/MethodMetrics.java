@@ -0,0 +1,194 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a method measured by a {@link MetricsDelegator}.
+ * 
+ * <p>
+ * Calls, errors and total time are striped counters ({@link LongAdder}), so
+ * threads invoking the same method don't contend on a single counter.
+ * Latencies are also recorded into a {@link LatencyHistogram}. Recording an
+ * invocation never takes a lock and never allocates anything.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public final class MethodMetrics implements MethodMetricsMBean
+{
+    
+    /**
+     * Measured method.
+     */
+    private final Method method;
+    
+    /**
+     * Invocations count.
+     */
+    private final LongAdder calls;
+    
+    /**
+     * Failed invocations count.
+     */
+    private final LongAdder errors;
+    
+    /**
+     * Time spent into all invocations.
+     */
+    private final LongAdder totalTime;
+    
+    /**
+     * Longest invocation's time.
+     */
+    private final LongAccumulator maxTime;
+    
+    /**
+     * Invocations' latencies.
+     */
+    private final LatencyHistogram histogram;
+    
+    /**
+     * Create empty metrics.
+     * 
+     * @param method
+     *            measured method
+     */
+    MethodMetrics(Method method)
+    {
+	this.method = method;
+	this.calls = new LongAdder();
+	this.errors = new LongAdder();
+	this.totalTime = new LongAdder();
+	this.maxTime = new LongAccumulator(Math::max, 0L);
+	this.histogram = new LatencyHistogram();
+    }
+    
+    /**
+     * Record an invocation.
+     * 
+     * @param nanos
+     *            invocation's time
+     * @param failed
+     *            {@code true} if invocation threw an exception
+     */
+    void record(long nanos, boolean failed)
+    {
+	this.calls.increment();
+	if (failed)
+	    this.errors.increment();
+	this.totalTime.add(nanos);
+	this.maxTime.accumulate(nanos);
+	this.histogram.record(nanos);
+    }
+    
+    /**
+     * Getting measured method.
+     * 
+     * @return measured method
+     */
+    public Method getMeasuredMethod()
+    {
+	return this.method;
+    }
+    
+    /**
+     * Getting latencies' histogram.
+     * 
+     * @return invocations' histogram
+     */
+    public LatencyHistogram getHistogram()
+    {
+	return this.histogram;
+    }
+    
+    @Override
+    public String getMethod()
+    {
+	StringBuilder signature = new StringBuilder(this.method.getName()).append('(');
+	Class<?> parameters[] = this.method.getParameterTypes();
+	for (int i = 0; i < parameters.length; i++)
+	{
+	    if (i > 0)
+		signature.append(", ");
+	    signature.append(parameters[i].getTypeName());
+	}
+	
+	return signature.append(')').toString();
+    }
+    
+    @Override
+    public long getCalls()
+    {
+	return this.calls.sum();
+    }
+    
+    @Override
+    public long getErrors()
+    {
+	return this.errors.sum();
+    }
+    
+    @Override
+    public long getTotalTime()
+    {
+	return this.totalTime.sum();
+    }
+    
+    @Override
+    public double getMeanTime()
+    {
+	long calls = this.calls.sum();
+	return calls == 0L ? 0.0 : (double) this.totalTime.sum() / calls;
+    }
+    
+    @Override
+    public long getMaxTime()
+    {
+	return this.maxTime.get();
+    }
+    
+    @Override
+    public long getMedianTime()
+    {
+	return this.percentile(50.0);
+    }
+    
+    @Override
+    public long getPercentile99Time()
+    {
+	return this.percentile(99.0);
+    }
+    
+    @Override
+    public long getPercentile999Time()
+    {
+	return this.percentile(99.9);
+    }
+    
+    /**
+     * Getting a percentile of recorded latencies.
+     * 
+     * <p>
+     * Histogram's value is capped by max time, since highest bucket's values may
+     * be higher than any recorded value.
+     * </p>
+     * 
+     * @param percentile
+     *            percentile between {@code 0} and {@code 100}
+     * @return percentile's value
+     */
+    private long percentile(double percentile)
+    {
+	return Math.min(this.histogram.getValueAtPercentile(percentile), this.maxTime.get());
+    }
+    
+    @Override
+    public String toString()
+    {
+	return String.format("%s: %d calls, %d errors, mean %.1f ns, p50 %d ns, p99 %d ns, max %d ns", this.getMethod(),
+		this.getCalls(), this.getErrors(), this.getMeanTime(), this.getMedianTime(),
+		this.getPercentile99Time(), this.getMaxTime());
+    }
+}
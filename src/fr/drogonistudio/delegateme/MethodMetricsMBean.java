@@ -0,0 +1,77 @@
+package fr.drogonistudio.delegateme;
+
+/**
+ * Management interface of {@link MethodMetrics}.
+ * 
+ * <p>
+ * All times are in nanoseconds.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see MetricsDelegator#registerMBeans(String)
+ */
+public interface MethodMetricsMBean
+{
+    /**
+     * Getting measured method's signature.
+     * 
+     * @return method's signature
+     */
+    String getMethod();
+    
+    /**
+     * Getting invocations count.
+     * 
+     * @return invocations count
+     */
+    long getCalls();
+    
+    /**
+     * Getting count of invocations which threw an exception.
+     * 
+     * @return failed invocations count
+     */
+    long getErrors();
+    
+    /**
+     * Getting time spent into all invocations.
+     * 
+     * @return total time
+     */
+    long getTotalTime();
+    
+    /**
+     * Getting mean time of an invocation.
+     * 
+     * @return mean time ({@code 0} if method hasn't been invoked)
+     */
+    double getMeanTime();
+    
+    /**
+     * Getting longest invocation's time.
+     * 
+     * @return max time
+     */
+    long getMaxTime();
+    
+    /**
+     * Getting median time of an invocation.
+     * 
+     * @return median time
+     */
+    long getMedianTime();
+    
+    /**
+     * Getting time below which 99% of invocations are.
+     * 
+     * @return 99th percentile
+     */
+    long getPercentile99Time();
+    
+    /**
+     * Getting time below which 99.9% of invocations are.
+     * 
+     * @return 99.9th percentile
+     */
+    long getPercentile999Time();
+}
@@ -0,0 +1,590 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+import net.bytebuddy.jar.asm.Type;
+
+/**
+ * Index of all methods handled by a proxy class.
+ * 
+ * <p>
+ * A method table list all public methods which may be overridden by a proxy
+ * class of a delegated type. Each method got an index depends on its position
+ * in this table. Methods are sorted by name and then by descriptor, so the same
+ * type will always produce the same indexes.
+ * </p>
+ * 
+ * <p>
+ * Table of an interface also contains public methods of
+ * {@link java.lang.Object} class since its proxy class will override them too.
+ * </p>
+ * 
+ * <p>
+ * Generated proxy classes use these indexes to select which method to invoke on
+ * delegated object without any reflective call. They're also given to
+ * delegators (see {@link Delegator#invoke(Object, int, Method, Object[])}) :
+ * indexes are dense (from {@code 0} to {@link #size()} excluded), so any
+ * per-method state can be stored into an array (see {@link #newSlots()} and
+ * {@link #newCounters()}) or selected with a {@code switch}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ */
+public final class MethodTable
+{
+    
+    /**
+     * Tables already computed for each delegated type.
+     */
+    private static final ClassValue<MethodTable> TABLES = new ClassValue<MethodTable>()
+    {
+	@Override
+	protected MethodTable computeValue(Class<?> type)
+	{
+	    return new MethodTable(type);
+	}
+    };
+    
+    /**
+     * Tables used by each proxy class.
+     */
+    private static final ClassValue<MethodTable> PROXY_TABLES = new ClassValue<MethodTable>()
+    {
+	@Override
+	protected MethodTable computeValue(Class<?> proxyClass)
+	{
+	    for (Class<?> implemented : proxyClass.getInterfaces())
+	    {
+		if (implemented != DelegatorFactory.ProxiedObject.class)
+		    return TABLES.get(implemented);
+	    }
+	    
+	    return TABLES.get(proxyClass.getSuperclass());
+	}
+    };
+    
+    /**
+     * Delegated type.
+     */
+    private final Class<?> type;
+    
+    /**
+     * Methods sorted by their index.
+     */
+    private final Method methods[];
+    
+    /**
+     * Index of each method.
+     */
+    private final Map<Method, Integer> indexes;
+    
+    /**
+     * Methods of {@link #methods} hashed by their identity (open addressing,
+     * length is a power of two).
+     * 
+     * <p>
+     * Proxy classes give to delegators the same {@code Method} instances as
+     * {@link #methods}, so they're found without computing their hash code or
+     * comparing their signature.
+     * </p>
+     */
+    private final Method identityKeys[];
+    
+    /**
+     * Index of each method of {@link #identityKeys}.
+     */
+    private final int identityIndexes[];
+    
+    /**
+     * Index of each method by their signature (name concatenated to descriptor).
+     */
+    private final Map<String, Integer> signatures;
+    
+    /**
+     * Fingerprint of all signatures.
+     */
+    private final long fingerprint;
+    
+    /**
+     * Build method table of {@code type}.
+     * 
+     * @param type
+     *            delegated type
+     */
+    private MethodTable(Class<?> type)
+    {
+	this.type = type;
+	
+	// Collecting overridable methods (only the first one found for each signature)
+	Map<String, Method> found = new LinkedHashMap<>();
+	List<Method> candidates = new ArrayList<>(Arrays.asList(type.getMethods()));
+	if (type.isInterface())
+	    candidates.addAll(Arrays.asList(Object.class.getMethods()));
+	for (Method method : candidates)
+	{
+	    int modifiers = method.getModifiers();
+	    if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || method.isBridge())
+		continue;
+	    
+	    String signature = signatureOf(method.getName(), Type.getMethodDescriptor(method));
+	    if (!found.containsKey(signature))
+		found.put(signature, method);
+	}
+	
+	List<String> sortedSignatures = new ArrayList<>(found.keySet());
+	Collections.sort(sortedSignatures);
+	
+	this.methods = new Method[sortedSignatures.size()];
+	this.indexes = new HashMap<>();
+	this.signatures = new HashMap<>();
+	for (int i = 0; i < this.methods.length; i++)
+	{
+	    String signature = sortedSignatures.get(i);
+	    this.methods[i] = found.get(signature);
+	    this.indexes.put(this.methods[i], i);
+	    this.signatures.put(signature, i);
+	}
+	
+	int capacity = Integer.highestOneBit(Math.max(this.methods.length, 1) * 2 - 1) << 1;
+	this.identityKeys = new Method[capacity];
+	this.identityIndexes = new int[capacity];
+	for (int i = 0; i < this.methods.length; i++)
+	{
+	    int slot = identitySlotOf(this.methods[i], capacity);
+	    while (this.identityKeys[slot] != null)
+		slot = (slot + 1) & (capacity - 1);
+	    
+	    this.identityKeys[slot] = this.methods[i];
+	    this.identityIndexes[slot] = i;
+	}
+	this.fingerprint = Bytecodes.fingerprintOf(sortedSignatures);
+    }
+    
+    /**
+     * Getting method table of {@code type}.
+     * 
+     * <p>
+     * Tables are computed only once for each type.
+     * </p>
+     * 
+     * @param type
+     *            delegated type
+     * @return method table of {@code type}
+     */
+    public static MethodTable of(Class<?> type)
+    {
+	return TABLES.get(type);
+    }
+    
+    /**
+     * Getting method table used by {@code proxyClass}.
+     * 
+     * <p>
+     * Delegated type is the interface implemented by {@code proxyClass} (if it's
+     * an interface proxy class) or its superclass.
+     * </p>
+     * 
+     * @param proxyClass
+     *            generated proxy class
+     * @return method table of type delegated by {@code proxyClass}
+     */
+    public static MethodTable ofProxy(Class<?> proxyClass)
+    {
+	return PROXY_TABLES.get(proxyClass);
+    }
+    
+    /**
+     * Getting delegated type.
+     * 
+     * @return delegated type
+     */
+    public Class<?> getType()
+    {
+	return this.type;
+    }
+    
+    /**
+     * Getting table's fingerprint.
+     * 
+     * <p>
+     * Two tables with the same fingerprint contain the same methods at the same
+     * indexes.
+     * </p>
+     * 
+     * @return table's fingerprint
+     */
+    long getFingerprint()
+    {
+	return this.fingerprint;
+    }
+    
+    /**
+     * Getting how many methods are stored into this table.
+     * 
+     * @return table's size
+     */
+    public int size()
+    {
+	return this.methods.length;
+    }
+    
+    /**
+     * Getting method at {@code index}.
+     * 
+     * @param index
+     *            method's index
+     * @return method stored at {@code index}
+     * @throws ArrayIndexOutOfBoundsException
+     *             if {@code index} is out of table's range
+     */
+    public Method getMethod(int index) throws ArrayIndexOutOfBoundsException
+    {
+	return this.methods[index];
+    }
+    
+    /**
+     * Getting all methods sorted by their index.
+     * 
+     * <p>
+     * Returned array is shared and must not be modified.
+     * </p>
+     * 
+     * @return all methods
+     */
+    Method[] getMethods()
+    {
+	return this.methods;
+    }
+    
+    /**
+     * Getting index of {@code method}.
+     * 
+     * <p>
+     * Methods given by proxy classes are found by their identity. Otherwise,
+     * {@code method} is searched with {@link Method#equals(Object)}, then by its
+     * signature (to find overridden methods).
+     * </p>
+     * 
+     * @param method
+     *            method to search
+     * @return index of {@code method} or {@code -1} if not found
+     */
+    public int indexOf(Method method)
+    {
+	Method keys[] = this.identityKeys;
+	int mask = keys.length - 1;
+	for (int slot = identitySlotOf(method, keys.length); keys[slot] != null; slot = (slot + 1) & mask)
+	{
+	    if (keys[slot] == method)
+		return this.identityIndexes[slot];
+	}
+	
+	Integer index = this.indexes.get(method);
+	if (index == null)
+	    return this.indexOf(method.getName(), Type.getMethodDescriptor(method));
+	
+	return index;
+    }
+    
+    /**
+     * Getting index of method named {@code name} with {@code descriptor} as
+     * descriptor.
+     * 
+     * @param name
+     *            method's name
+     * @param descriptor
+     *            method's descriptor (in JVM format)
+     * @return index of method or {@code -1} if not found
+     */
+    int indexOf(String name, String descriptor)
+    {
+	Integer index = this.signatures.get(signatureOf(name, descriptor));
+	return index == null ? -1 : index;
+    }
+    
+    /**
+     * Getting index of method named {@code name} with {@code parameterTypes} as
+     * parameters.
+     * 
+     * <p>
+     * It's intended to be used once (when a delegator is built for example) to
+     * retrieve indexes of known methods.
+     * </p>
+     * 
+     * @param name
+     *            method's name
+     * @param parameterTypes
+     *            method's parameters
+     * @return index of method or {@code -1} if not found
+     */
+    public int indexOf(String name, Class<?>... parameterTypes)
+    {
+	for (int i = 0; i < this.methods.length; i++)
+	{
+	    Method method = this.methods[i];
+	    if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameterTypes))
+		return i;
+	}
+	
+	return -1;
+    }
+    
+    /**
+     * Create a new storage with a slot for each method of this table.
+     * 
+     * @param <Value>
+     *            stored values' type
+     * @return new slots (all slots are {@code null})
+     */
+    public <Value> Slots<Value> newSlots()
+    {
+	return new Slots<>(this);
+    }
+    
+    /**
+     * Create a new set of counters with a counter for each method of this table.
+     * 
+     * @return new counters (all counters are {@code 0})
+     */
+    public Counters newCounters()
+    {
+	return new Counters(this);
+    }
+    
+    /**
+     * Getting first slot of {@code method} into {@link #identityKeys}.
+     * 
+     * @param method
+     *            searched method
+     * @param capacity
+     *            length of {@link #identityKeys}
+     * @return first probed slot
+     */
+    private static int identitySlotOf(Method method, int capacity)
+    {
+	int hash = System.identityHashCode(method);
+	return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+    
+    /**
+     * Building signature key used to identify a method.
+     * 
+     * @param name
+     *            method's name
+     * @param descriptor
+     *            method's descriptor
+     * @return signature key
+     */
+    private static String signatureOf(String name, String descriptor)
+    {
+	return name.concat(descriptor);
+    }
+    
+    /**
+     * Per-method storage.
+     * 
+     * <p>
+     * Each method of a table got its own slot, accessed with method's index.
+     * Slots are stored into an array and they can be safely accessed by many
+     * threads.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     * @param <Value>
+     *            stored values' type
+     */
+    public static final class Slots<Value>
+    {
+	/**
+	 * Table where methods are indexed.
+	 */
+	private final MethodTable table;
+	
+	/**
+	 * Value of each method.
+	 */
+	private final AtomicReferenceArray<Value> values;
+	
+	/**
+	 * Create empty slots.
+	 * 
+	 * @param table
+	 *            table where methods are indexed
+	 */
+	private Slots(MethodTable table)
+	{
+	    this.table = table;
+	    this.values = new AtomicReferenceArray<>(table.size());
+	}
+	
+	/**
+	 * Getting table where methods are indexed.
+	 * 
+	 * @return slots' table
+	 */
+	public MethodTable getTable()
+	{
+	    return this.table;
+	}
+	
+	/**
+	 * Getting value stored for method at {@code index}.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @return stored value or {@code null} if nothing is stored
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public Value get(int index) throws IndexOutOfBoundsException
+	{
+	    return this.values.get(index);
+	}
+	
+	/**
+	 * Store {@code value} for method at {@code index}.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @param value
+	 *            value to store
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public void set(int index, Value value) throws IndexOutOfBoundsException
+	{
+	    this.values.set(index, value);
+	}
+	
+	/**
+	 * Getting value stored for method at {@code index} or compute it if nothing
+	 * is stored yet.
+	 * 
+	 * <p>
+	 * {@code factory} may be invoked many times if many threads compute the same
+	 * slot at the same time, but only one value is stored.
+	 * </p>
+	 * 
+	 * @param index
+	 *            method's index
+	 * @param factory
+	 *            factory creating value from method's index
+	 * @return stored value
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public Value computeIfAbsent(int index, IntFunction<? extends Value> factory) throws IndexOutOfBoundsException
+	{
+	    Value value = this.values.get(index);
+	    if (value == null)
+	    {
+		value = factory.apply(index);
+		if (!this.values.compareAndSet(index, null, value))
+		    value = this.values.get(index);
+	    }
+	    
+	    return value;
+	}
+    }
+    
+    /**
+     * Per-method counters.
+     * 
+     * <p>
+     * Each method of a table got its own counter, accessed with method's index.
+     * Counters are stored into an array and they can be safely updated by many
+     * threads.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class Counters
+    {
+	/**
+	 * Table where methods are indexed.
+	 */
+	private final MethodTable table;
+	
+	/**
+	 * Counter of each method.
+	 */
+	private final AtomicLongArray counts;
+	
+	/**
+	 * Create counters set to {@code 0}.
+	 * 
+	 * @param table
+	 *            table where methods are indexed
+	 */
+	private Counters(MethodTable table)
+	{
+	    this.table = table;
+	    this.counts = new AtomicLongArray(table.size());
+	}
+	
+	/**
+	 * Getting table where methods are indexed.
+	 * 
+	 * @return counters' table
+	 */
+	public MethodTable getTable()
+	{
+	    return this.table;
+	}
+	
+	/**
+	 * Increment counter of method at {@code index}.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @return incremented value
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public long increment(int index) throws IndexOutOfBoundsException
+	{
+	    return this.counts.incrementAndGet(index);
+	}
+	
+	/**
+	 * Add {@code delta} to counter of method at {@code index}.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @param delta
+	 *            value to add
+	 * @return updated value
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public long add(int index, long delta) throws IndexOutOfBoundsException
+	{
+	    return this.counts.addAndGet(index, delta);
+	}
+	
+	/**
+	 * Getting counter of method at {@code index}.
+	 * 
+	 * @param index
+	 *            method's index
+	 * @return counter's value
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of table's range
+	 */
+	public long get(int index) throws IndexOutOfBoundsException
+	{
+	    return this.counts.get(index);
+	}
+    }
+}
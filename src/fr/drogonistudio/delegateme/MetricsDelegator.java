@@ -0,0 +1,219 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A delegator measuring invocations of each intercepted method.
+ * 
+ * <p>
+ * Each intercepted method got its own {@link MethodMetrics} : calls, errors,
+ * total and max time, and a latency histogram. Metrics are created once with
+ * the delegator and stored by method's index, so recording an invocation never
+ * allocates anything nor takes any lock.
+ * </p>
+ * 
+ * <p>
+ * Metrics can be read with {@link #getMetrics(Method)} or exported as JMX
+ * MBeans with {@link #registerMBeans(String)}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ * @see MethodMetrics
+ */
+public class MetricsDelegator<Delegated> extends InvocationDelegator<Delegated>
+{
+    
+    /**
+     * Domain of registered MBeans.
+     */
+    public static final String MBEAN_DOMAIN = "fr.drogonistudio.delegateme";
+    
+    /**
+     * Metrics of each intercepted method ({@code null} for other methods).
+     */
+    private final MethodTable.Slots<MethodMetrics> metrics;
+    
+    /**
+     * Names of registered MBeans.
+     */
+    private final List<ObjectName> registered;
+    
+    /**
+     * Setup delegation by storing object to delegate.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @throws NullPointerException
+     *             if an argument is null
+     */
+    public MetricsDelegator(Class<Delegated> type, Delegated delegated) throws NullPointerException
+    {
+	this(type, delegated, MethodMatcher.any());
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate and methods to measure.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @param measuredMethods
+     *            methods to measure
+     * @throws NullPointerException
+     *             if an argument is null
+     * @see Delegator#Delegator(Object, MethodMatcher)
+     */
+    public MetricsDelegator(Class<Delegated> type, Delegated delegated, MethodMatcher measuredMethods)
+	    throws NullPointerException
+    {
+	super(delegated, measuredMethods);
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	
+	MethodTable table = MethodTable.of(type);
+	this.metrics = table.newSlots();
+	for (int i = 0; i < table.size(); i++)
+	{
+	    Method method = table.getMethod(i);
+	    if (measuredMethods.matches(method))
+		this.metrics.set(i, new MethodMetrics(method));
+	}
+	this.registered = new ArrayList<>();
+    }
+    
+    @Override
+    public void invoke(Invocation invocation) throws Throwable
+    {
+	MethodMetrics measured = this.metrics.get(invocation.getMethodIndex());
+	if (measured == null)
+	{
+	    invocation.proceed();
+	    return;
+	}
+	
+	boolean failed = true;
+	long start = System.nanoTime();
+	try
+	{
+	    invocation.proceed();
+	    failed = false;
+	} finally
+	{
+	    measured.record(System.nanoTime() - start, failed);
+	}
+    }
+    
+    /**
+     * Getting metrics of {@code method}.
+     * 
+     * @param method
+     *            measured method
+     * @return method's metrics or {@code null} if {@code method} isn't measured
+     */
+    public final MethodMetrics getMetrics(Method method)
+    {
+	int index = this.metrics.getTable().indexOf(method);
+	return index < 0 ? null : this.metrics.get(index);
+    }
+    
+    /**
+     * Getting metrics of all measured methods.
+     * 
+     * @return measured methods' metrics (sorted by method's index)
+     */
+    public final List<MethodMetrics> getAllMetrics()
+    {
+	List<MethodMetrics> all = new ArrayList<>();
+	for (int i = 0; i < this.metrics.getTable().size(); i++)
+	{
+	    MethodMetrics measured = this.metrics.get(i);
+	    if (measured != null)
+		all.add(measured);
+	}
+	
+	return all;
+    }
+    
+    /**
+     * Register metrics of each measured method as an MBean into platform's MBean
+     * server.
+     * 
+     * <p>
+     * MBeans are named
+     * {@code fr.drogonistudio.delegateme:type=Metrics,name=<name>,method=<method's signature>}.
+     * </p>
+     * 
+     * @param name
+     *            name identifying this delegator
+     * @throws NullPointerException
+     *             if {@code name} is null
+     * @throws IllegalStateException
+     *             if MBeans are already registered
+     * @throws JMException
+     *             if an MBean can't be registered (like if {@code name} is
+     *             already used)
+     * @see #unregisterMBeans()
+     */
+    public final synchronized void registerMBeans(String name)
+	    throws NullPointerException, IllegalStateException, JMException
+    {
+	if (name == null)
+	    throw new NullPointerException("excepted a name but got null");
+	if (!this.registered.isEmpty())
+	    throw new IllegalStateException("MBeans are already registered");
+	
+	MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	try
+	{
+	    for (MethodMetrics measured : this.getAllMetrics())
+	    {
+		ObjectName objectName = new ObjectName(MBEAN_DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name)
+			+ ",method=" + ObjectName.quote(measured.getMethod()));
+		server.registerMBean(measured, objectName);
+		this.registered.add(objectName);
+	    }
+	} catch (JMException ex)
+	{
+	    this.unregisterMBeans();
+	    throw ex;
+	}
+    }
+    
+    /**
+     * Unregister MBeans registered by {@link #registerMBeans(String)}.
+     * 
+     * <p>
+     * It does nothing if no MBean is registered.
+     * </p>
+     * 
+     * @throws JMException
+     *             if an MBean can't be unregistered
+     */
+    public final synchronized void unregisterMBeans() throws JMException
+    {
+	MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	try
+	{
+	    for (ObjectName objectName : this.registered)
+	    {
+		if (server.isRegistered(objectName))
+		    server.unregisterMBean(objectName);
+	    }
+	} finally
+	{
+	    this.registered.clear();
+	}
+    }
+}
@@ -0,0 +1,201 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered chain of delegators handled by a single proxy.
+ * 
+ * <p>
+ * Stacking behaviours by warping a proxy of a proxy repeats fields copy and
+ * interception for each layer. A pipeline is warped once instead : when an
+ * intercepted method is invoked, first stage handles it and each
+ * {@link Invocation#proceed()} directly invokes the next stage. Only the last
+ * stage invokes original method on delegated object.
+ * </p>
+ * 
+ * <p>
+ * Each stage keeps its own {@link MethodMatcher} : a stage is skipped for
+ * methods it doesn't match, and methods matched by no stage are directly
+ * forwarded to delegated object. Stages are {@link InvocationDelegator}s
+ * delegating the same object as the pipeline, so no argument is boxed between
+ * stages. A pipeline given as a stage is flattened into its own stages.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ */
+public final class Pipeline<Delegated> extends InvocationDelegator<Delegated>
+{
+    
+    /**
+     * Pipeline's stages.
+     */
+    private final List<InvocationDelegator<Delegated>> stages;
+    
+    /**
+     * Stages handling each method (sorted by method's index).
+     */
+    private final InvocationDelegator<?> stagesByMethod[][];
+    
+    /**
+     * Build a pipeline.
+     * 
+     * @param table
+     *            delegated type's methods
+     * @param delegated
+     *            object to delegate
+     * @param interceptedMethods
+     *            methods intercepted by at least one stage
+     * @param stages
+     *            pipeline's stages
+     */
+    private Pipeline(MethodTable table, Delegated delegated, MethodMatcher interceptedMethods,
+	    List<InvocationDelegator<Delegated>> stages)
+    {
+	super(delegated, interceptedMethods);
+	this.stages = Collections.unmodifiableList(stages);
+	this.stagesByMethod = new InvocationDelegator<?>[table.size()][];
+	
+	List<InvocationDelegator<?>> handling = new ArrayList<>();
+	for (int i = 0; i < table.size(); i++)
+	{
+	    Method method = table.getMethod(i);
+	    handling.clear();
+	    for (InvocationDelegator<Delegated> stage : stages)
+	    {
+		if (stage.getInterceptedMethods().matches(method))
+		    handling.add(stage);
+	    }
+	    
+	    this.stagesByMethod[i] = handling.toArray(new InvocationDelegator<?>[handling.size()]);
+	}
+    }
+    
+    /**
+     * Build a pipeline from {@code stages}.
+     * 
+     * @param <Delegated>
+     *            Object's type to delegate
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param stages
+     *            pipeline's stages (first one is invoked first)
+     * @return built pipeline
+     * @throws NullPointerException
+     *             if {@code type} or a stage is null
+     * @throws IllegalArgumentException
+     *             if there is no stage or if stages don't delegate the same
+     *             object
+     * @see #of(Class, List)
+     */
+    @SafeVarargs
+    public static <Delegated> Pipeline<Delegated> of(Class<Delegated> type, InvocationDelegator<Delegated>... stages)
+	    throws NullPointerException, IllegalArgumentException
+    {
+	// Copied element by element, so varargs array is never exposed
+	List<InvocationDelegator<Delegated>> copied = new ArrayList<>(stages.length);
+	for (InvocationDelegator<Delegated> stage : stages)
+	    copied.add(stage);
+	
+	return of(type, copied);
+    }
+    
+    /**
+     * Build a pipeline from {@code stages}.
+     * 
+     * <p>
+     * Pipeline delegates the same object as its stages and intercepts methods
+     * intercepted by at least one stage.
+     * </p>
+     * 
+     * @param <Delegated>
+     *            Object's type to delegate
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param stages
+     *            pipeline's stages (first one is invoked first)
+     * @return built pipeline
+     * @throws NullPointerException
+     *             if {@code type}, {@code stages} or a stage is null
+     * @throws IllegalArgumentException
+     *             if there is no stage or if stages don't delegate the same
+     *             object
+     */
+    public static <Delegated> Pipeline<Delegated> of(Class<Delegated> type,
+	    List<? extends InvocationDelegator<Delegated>> stages) throws NullPointerException, IllegalArgumentException
+    {
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	if (stages == null)
+	    throw new NullPointerException("excepted stages but got null");
+	
+	// Flattening nested pipelines
+	List<InvocationDelegator<Delegated>> flattened = new ArrayList<>();
+	for (InvocationDelegator<Delegated> stage : stages)
+	{
+	    if (stage == null)
+		throw new NullPointerException("excepted a stage but got null");
+	    
+	    if (stage instanceof Pipeline)
+		flattened.addAll(((Pipeline<Delegated>) stage).stages);
+	    else
+		flattened.add(stage);
+	}
+	if (flattened.isEmpty())
+	    throw new IllegalArgumentException("a pipeline needs at least one stage");
+	
+	Delegated delegated = flattened.get(0).getDelegated();
+	MethodMatcher interceptedMethods = null;
+	for (InvocationDelegator<Delegated> stage : flattened)
+	{
+	    if (stage.getDelegated() != delegated)
+		throw new IllegalArgumentException("all stages must delegate the same object");
+	    
+	    MethodMatcher matcher = stage.getInterceptedMethods();
+	    if (interceptedMethods == null || matcher == MethodMatcher.any())
+		interceptedMethods = matcher;
+	    else if (interceptedMethods != MethodMatcher.any())
+		interceptedMethods = interceptedMethods.or(matcher);
+	}
+	
+	return new Pipeline<>(MethodTable.of(type), delegated, interceptedMethods, flattened);
+    }
+    
+    @Override
+    public void invoke(Invocation invocation) throws Throwable
+    {
+	InvocationDelegator<?> handling[] = this.stagesByMethod[invocation.getMethodIndex()];
+	if (handling.length == 0)
+	    invocation.proceed();
+	else
+	    invocation.runStages(handling);
+    }
+    
+    /**
+     * Forward changed fields to each stage, so stages keeping state depending on
+     * delegated object (like cached results) drop it.
+     * 
+     * @param changedFields
+     *            changed fields' mask
+     */
+    @Override
+    protected void delegatedFieldsUpdated(long changedFields)
+    {
+	for (InvocationDelegator<Delegated> stage : this.stages)
+	    stage.delegatedFieldsUpdated(changedFields);
+    }
+    
+    /**
+     * Getting pipeline's stages.
+     * 
+     * @return unmodifiable list of stages (in invocation order)
+     */
+    public List<InvocationDelegator<Delegated>> getStages()
+    {
+	return this.stages;
+    }
+}
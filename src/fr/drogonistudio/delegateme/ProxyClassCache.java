@@ -0,0 +1,616 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache where generated proxy classes are stored.
+ * 
+ * <p>
+ * Proxy classes are stored with their delegated type : they're kept until
+ * delegated type is unloaded, or before if cache's {@link Policy policy}
+ * allow it. A proxy class removed from cache is generated again on next
+ * {@link DelegatorFactory#warp(Class, Delegator)}.
+ * </p>
+ * 
+ * <p>
+ * Default cache is selected with {@code delegateme.cache.policy} system
+ * property ({@code STRONG}, {@code SOFT}, {@code WEAK} or {@code BOUNDED})
+ * and {@code delegateme.cache.size} system property (maximum size of a
+ * bounded cache, {@code 1024} by default). It can be replaced with
+ * {@link DelegatorFactory#setProxyClassCache(ProxyClassCache)}.
+ * </p>
+ * 
+ * <p>
+ * When proxy classes are defined as hidden classes (see
+ * {@link HiddenClassDefiner}), default policy is {@code STRONG} : hidden proxy
+ * classes are then only unloaded with their delegated type, like classes
+ * injected into its class loader. Any other policy lets unused hidden proxy
+ * classes be unloaded, but a hidden class can't be found again by its name :
+ * once removed from cache, it's generated again as a different class, which
+ * costs a generation in the middle of a request and breaks pooled proxies and
+ * the guarantee that each proxy class is generated only once. Otherwise,
+ * default policy is {@code SOFT} (a class removed from cache is found again
+ * into delegated type's class loader).
+ * </p>
+ * 
+ * <p>
+ * Each proxy class is generated only once : if many threads need the same
+ * proxy class at the same time, only one generates it while others wait for
+ * it. Different proxy classes are generated in parallel.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see DelegatorFactory#prepare(Class...)
+ */
+public final class ProxyClassCache
+{
+    
+    /**
+     * Default maximum size of a bounded cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+    
+    /**
+     * How proxy classes are kept into a cache.
+     * 
+     * @author DrogoniEntity
+     */
+    public static enum Policy
+    {
+	/**
+	 * Proxy classes are kept as long as their delegated type.
+	 */
+	STRONG,
+	
+	/**
+	 * Proxy classes are softly referenced : garbage collector may remove them
+	 * under memory pressure.
+	 */
+	SOFT,
+	
+	/**
+	 * Proxy classes are weakly referenced : they're removed once no proxy
+	 * uses them anymore.
+	 */
+	WEAK,
+	
+	/**
+	 * Proxy classes are kept as long as their delegated type, but oldest
+	 * generated classes are removed once cache's maximum size is reached.
+	 */
+	BOUNDED;
+    }
+    
+    /**
+     * Cache's policy.
+     */
+    private final Policy policy;
+    
+    /**
+     * Maximum size of a bounded cache.
+     */
+    private final int maximumSize;
+    
+    /**
+     * Cached proxy classes (or references to proxy classes) of each delegated
+     * type.
+     */
+    private final ClassValue<Map<Object, Object>> entries = new ClassValue<Map<Object, Object>>()
+    {
+	@Override
+	protected Map<Object, Object> computeValue(Class<?> type)
+	{
+	    return new ConcurrentHashMap<>();
+	}
+    };
+    
+    /**
+     * Insertion order of a bounded cache.
+     */
+    private final Queue<Entry> insertions;
+    
+    /**
+     * Entries of a bounded cache whose delegated type has been unloaded.
+     */
+    private final ReferenceQueue<Map<Object, Object>> unloaded;
+    
+    /**
+     * Count of stored classes of a bounded cache.
+     */
+    private final AtomicInteger size;
+    
+    /**
+     * Count of proxy classes found into cache.
+     */
+    private final LongAdder hits = new LongAdder();
+    
+    /**
+     * Count of proxy classes not found into cache.
+     */
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * Count of generated proxy classes.
+     */
+    private final LongAdder generations = new LongAdder();
+    
+    /**
+     * Time spent to generate proxy classes (in nanoseconds).
+     */
+    private final LongAdder generationTime = new LongAdder();
+    
+    /**
+     * Count of proxy classes removed from cache.
+     */
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * Build a cache.
+     * 
+     * @param policy
+     *            cache's policy
+     * @param maximumSize
+     *            maximum size of a bounded cache
+     */
+    private ProxyClassCache(Policy policy, int maximumSize)
+    {
+	this.policy = policy;
+	this.maximumSize = maximumSize;
+	this.insertions = policy == Policy.BOUNDED ? new ConcurrentLinkedQueue<>() : null;
+	this.size = policy == Policy.BOUNDED ? new AtomicInteger() : null;
+	this.unloaded = policy == Policy.BOUNDED ? new ReferenceQueue<>() : null;
+    }
+    
+    /**
+     * Create a cache with {@code policy} as policy.
+     * 
+     * @param policy
+     *            cache's policy
+     * @return created cache
+     * @throws NullPointerException
+     *             if {@code policy} is null
+     */
+    public static ProxyClassCache of(Policy policy) throws NullPointerException
+    {
+	if (policy == null)
+	    throw new NullPointerException("excepted a policy but got null");
+	
+	return new ProxyClassCache(policy, DEFAULT_MAXIMUM_SIZE);
+    }
+    
+    /**
+     * Create a bounded cache.
+     * 
+     * @param maximumSize
+     *            maximum count of stored proxy classes
+     * @return created cache
+     * @throws IllegalArgumentException
+     *             if {@code maximumSize} isn't strictly positive
+     * @see Policy#BOUNDED
+     */
+    public static ProxyClassCache bounded(int maximumSize) throws IllegalArgumentException
+    {
+	if (maximumSize <= 0)
+	    throw new IllegalArgumentException("maximum size must be strictly positive");
+	
+	return new ProxyClassCache(Policy.BOUNDED, maximumSize);
+    }
+    
+    /**
+     * Create default cache from system properties.
+     * 
+     * <p>
+     * Hidden proxy classes are strongly kept unless another policy is chosen
+     * (they would be generated again each time they're collected).
+     * </p>
+     * 
+     * @return default cache
+     */
+    static ProxyClassCache fromSystemProperties()
+    {
+	Policy policy = HiddenClassDefiner.isAvailable() ? Policy.STRONG : Policy.SOFT;
+	int maximumSize = DEFAULT_MAXIMUM_SIZE;
+	try
+	{
+	    String name = System.getProperty("delegateme.cache.policy", "").trim();
+	    if (!name.isEmpty())
+		policy = Policy.valueOf(name.toUpperCase());
+	    maximumSize = Integer.getInteger("delegateme.cache.size", maximumSize);
+	} catch (IllegalArgumentException | SecurityException ex)
+	{
+	    // Invalid configuration, default one is used
+	    ex.printStackTrace();
+	}
+	
+	return maximumSize > 0 ? new ProxyClassCache(policy, maximumSize) : of(policy);
+    }
+    
+    /**
+     * Getting proxy class stored with {@code key} or generate it.
+     * 
+     * @param type
+     *            delegated type
+     * @param key
+     *            proxy class' key
+     * @param generator
+     *            proxy class' generator
+     * @return found or generated proxy class
+     */
+    Class<?> findOrInsert(Class<?> type, Object key, Supplier<Class<?>> generator)
+    {
+	Map<Object, Object> stored = this.entries.get(type);
+	while (true)
+	{
+	    Object value = stored.get(key);
+	    if (value instanceof Generation)
+	    {
+		// Another thread is generating this class
+		this.hits.increment();
+		return ((Generation) value).await();
+	    }
+	    
+	    Class<?> proxyClass = this.unwrap(value);
+	    if (proxyClass != null)
+	    {
+		this.hits.increment();
+		return proxyClass;
+	    }
+	    
+	    // Only one thread is allowed to generate the class
+	    Generation generation = new Generation();
+	    boolean owner = value == null ? stored.putIfAbsent(key, generation) == null
+		    : stored.replace(key, value, generation);
+	    if (!owner)
+		continue;
+	    
+	    this.misses.increment();
+	    long start = System.nanoTime();
+	    try
+	    {
+		proxyClass = generator.get();
+	    } catch (RuntimeException | Error ex)
+	    {
+		stored.remove(key, generation);
+		generation.completeExceptionally(ex);
+		throw ex;
+	    }
+	    this.generationTime.add(System.nanoTime() - start);
+	    this.generations.increment();
+	    
+	    stored.replace(key, generation, this.wrap(proxyClass));
+	    generation.complete(proxyClass);
+	    
+	    if (this.policy == Policy.BOUNDED && value == null)
+	    {
+		this.forgetUnloaded();
+		this.insertions.add(new Entry(stored, key, this.unloaded));
+		if (this.size.incrementAndGet() > this.maximumSize)
+		    this.evictOldest();
+	    } else if (value instanceof Reference)
+	    {
+		// Previous class has been reclaimed by garbage collector
+		this.evictions.increment();
+	    }
+	    
+	    return proxyClass;
+	}
+    }
+    
+    /**
+     * Remove oldest proxy classes of a bounded cache until its size fit into
+     * maximum size.
+     */
+    private void evictOldest()
+    {
+	while (this.size.get() > this.maximumSize)
+	{
+	    Entry oldest = this.insertions.poll();
+	    if (oldest == null)
+		return;
+	    
+	    Map<Object, Object> stored = oldest.get();
+	    Object key = oldest.key.get();
+	    if (stored == null || key == null)
+	    {
+		// Delegated type has been unloaded with its proxy classes
+		this.size.decrementAndGet();
+	    } else if (stored.remove(key) != null)
+	    {
+		this.size.decrementAndGet();
+		this.evictions.increment();
+	    }
+	}
+    }
+    
+    /**
+     * Remove entries of unloaded delegated types from a bounded cache, so they
+     * don't count into its size anymore.
+     */
+    private void forgetUnloaded()
+    {
+	for (Reference<?> cleared = this.unloaded.poll(); cleared != null; cleared = this.unloaded.poll())
+	{
+	    // Only the thread removing entry from insertions updates size
+	    if (this.insertions.remove(cleared))
+		this.size.decrementAndGet();
+	}
+    }
+    
+    /**
+     * Wrap {@code proxyClass} depending on cache's policy.
+     * 
+     * @param proxyClass
+     *            proxy class to store
+     * @return stored value
+     */
+    private Object wrap(Class<?> proxyClass)
+    {
+	switch (this.policy)
+	{
+	    case SOFT:
+		return new SoftReference<>(proxyClass);
+	    case WEAK:
+		return new WeakReference<>(proxyClass);
+	    default:
+		return proxyClass;
+	}
+    }
+    
+    /**
+     * Unwrap a stored value.
+     * 
+     * @param value
+     *            stored value (may be {@code null})
+     * @return stored proxy class or {@code null} if not found (or reclaimed)
+     */
+    private Class<?> unwrap(Object value)
+    {
+	if (value instanceof Reference)
+	    return (Class<?>) ((Reference<?>) value).get();
+	
+	return (Class<?>) value;
+    }
+    
+    /**
+     * Getting cache's policy.
+     * 
+     * @return cache's policy
+     */
+    public Policy getPolicy()
+    {
+	return this.policy;
+    }
+    
+    /**
+     * Getting maximum count of stored proxy classes if this cache is bounded.
+     * 
+     * @return maximum size
+     */
+    public int getMaximumSize()
+    {
+	return this.maximumSize;
+    }
+    
+    /**
+     * Getting a snapshot of cache's statistics.
+     * 
+     * @return cache's statistics
+     */
+    public Statistics getStatistics()
+    {
+	return new Statistics(this.hits.sum(), this.misses.sum(), this.generations.sum(), this.generationTime.sum(),
+		this.evictions.sum());
+    }
+    
+    @Override
+    public String toString()
+    {
+	return "ProxyClassCache[" + this.policy + (this.policy == Policy.BOUNDED ? "(" + this.maximumSize + ")" : "")
+		+ ", " + this.getStatistics() + "]";
+    }
+    
+    /**
+     * A proxy class being generated.
+     * 
+     * <p>
+     * It's stored into cache while its class is generated, so other threads wait
+     * for it instead of generating the same class.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Generation extends CompletableFuture<Class<?>>
+    {
+	/**
+	 * Wait for generated class.
+	 * 
+	 * @return generated class
+	 */
+	private Class<?> await()
+	{
+	    try
+	    {
+		return this.join();
+	    } catch (CompletionException ex)
+	    {
+		Throwable cause = ex.getCause();
+		if (cause instanceof RuntimeException)
+		    throw (RuntimeException) cause;
+		if (cause instanceof Error)
+		    throw (Error) cause;
+		
+		throw ex;
+	    }
+	}
+    }
+    
+    /**
+     * A proxy class stored into a bounded cache.
+     * 
+     * <p>
+     * It weakly references map where proxy class is stored (and its key, which
+     * references delegated type) : insertion order never keeps a delegated type
+     * (and its class loader) alive.
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Entry extends WeakReference<Map<Object, Object>>
+    {
+	/**
+	 * Proxy class' key.
+	 */
+	private final WeakReference<Object> key;
+	
+	/**
+	 * Build an entry.
+	 * 
+	 * @param stored
+	 *            map where proxy class is stored
+	 * @param key
+	 *            proxy class' key
+	 * @param unloaded
+	 *            queue receiving entry once delegated type is unloaded
+	 */
+	private Entry(Map<Object, Object> stored, Object key, ReferenceQueue<Map<Object, Object>> unloaded)
+	{
+	    super(stored, unloaded);
+	    this.key = new WeakReference<>(key);
+	}
+    }
+    
+    /**
+     * Statistics of a proxy class cache.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class Statistics
+    {
+	/**
+	 * Count of proxy classes found into cache.
+	 */
+	private final long hits;
+	
+	/**
+	 * Count of proxy classes not found into cache.
+	 */
+	private final long misses;
+	
+	/**
+	 * Count of generated proxy classes.
+	 */
+	private final long generations;
+	
+	/**
+	 * Time spent to generate proxy classes (in nanoseconds).
+	 */
+	private final long generationTime;
+	
+	/**
+	 * Count of proxy classes removed from cache.
+	 */
+	private final long evictions;
+	
+	/**
+	 * Build a snapshot.
+	 * 
+	 * @param hits
+	 *            count of proxy classes found into cache
+	 * @param misses
+	 *            count of proxy classes not found into cache
+	 * @param generations
+	 *            count of generated proxy classes
+	 * @param generationTime
+	 *            time spent to generate proxy classes
+	 * @param evictions
+	 *            count of proxy classes removed from cache
+	 */
+	private Statistics(long hits, long misses, long generations, long generationTime, long evictions)
+	{
+	    this.hits = hits;
+	    this.misses = misses;
+	    this.generations = generations;
+	    this.generationTime = generationTime;
+	    this.evictions = evictions;
+	}
+	
+	/**
+	 * Getting count of proxy classes found into cache.
+	 * 
+	 * @return hit count
+	 */
+	public long getHits()
+	{
+	    return this.hits;
+	}
+	
+	/**
+	 * Getting count of proxy classes not found into cache.
+	 * 
+	 * @return miss count
+	 */
+	public long getMisses()
+	{
+	    return this.misses;
+	}
+	
+	/**
+	 * Getting count of generated proxy classes.
+	 * 
+	 * <p>
+	 * It includes proxy classes generated ahead of time and only loaded at
+	 * runtime.
+	 * </p>
+	 * 
+	 * @return generation count
+	 */
+	public long getGenerations()
+	{
+	    return this.generations;
+	}
+	
+	/**
+	 * Getting time spent to generate (or load) proxy classes.
+	 * 
+	 * @return generation time in nanoseconds
+	 */
+	public long getGenerationTime()
+	{
+	    return this.generationTime;
+	}
+	
+	/**
+	 * Getting count of proxy classes removed from cache (by a bounded cache or
+	 * reclaimed by garbage collector).
+	 * 
+	 * <p>
+	 * Reclaimed classes are counted only once they're generated again.
+	 * </p>
+	 * 
+	 * @return eviction count
+	 */
+	public long getEvictions()
+	{
+	    return this.evictions;
+	}
+	
+	@Override
+	public String toString()
+	{
+	    return "hits=" + this.hits + ", misses=" + this.misses + ", generations=" + this.generations
+		    + ", generationTime=" + (this.generationTime / 1_000_000L) + "ms, evictions=" + this.evictions;
+	}
+    }
+}
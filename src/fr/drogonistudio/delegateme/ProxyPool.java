@@ -0,0 +1,319 @@
+package fr.drogonistudio.delegateme;
+
+import java.util.BitSet;
+
+/**
+ * A pool of reusable proxies.
+ * 
+ * <p>
+ * A pool keep released proxies of a single type and rebind them to new
+ * delegators (see {@link DelegatorFactory#rebind(Object, Delegator)}) instead
+ * of warping new objects. It's intended to short-lived proxies (created and
+ * dropped for each request for example).
+ * </p>
+ * 
+ * <p>
+ * Each thread got its own stack of released proxies, so acquiring and releasing
+ * proxies never need any synchronization. Each stack keep at most
+ * {@link #getCapacity()} proxies : proxies released when the stack is full are
+ * simply dropped.
+ * </p>
+ * 
+ * <p>
+ * A released proxy loses its delegator and its reference fields are cleared, so
+ * it doesn't keep previous delegated object's graph alive (primitive fields are
+ * kept until it's acquired again). It must not be used anymore once released.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Instance>
+ *            wrapped objects' type
+ */
+public final class ProxyPool<Instance>
+{
+    
+    /**
+     * Wrapped objects' type.
+     */
+    private final Class<Instance> type;
+    
+    /**
+     * Methods intercepted by pooled proxies.
+     */
+    private final MethodMatcher interceptedMethods;
+    
+    /**
+     * Intercepted methods' mask into {@link #type}'s method table.
+     */
+    private final BitSet interceptedMask;
+    
+    /**
+     * Last known class of pooled proxies.
+     * 
+     * <p>
+     * Proxy class may be generated again once it has been removed from proxy
+     * classes cache, so it's resolved again when a released proxy doesn't match.
+     * </p>
+     */
+    private volatile Class<?> proxyClass;
+    
+    /**
+     * Fields copier of {@link #type} ({@code null} for interfaces).
+     */
+    private final FieldCopier copier;
+    
+    /**
+     * Maximum count of proxies kept by each thread.
+     */
+    private final int capacity;
+    
+    /**
+     * Released proxies of each thread.
+     */
+    private final ThreadLocal<Stack> stacks;
+    
+    /**
+     * Build a pool.
+     * 
+     * @param type
+     *            wrapped objects' type
+     * @param interceptedMethods
+     *            methods intercepted by pooled proxies
+     * @param capacity
+     *            maximum count of proxies kept by each thread
+     */
+    private ProxyPool(Class<Instance> type, MethodMatcher interceptedMethods, int capacity)
+    {
+	this.type = type;
+	this.interceptedMethods = interceptedMethods;
+	this.interceptedMask = interceptedMethods.maskOf(MethodTable.of(type));
+	this.proxyClass = DelegatorFactory.proxyClassOf(type, interceptedMethods);
+	this.copier = type.isInterface() ? null : FieldCopier.of(type);
+	this.capacity = capacity;
+	this.stacks = ThreadLocal.withInitial(() -> new Stack(capacity));
+    }
+    
+    /**
+     * Create a pool of proxies intercepting all methods.
+     * 
+     * @param <Instance>
+     *            wrapped objects' type
+     * @param type
+     *            wrapped objects' type
+     * @param capacity
+     *            maximum count of proxies kept by each thread
+     * @return created pool
+     * @throws IllegalArgumentException
+     *             if {@code capacity} is negative
+     */
+    public static <Instance> ProxyPool<Instance> of(Class<Instance> type, int capacity)
+	    throws IllegalArgumentException
+    {
+	return of(type, MethodMatcher.any(), capacity);
+    }
+    
+    /**
+     * Create a pool of proxies intercepting methods matched by
+     * {@code interceptedMethods}.
+     * 
+     * <p>
+     * Delegators given to {@link #acquire(Delegator)} must use a matcher
+     * selecting the same methods.
+     * </p>
+     * 
+     * @param <Instance>
+     *            wrapped objects' type
+     * @param type
+     *            wrapped objects' type
+     * @param interceptedMethods
+     *            methods intercepted by pooled proxies
+     * @param capacity
+     *            maximum count of proxies kept by each thread
+     * @return created pool
+     * @throws IllegalArgumentException
+     *             if {@code capacity} is negative
+     * @throws NullPointerException
+     *             if {@code interceptedMethods} is null
+     */
+    public static <Instance> ProxyPool<Instance> of(Class<Instance> type, MethodMatcher interceptedMethods,
+	    int capacity) throws IllegalArgumentException, NullPointerException
+    {
+	if (capacity < 0)
+	    throw new IllegalArgumentException("capacity must be positive");
+	if (interceptedMethods == null)
+	    throw new NullPointerException("excepted a method matcher but got null");
+	
+	return new ProxyPool<>(type, interceptedMethods, capacity);
+    }
+    
+    /**
+     * Getting a proxy bound to {@code delegator}.
+     * 
+     * <p>
+     * A proxy released by current thread is reused if there is one. Otherwise, a
+     * new object is warped.
+     * </p>
+     * 
+     * @param delegator
+     *            delegator to use
+     * @return proxy bound to {@code delegator}
+     * @throws IllegalArgumentException
+     *             if {@code delegator} doesn't intercept the same methods as
+     *             pooled proxies
+     */
+    public Instance acquire(Delegator<Instance> delegator) throws IllegalArgumentException
+    {
+	MethodMatcher matcher = delegator.getInterceptedMethods();
+	if (matcher != this.interceptedMethods
+		&& !matcher.maskOf(MethodTable.of(this.type)).equals(this.interceptedMask))
+	    throw new IllegalArgumentException(delegator + " doesn't intercept the same methods as pooled proxies");
+	
+	Object pooled = this.stacks.get().pop();
+	if (pooled == null)
+	    return DelegatorFactory.warp(this.type, delegator);
+	
+	// Same as DelegatorFactory.rebind, but proxy class has been checked on release
+	if (this.copier != null)
+	    this.copier.copy(delegator.getDelegated(), pooled);
+	((DelegatorFactory.ProxiedObject) pooled)._DELEGATEME_setDelegator(delegator);
+	
+	return this.type.cast(pooled);
+    }
+    
+    /**
+     * Give back {@code proxy} to this pool.
+     * 
+     * <p>
+     * {@code proxy}'s delegator is removed, its reference fields are cleared and
+     * it's kept by current thread (if its stack isn't full). Proxies which don't
+     * intercept the same methods as pooled proxies are ignored.
+     * </p>
+     * 
+     * @param proxy
+     *            proxy to release
+     * @return {@code true} if {@code proxy} has been kept
+     */
+    public boolean release(Instance proxy)
+    {
+	if (proxy == null || !this.isPooledClass(proxy.getClass()))
+	    return false;
+	
+	((DelegatorFactory.ProxiedObject) proxy)._DELEGATEME_setDelegator(null);
+	if (this.copier != null)
+	    this.copier.clearReferences(proxy);
+	return this.stacks.get().push(proxy);
+    }
+    
+    /**
+     * Checking if proxies of {@code candidate} can be pooled.
+     * 
+     * <p>
+     * If {@code candidate} isn't the last known proxy class, proxy class is
+     * resolved again from proxy classes cache.
+     * </p>
+     * 
+     * @param candidate
+     *            released proxy's class
+     * @return {@code true} if {@code candidate} is current proxy class of this
+     *         pool
+     */
+    private boolean isPooledClass(Class<?> candidate)
+    {
+	if (candidate == this.proxyClass)
+	    return true;
+	
+	Class<?> current = DelegatorFactory.proxyClassOf(this.type, this.interceptedMethods);
+	this.proxyClass = current;
+	return candidate == current;
+    }
+    
+    /**
+     * Getting wrapped objects' type.
+     * 
+     * @return pool's type
+     */
+    public Class<Instance> getType()
+    {
+	return this.type;
+    }
+    
+    /**
+     * Getting maximum count of proxies kept by each thread.
+     * 
+     * @return pool's capacity
+     */
+    public int getCapacity()
+    {
+	return this.capacity;
+    }
+    
+    /**
+     * Getting count of proxies kept by current thread.
+     * 
+     * @return count of available proxies
+     */
+    public int available()
+    {
+	return this.stacks.get().size;
+    }
+    
+    /**
+     * Released proxies of a thread.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Stack
+    {
+	/**
+	 * Kept proxies.
+	 */
+	private final Object proxies[];
+	
+	/**
+	 * Count of kept proxies.
+	 */
+	private int size;
+	
+	/**
+	 * Build an empty stack.
+	 * 
+	 * @param capacity
+	 *            maximum count of kept proxies
+	 */
+	private Stack(int capacity)
+	{
+	    this.proxies = new Object[capacity];
+	}
+	
+	/**
+	 * Keep {@code proxy} if stack isn't full.
+	 * 
+	 * @param proxy
+	 *            proxy to keep
+	 * @return {@code true} if {@code proxy} has been kept
+	 */
+	private boolean push(Object proxy)
+	{
+	    if (this.size == this.proxies.length)
+		return false;
+	    
+	    this.proxies[this.size++] = proxy;
+	    return true;
+	}
+	
+	/**
+	 * Take last kept proxy.
+	 * 
+	 * @return last kept proxy or {@code null} if stack is empty
+	 */
+	private Object pop()
+	{
+	    if (this.size == 0)
+		return null;
+	    
+	    Object proxy = this.proxies[--this.size];
+	    this.proxies[this.size] = null;
+	    return proxy;
+	}
+    }
+}
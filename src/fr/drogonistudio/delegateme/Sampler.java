@@ -0,0 +1,250 @@
+package fr.drogonistudio.delegateme;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A policy selecting which invocations are intercepted.
+ * 
+ * <p>
+ * A sampler is given to {@link DelegatorFactory#setSampler(Class, Sampler)} to
+ * keep always-on delegators (like {@link TracingDelegator} or
+ * {@link MetricsDelegator}) cheap : before each intercepted invocation, proxy
+ * asks sampler if this invocation must reach its delegator. Other invocations
+ * are directly forwarded to delegated object, as methods which aren't
+ * intercepted (no {@link java.lang.reflect.Method}, no argument array and no
+ * {@link Invocation}).
+ * </p>
+ * 
+ * <p>
+ * {@link #sample()} is called on each intercepted invocation by any thread, so
+ * it must be thread-safe and as cheap as possible.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see DelegatorFactory#setSampler(Class, Sampler)
+ */
+public abstract class Sampler
+{
+    
+    /**
+     * Sampler never selecting any invocation.
+     */
+    private static final Sampler NEVER = new Sampler()
+    {
+	
+	@Override
+	public boolean sample()
+	{
+	    return false;
+	}
+	
+	@Override
+	public String toString()
+	{
+	    return "Sampler.never()";
+	}
+    };
+    
+    /**
+     * Build a sampler.
+     */
+    protected Sampler()
+    {
+    }
+    
+    /**
+     * Checking if current invocation must be intercepted.
+     * 
+     * @return {@code true} if current invocation must reach delegator,
+     *         {@code false} to directly forward it to delegated object
+     */
+    public abstract boolean sample();
+    
+    /**
+     * Getting a sampler never selecting any invocation.
+     * 
+     * <p>
+     * It allow to turn off delegators of a type : all invocations are directly
+     * forwarded to delegated objects.
+     * </p>
+     * 
+     * @return shared sampler selecting nothing
+     */
+    public static Sampler never()
+    {
+	return NEVER;
+    }
+    
+    /**
+     * Build a sampler selecting one invocation in {@code rate} invocations.
+     * 
+     * <p>
+     * Invocations are randomly selected by a per-thread generator : no state is
+     * shared between threads, and one invocation in {@code rate} is selected on
+     * average (without following any periodic pattern of invocations).
+     * </p>
+     * 
+     * @param rate
+     *            how many invocations for one selected invocation
+     * @return built sampler
+     * @throws IllegalArgumentException
+     *             if {@code rate} is lower than {@code 1}
+     */
+    public static Sampler oneIn(int rate) throws IllegalArgumentException
+    {
+	if (rate < 1)
+	    throw new IllegalArgumentException("sampling rate must be positive");
+	
+	return new OneIn(rate);
+    }
+    
+    /**
+     * Build a sampler selecting at most {@code count} invocations per
+     * {@code period}.
+     * 
+     * <p>
+     * First invocations of each period are selected until budget is exhausted,
+     * then all invocations are forwarded until next period. Once budget is
+     * exhausted, checking an invocation only read shared state.
+     * </p>
+     * 
+     * @param count
+     *            selected invocations per period
+     * @param period
+     *            period's length
+     * @param unit
+     *            {@code period}'s unit
+     * @return built sampler
+     * @throws NullPointerException
+     *             if {@code unit} is null
+     * @throws IllegalArgumentException
+     *             if {@code count} or {@code period} are negative or if
+     *             {@code period} is {@code 0}
+     */
+    public static Sampler budget(long count, long period, TimeUnit unit)
+	    throws NullPointerException, IllegalArgumentException
+    {
+	if (unit == null)
+	    throw new NullPointerException("excepted a time unit but got null");
+	if (count < 0L)
+	    throw new IllegalArgumentException("budget can't be negative");
+	if (period <= 0L)
+	    throw new IllegalArgumentException("period must be positive");
+	
+	return new Budget(count, unit.toNanos(period));
+    }
+    
+    /**
+     * Sampler randomly selecting one invocation in a given rate.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class OneIn extends Sampler
+    {
+	
+	/**
+	 * How many invocations for one selected invocation.
+	 */
+	private final int rate;
+	
+	/**
+	 * Build sampler.
+	 * 
+	 * @param rate
+	 *            how many invocations for one selected invocation
+	 */
+	OneIn(int rate)
+	{
+	    this.rate = rate;
+	}
+	
+	@Override
+	public boolean sample()
+	{
+	    return this.rate == 1 || ThreadLocalRandom.current().nextInt(this.rate) == 0;
+	}
+	
+	@Override
+	public String toString()
+	{
+	    return "Sampler.oneIn(" + this.rate + ")";
+	}
+    }
+    
+    /**
+     * Sampler selecting a given count of invocations per period.
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Budget extends Sampler
+    {
+	
+	/**
+	 * Selected invocations per period.
+	 */
+	private final long count;
+	
+	/**
+	 * Period's length in nanoseconds.
+	 */
+	private final long period;
+	
+	/**
+	 * End of current period (in {@link System#nanoTime()}'s time).
+	 */
+	private volatile long periodEnd;
+	
+	/**
+	 * Selected invocations during current period.
+	 */
+	private final AtomicLong used = new AtomicLong();
+	
+	/**
+	 * Build sampler.
+	 * 
+	 * @param count
+	 *            selected invocations per period
+	 * @param period
+	 *            period's length in nanoseconds
+	 */
+	Budget(long count, long period)
+	{
+	    this.count = count;
+	    this.period = period;
+	    this.periodEnd = System.nanoTime() + period;
+	}
+	
+	@Override
+	public boolean sample()
+	{
+	    long now = System.nanoTime();
+	    long end = this.periodEnd;
+	    if (now - end >= 0L)
+	    {
+		// Only one thread starts next period, others use remaining budget
+		synchronized (this)
+		{
+		    if (this.periodEnd == end)
+		    {
+			this.used.set(0L);
+			this.periodEnd = now + this.period;
+		    }
+		}
+	    }
+	    
+	    // Budget exhausted: only a read, no write contention between callers
+	    if (this.used.get() >= this.count)
+		return false;
+	    
+	    return this.used.incrementAndGet() <= this.count;
+	}
+	
+	@Override
+	public String toString()
+	{
+	    return "Sampler.budget(" + this.count + ", " + this.period + ", NANOSECONDS)";
+	}
+    }
+}
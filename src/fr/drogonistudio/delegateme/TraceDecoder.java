@@ -0,0 +1,235 @@
+package fr.drogonistudio.delegateme;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A tool turning a trace file back into readable text.
+ * 
+ * <p>
+ * Each event is written on its own line, with its wall clock time, its thread,
+ * invoked method and its recorded arguments, its duration and
+ * {@code " threw"} if invocation failed. For example :
+ * </p>
+ * 
+ * <pre>
+ * 2021-11-20T10:15:30.123456789Z [main#1] com.example.Service.compute(42) 153 ns
+ * </pre>
+ * 
+ * <p>
+ * It can be used from command line :
+ * {@code java fr.drogonistudio.delegateme.TraceDecoder <trace file>}.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see TraceRecorder
+ */
+public final class TraceDecoder
+{
+    
+    private TraceDecoder()
+    {
+    }
+    
+    /**
+     * Decode trace file given as first argument on standard output.
+     * 
+     * @param args
+     *            command line arguments
+     * @throws IOException
+     *             if trace file can't be read
+     */
+    public static void main(String args[]) throws IOException
+    {
+	if (args.length != 1)
+	{
+	    System.err.println("Usage: java " + TraceDecoder.class.getName() + " <trace file>");
+	    System.exit(1);
+	}
+	
+	Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+	decode(Paths.get(args[0]), out);
+	out.flush();
+    }
+    
+    /**
+     * Decode a trace file.
+     * 
+     * <p>
+     * A trace file may be decoded while it's still written : only events drained
+     * so far are decoded.
+     * </p>
+     * 
+     * @param file
+     *            trace file
+     * @param out
+     *            where decoded events are written
+     * @return decoded events count
+     * @throws NullPointerException
+     *             if an argument is null
+     * @throws IOException
+     *             if trace file can't be read or if it isn't a trace file
+     */
+    public static long decode(Path file, Appendable out) throws NullPointerException, IOException
+    {
+	if (file == null || out == null)
+	    throw new NullPointerException("excepted a trace file and an output but got null");
+	
+	ByteBuffer buffer;
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+	{
+	    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+	}
+	
+	if (buffer.remaining() < TraceRecorder.HEADER_SIZE || buffer.getLong() != TraceRecorder.MAGIC)
+	    throw new IOException(file + " isn't a trace file");
+	
+	long epochMillis = buffer.getLong();
+	long nanoAnchor = buffer.getLong();
+	
+	Map<Integer, String> methods = new HashMap<>();
+	Map<Integer, Integer> parameterCounts = new HashMap<>();
+	Map<Long, String> threads = new HashMap<>();
+	Map<Integer, String> classes = new HashMap<>();
+	StringBuilder line = new StringBuilder();
+	long count = 0L;
+	
+	while (buffer.hasRemaining())
+	{
+	    byte tag = buffer.get();
+	    switch (tag)
+	    {
+		case TraceRecorder.END:
+		    return count;
+		case TraceRecorder.METHOD:
+		{
+		    int id = buffer.getInt();
+		    parameterCounts.put(id, buffer.get() & 0xFF);
+		    methods.put(id, readName(buffer));
+		    break;
+		}
+		case TraceRecorder.THREAD:
+		{
+		    long id = buffer.getLong();
+		    threads.put(id, readName(buffer));
+		    break;
+		}
+		case TraceRecorder.CLASS:
+		{
+		    int id = buffer.getInt();
+		    classes.put(id, readName(buffer));
+		    break;
+		}
+		case TraceRecorder.EVENT:
+		{
+		    long threadId = buffer.getLong();
+		    int methodId = buffer.getInt();
+		    int flags = buffer.get();
+		    int recorded = buffer.get();
+		    long start = buffer.getLong();
+		    long duration = buffer.getLong();
+		    
+		    line.setLength(0);
+		    line.append(Instant.ofEpochSecond(0L, epochMillis * 1_000_000L + (start - nanoAnchor)));
+		    line.append(" [").append(threads.getOrDefault(threadId, "?")).append('#').append(threadId)
+			    .append("] ");
+		    line.append(methods.getOrDefault(methodId, "<method " + methodId + ">")).append('(');
+		    for (int i = 0; i < recorded; i++)
+		    {
+			if (i > 0)
+			    line.append(", ");
+			appendArgument(line, buffer.get(), buffer.getLong(), classes);
+		    }
+		    if (parameterCounts.getOrDefault(methodId, recorded) > recorded)
+			line.append(recorded > 0 ? ", ..." : "...");
+		    line.append(") ").append(duration).append(" ns");
+		    if ((flags & TraceRecorder.FAILED) != 0)
+			line.append(" threw");
+		    
+		    out.append(line).append(System.lineSeparator());
+		    count++;
+		    break;
+		}
+		default:
+		    throw new IOException("corrupted trace file: unknown record " + tag + " at "
+			    + (buffer.position() - 1));
+	    }
+	}
+	
+	return count;
+    }
+    
+    /**
+     * Read a name of a definition record.
+     * 
+     * @param buffer
+     *            trace file's content
+     * @return read name
+     */
+    private static String readName(ByteBuffer buffer)
+    {
+	byte name[] = new byte[buffer.getShort() & 0xFFFF];
+	buffer.get(name);
+	
+	return new String(name, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Append a recorded argument.
+     * 
+     * @param line
+     *            decoded line
+     * @param kind
+     *            argument's kind
+     * @param value
+     *            argument's summary
+     * @param classes
+     *            known classes
+     */
+    private static void appendArgument(StringBuilder line, byte kind, long value, Map<Integer, String> classes)
+    {
+	switch (kind)
+	{
+	    case TraceRecorder.BOOLEAN:
+		line.append(value != 0L);
+		break;
+	    case TraceRecorder.CHAR:
+		line.append('\'').append((char) value).append('\'');
+		break;
+	    case TraceRecorder.BYTE:
+	    case TraceRecorder.SHORT:
+	    case TraceRecorder.INT:
+		line.append((int) value);
+		break;
+	    case TraceRecorder.LONG:
+		line.append(value).append('L');
+		break;
+	    case TraceRecorder.FLOAT:
+		line.append(Float.intBitsToFloat((int) value)).append('f');
+		break;
+	    case TraceRecorder.DOUBLE:
+		line.append(Double.longBitsToDouble(value));
+		break;
+	    case TraceRecorder.REFERENCE:
+		line.append(classes.getOrDefault((int) (value >>> 32), "?")).append('@')
+			.append(Integer.toHexString((int) value));
+		break;
+	    case TraceRecorder.NULL:
+		line.append("null");
+		break;
+	    default:
+		line.append('?');
+	}
+    }
+}
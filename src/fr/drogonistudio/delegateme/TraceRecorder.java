@@ -0,0 +1,925 @@
+package fr.drogonistudio.delegateme;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A recorder writing invocation events into a trace file.
+ * 
+ * <p>
+ * Events are recorded by {@link TracingDelegator}. Each thread writes its
+ * events into its own ring buffer without any lock : an event is a few
+ * {@code long} values (method's id, timestamps and a summary of first
+ * arguments). A background thread drains all rings into a memory-mapped file.
+ * If a ring is full (or if the file is full), events are dropped instead of
+ * blocking caller. Dropped events are counted by {@link #getDroppedEvents()}.
+ * </p>
+ * 
+ * <p>
+ * Trace files are binary : they can be turned back into readable text with
+ * {@link TraceDecoder}. A trace file contains a header (magic number and clock
+ * anchors) followed by records. Each record starts with its tag : method,
+ * thread and class definitions are written before any event using them, so
+ * events only refer them by their id.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @see TracingDelegator
+ * @see TraceDecoder
+ */
+public final class TraceRecorder implements Closeable
+{
+    
+    /**
+     * Trace file's magic number ({@code "DMTRACE1"}).
+     */
+    static final long MAGIC = 0x444D545241434531L;
+    
+    /**
+     * Size of trace file's header (magic number, wall clock and monotonic clock
+     * at opening).
+     */
+    static final int HEADER_SIZE = 24;
+    
+    /**
+     * Tag of file's end (mapped file is filled with zeros).
+     */
+    static final byte END = 0;
+    
+    /**
+     * Tag of a method definition record.
+     */
+    static final byte METHOD = 1;
+    
+    /**
+     * Tag of a thread definition record.
+     */
+    static final byte THREAD = 2;
+    
+    /**
+     * Tag of a class definition record.
+     */
+    static final byte CLASS = 3;
+    
+    /**
+     * Tag of an event record.
+     */
+    static final byte EVENT = 4;
+    
+    /**
+     * Event flag set if invocation threw an exception.
+     */
+    static final int FAILED = 1;
+    
+    /**
+     * Kind of an argument which isn't recorded.
+     */
+    static final byte NONE = 0;
+    
+    /**
+     * Kind of a {@code boolean} argument.
+     */
+    static final byte BOOLEAN = 1;
+    
+    /**
+     * Kind of a {@code byte} argument.
+     */
+    static final byte BYTE = 2;
+    
+    /**
+     * Kind of a {@code char} argument.
+     */
+    static final byte CHAR = 3;
+    
+    /**
+     * Kind of a {@code short} argument.
+     */
+    static final byte SHORT = 4;
+    
+    /**
+     * Kind of a {@code int} argument.
+     */
+    static final byte INT = 5;
+    
+    /**
+     * Kind of a {@code long} argument.
+     */
+    static final byte LONG = 6;
+    
+    /**
+     * Kind of a {@code float} argument.
+     */
+    static final byte FLOAT = 7;
+    
+    /**
+     * Kind of a {@code double} argument.
+     */
+    static final byte DOUBLE = 8;
+    
+    /**
+     * Kind of a reference argument (its summary is its class' id and its
+     * identity hash code).
+     */
+    static final byte REFERENCE = 9;
+    
+    /**
+     * Kind of a {@code null} reference argument.
+     */
+    static final byte NULL = 10;
+    
+    /**
+     * Maximum count of recorded arguments for each event.
+     */
+    static final int MAX_ARGUMENTS = 5;
+    
+    /**
+     * Count of {@code long} values used by an event into rings.
+     */
+    private static final int EVENT_WORDS = 8;
+    
+    /**
+     * Size of an event record without arguments.
+     */
+    private static final int EVENT_SIZE = 1 + 8 + 4 + 1 + 1 + 8 + 8;
+    
+    /**
+     * Size of a recorded argument into an event record.
+     */
+    private static final int ARGUMENT_SIZE = 1 + 8;
+    
+    /**
+     * Default trace file's size (64 MiB).
+     */
+    public static final long DEFAULT_FILE_SIZE = 64L << 20;
+    
+    /**
+     * Default count of events kept by each thread's ring.
+     */
+    public static final int DEFAULT_RING_CAPACITY = 1024;
+    
+    /**
+     * Count of events kept by a new ring (it grows up to recorder's ring capacity
+     * when it's full).
+     */
+    private static final int INITIAL_RING_CAPACITY = 16;
+    
+    /**
+     * Delay between two drains if there was nothing to drain.
+     */
+    private static final long DRAIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1L);
+    
+    /**
+     * Count of recorders opened so far (used to name drainer threads).
+     */
+    private static final AtomicInteger OPENED = new AtomicInteger();
+    
+    /**
+     * Trace file.
+     */
+    private final Path file;
+    
+    /**
+     * Trace file's channel.
+     */
+    private final FileChannel channel;
+    
+    /**
+     * Mapped trace file (only used by drainer thread).
+     */
+    private final MappedByteBuffer buffer;
+    
+    /**
+     * Maximum count of events kept by each thread's ring (a power of two).
+     */
+    private final int ringCapacity;
+    
+    /**
+     * Ring of each thread.
+     */
+    private final ThreadLocal<Ring> rings;
+    
+    /**
+     * Rings to drain.
+     * 
+     * <p>
+     * A new ring is added without copying other rings, so the first traced call
+     * of each thread stays cheap (even with a thread per task).
+     * </p>
+     */
+    private final ConcurrentLinkedQueue<Ring> activeRings;
+    
+    /**
+     * Encoded definitions to write before next events.
+     */
+    private final ConcurrentLinkedQueue<byte[]> definitions;
+    
+    /**
+     * Traced tables of each registered type.
+     */
+    private final Map<Class<?>, TracedTable> tables;
+    
+    /**
+     * Next method's id.
+     */
+    private final AtomicInteger nextMethodId;
+    
+    /**
+     * Next class' id.
+     */
+    private final AtomicInteger nextClassId;
+    
+    /**
+     * Id of each class given as argument.
+     */
+    private final ClassValue<Integer> classIds;
+    
+    /**
+     * Dropped events count.
+     */
+    private final LongAdder dropped;
+    
+    /**
+     * Written events count.
+     */
+    private final AtomicLong written;
+    
+    /**
+     * Thread draining rings into trace file.
+     */
+    private final Thread drainer;
+    
+    /**
+     * Set once recorder is closed.
+     */
+    private volatile boolean closed;
+    
+    /**
+     * Set once trace file is full.
+     */
+    private boolean full;
+    
+    /**
+     * Open a recorder.
+     * 
+     * @param file
+     *            trace file
+     * @param channel
+     *            trace file's channel
+     * @param size
+     *            trace file's size
+     * @param ringCapacity
+     *            count of events kept by each thread's ring
+     * @throws IOException
+     *             if trace file can't be mapped
+     */
+    private TraceRecorder(Path file, FileChannel channel, long size, int ringCapacity) throws IOException
+    {
+	this.file = file;
+	this.channel = channel;
+	this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+	this.ringCapacity = ringCapacity == 1 ? 1 : Integer.highestOneBit(ringCapacity - 1) << 1;
+	this.rings = ThreadLocal.withInitial(this::newRing);
+	this.activeRings = new ConcurrentLinkedQueue<>();
+	this.definitions = new ConcurrentLinkedQueue<>();
+	this.tables = new ConcurrentHashMap<>();
+	this.nextMethodId = new AtomicInteger();
+	this.nextClassId = new AtomicInteger();
+	this.classIds = new ClassValue<Integer>()
+	{
+	    @Override
+	    protected Integer computeValue(Class<?> type)
+	    {
+		return TraceRecorder.this.defineClass(type);
+	    }
+	};
+	this.dropped = new LongAdder();
+	this.written = new AtomicLong();
+	
+	this.buffer.putLong(MAGIC);
+	this.buffer.putLong(System.currentTimeMillis());
+	this.buffer.putLong(System.nanoTime());
+	
+	this.drainer = new Thread(this::drainLoop, "DelegateMe-trace-" + OPENED.incrementAndGet());
+	this.drainer.setDaemon(true);
+	this.drainer.start();
+    }
+    
+    /**
+     * Open a recorder writing into {@code file} with default settings.
+     * 
+     * @param file
+     *            trace file (replaced if it already exists)
+     * @return opened recorder
+     * @throws NullPointerException
+     *             if {@code file} is null
+     * @throws IOException
+     *             if trace file can't be created
+     * @see #open(Path, long, int)
+     */
+    public static TraceRecorder open(Path file) throws NullPointerException, IOException
+    {
+	return open(file, DEFAULT_FILE_SIZE, DEFAULT_RING_CAPACITY);
+    }
+    
+    /**
+     * Open a recorder writing into {@code file}.
+     * 
+     * <p>
+     * Trace file is mapped with {@code size} bytes at once. Once it's full, next
+     * events are dropped. {@code ringCapacity} is rounded up to a power of two.
+     * Rings start with a few events and grow up to {@code ringCapacity} only when
+     * their thread records faster than they're drained.
+     * </p>
+     * 
+     * @param file
+     *            trace file (replaced if it already exists)
+     * @param size
+     *            trace file's size
+     * @param ringCapacity
+     *            maximum count of events kept by each thread until they're
+     *            drained
+     * @return opened recorder
+     * @throws NullPointerException
+     *             if {@code file} is null
+     * @throws IllegalArgumentException
+     *             if {@code size} is too small or larger than
+     *             {@link Integer#MAX_VALUE}, or if {@code ringCapacity} isn't
+     *             positive
+     * @throws IOException
+     *             if trace file can't be created
+     */
+    public static TraceRecorder open(Path file, long size, int ringCapacity)
+	    throws NullPointerException, IllegalArgumentException, IOException
+    {
+	if (file == null)
+	    throw new NullPointerException("excepted a trace file but got null");
+	if (size <= HEADER_SIZE || size > Integer.MAX_VALUE)
+	    throw new IllegalArgumentException("invalid trace file's size: " + size);
+	if (ringCapacity <= 0 || ringCapacity > (1 << 24))
+	    throw new IllegalArgumentException("invalid ring capacity: " + ringCapacity);
+	
+	FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		StandardOpenOption.READ, StandardOpenOption.WRITE);
+	try
+	{
+	    return new TraceRecorder(file, channel, size, ringCapacity);
+	} catch (IOException | RuntimeException ex)
+	{
+	    channel.close();
+	    throw ex;
+	}
+    }
+    
+    /**
+     * Register methods of {@code table}.
+     * 
+     * <p>
+     * Each method got an id (written into trace file with its name) and kinds of
+     * its recorded arguments are computed. It's done only once for each type.
+     * </p>
+     * 
+     * @param table
+     *            table to register
+     * @return traced table
+     */
+    TracedTable register(MethodTable table)
+    {
+	return this.tables.computeIfAbsent(table.getType(), type -> {
+	    int base = this.nextMethodId.getAndAdd(table.size());
+	    byte kinds[][] = new byte[table.size()][];
+	    for (int i = 0; i < table.size(); i++)
+	    {
+		Method method = table.getMethod(i);
+		Class<?> parameters[] = method.getParameterTypes();
+		kinds[i] = new byte[Math.min(parameters.length, MAX_ARGUMENTS)];
+		for (int j = 0; j < kinds[i].length; j++)
+		    kinds[i][j] = kindOf(parameters[j]);
+		
+		byte name[] = (type.getName() + '.' + method.getName()).getBytes(StandardCharsets.UTF_8);
+		this.definitions.add(encode(METHOD, base + i, parameters.length, name));
+	    }
+	    
+	    return new TracedTable(base, kinds);
+	});
+    }
+    
+    /**
+     * Record an invocation.
+     * 
+     * <p>
+     * This method is invoked by caller's thread : it never blocks and never
+     * allocates (except the first time a thread or an argument's class is seen,
+     * or when thread's ring grows). Nothing is recorded once recorder is closed.
+     * </p>
+     * 
+     * @param table
+     *            traced table of proxied type
+     * @param invocation
+     *            recorded invocation
+     * @param start
+     *            invocation's start (from {@link System#nanoTime()})
+     * @param duration
+     *            invocation's duration in nanoseconds
+     * @param failed
+     *            {@code true} if invocation threw an exception
+     */
+    void record(TracedTable table, Invocation invocation, long start, long duration, boolean failed)
+    {
+	if (this.closed)
+	    return;
+	
+	Ring ring = this.rings.get();
+	long slot = ring.head;
+	if (slot - ring.cachedTail >= ring.capacity)
+	{
+	    ring.cachedTail = ring.consumed.get();
+	    if (slot - ring.cachedTail >= ring.capacity)
+	    {
+		if (ring.capacity >= this.ringCapacity)
+		{
+		    this.dropped.increment();
+		    return;
+		}
+		
+		ring.grow();
+	    }
+	}
+	
+	int index = invocation.getMethodIndex();
+	byte kinds[] = table.kinds[index];
+	long events[] = ring.events;
+	int offset = (int) (slot & (ring.capacity - 1)) * EVENT_WORDS;
+	
+	long packedKinds = 0L;
+	for (int i = 0; i < kinds.length; i++)
+	{
+	    byte kind = kinds[i];
+	    long value;
+	    switch (kind)
+	    {
+		case BOOLEAN:
+		    value = invocation.booleanArg(i) ? 1L : 0L;
+		    break;
+		case BYTE:
+		case CHAR:
+		case SHORT:
+		case INT:
+		    value = invocation.intArg(i);
+		    break;
+		case LONG:
+		    value = invocation.longArg(i);
+		    break;
+		case FLOAT:
+		    value = Float.floatToRawIntBits(invocation.floatArg(i));
+		    break;
+		case DOUBLE:
+		    value = Double.doubleToRawLongBits(invocation.doubleArg(i));
+		    break;
+		default:
+		    Object argument = invocation.objectArg(i);
+		    if (argument == null)
+		    {
+			kind = NULL;
+			value = 0L;
+		    } else
+		    {
+			value = ((long) this.classIds.get(argument.getClass()) << 32)
+				| (System.identityHashCode(argument) & 0xFFFFFFFFL);
+		    }
+	    }
+	    
+	    packedKinds |= (long) kind << (i * 4);
+	    events[offset + 3 + i] = value;
+	}
+	
+	events[offset] = (table.base + index) & 0xFFFFFFFFL | (long) kinds.length << 32
+		| (long) (failed ? FAILED : 0) << 36 | packedKinds << 40;
+	events[offset + 1] = start;
+	events[offset + 2] = duration;
+	
+	ring.head = slot + 1;
+	ring.published.lazySet(slot + 1);
+    }
+    
+    /**
+     * Getting trace file.
+     * 
+     * @return trace file
+     */
+    public Path getFile()
+    {
+	return this.file;
+    }
+    
+    /**
+     * Getting count of events written into trace file.
+     * 
+     * @return written events count
+     */
+    public long getWrittenEvents()
+    {
+	return this.written.get();
+    }
+    
+    /**
+     * Getting count of events dropped because a ring or trace file was full.
+     * 
+     * @return dropped events count
+     */
+    public long getDroppedEvents()
+    {
+	return this.dropped.sum();
+    }
+    
+    /**
+     * Close this recorder.
+     * 
+     * <p>
+     * Pending events are drained and trace file is flushed. Events recorded after
+     * this method are ignored.
+     * </p>
+     * 
+     * @throws IOException
+     *             if trace file can't be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+	if (this.closed)
+	    return;
+	
+	this.closed = true;
+	LockSupport.unpark(this.drainer);
+	try
+	{
+	    this.drainer.join();
+	} catch (InterruptedException ex)
+	{
+	    Thread.currentThread().interrupt();
+	}
+	
+	this.buffer.force();
+	this.channel.close();
+    }
+    
+    /**
+     * Drain rings until recorder is closed.
+     */
+    private void drainLoop()
+    {
+	while (!this.closed)
+	{
+	    if (this.drain() == 0)
+		LockSupport.parkNanos(this, DRAIN_INTERVAL);
+	}
+	
+	this.drain();
+    }
+    
+    /**
+     * Drain all rings into trace file.
+     * 
+     * @return count of drained events
+     */
+    private int drain()
+    {
+	int drained = 0;
+	for (Iterator<Ring> iterator = this.activeRings.iterator(); iterator.hasNext();)
+	{
+	    Ring ring = iterator.next();
+	    
+	    // Definitions used by published events are queued before they're published
+	    long limit = ring.published.get();
+	    this.writeDefinitions();
+	    
+	    // Read after published events : a grown ring is seen with its events
+	    long events[] = ring.events;
+	    int mask = events.length / EVENT_WORDS - 1;
+	    long consumed = ring.consumed.get();
+	    for (long slot = consumed; slot < limit; slot++)
+		this.writeEvent(ring.threadId, events, (int) (slot & mask) * EVENT_WORDS);
+	    
+	    ring.consumed.lazySet(limit);
+	    drained += (int) (limit - consumed);
+	    
+	    if (limit == consumed && ring.isDead() && ring.published.get() == limit)
+		iterator.remove();
+	}
+	
+	return drained;
+    }
+    
+    /**
+     * Write queued definitions into trace file.
+     */
+    private void writeDefinitions()
+    {
+	byte definition[];
+	while ((definition = this.definitions.poll()) != null)
+	{
+	    if (!this.full && this.buffer.remaining() > definition.length)
+		this.buffer.put(definition);
+	    else
+		this.full = true;
+	}
+    }
+    
+    /**
+     * Write an event of a ring into trace file.
+     * 
+     * @param threadId
+     *            id of ring's thread
+     * @param events
+     *            ring's events
+     * @param offset
+     *            event's offset into ring
+     */
+    private void writeEvent(long threadId, long events[], int offset)
+    {
+	long header = events[offset];
+	int count = (int) (header >>> 32) & 0xF;
+	
+	// Keeping at least one byte for end's tag
+	if (this.full || this.buffer.remaining() <= EVENT_SIZE + count * ARGUMENT_SIZE)
+	{
+	    this.full = true;
+	    this.dropped.increment();
+	    return;
+	}
+	
+	this.buffer.put(EVENT);
+	this.buffer.putLong(threadId);
+	this.buffer.putInt((int) header);
+	this.buffer.put((byte) ((header >>> 36) & 0xF));
+	this.buffer.put((byte) count);
+	this.buffer.putLong(events[offset + 1]);
+	this.buffer.putLong(events[offset + 2]);
+	for (int i = 0; i < count; i++)
+	{
+	    this.buffer.put((byte) ((header >>> (40 + i * 4)) & 0xF));
+	    this.buffer.putLong(events[offset + 3 + i]);
+	}
+	
+	this.written.lazySet(this.written.get() + 1);
+    }
+    
+    /**
+     * Create ring of current thread.
+     * 
+     * @return created ring
+     */
+    private Ring newRing()
+    {
+	Thread thread = Thread.currentThread();
+	Ring ring = new Ring(thread, Math.min(INITIAL_RING_CAPACITY, this.ringCapacity));
+	this.definitions.add(encode(THREAD, thread.getId(), 0, thread.getName().getBytes(StandardCharsets.UTF_8)));
+	this.activeRings.add(ring);
+	
+	return ring;
+    }
+    
+    /**
+     * Give an id to {@code type} and queue its definition.
+     * 
+     * @param type
+     *            argument's class
+     * @return class' id
+     */
+    private int defineClass(Class<?> type)
+    {
+	int id = this.nextClassId.getAndIncrement();
+	this.definitions.add(encode(CLASS, id, 0, type.getName().getBytes(StandardCharsets.UTF_8)));
+	
+	return id;
+    }
+    
+    /**
+     * Encode a definition record.
+     * 
+     * <p>
+     * Method definitions contains their id, their parameters' count and their
+     * name. Thread definitions contains their id and their name. Class definitions
+     * contains their id and their name. Names are truncated to 65535 bytes.
+     * </p>
+     * 
+     * @param tag
+     *            record's tag
+     * @param id
+     *            defined id
+     * @param parameterCount
+     *            method's parameter count (only written for methods)
+     * @param name
+     *            UTF-8 encoded name
+     * @return encoded record
+     */
+    private static byte[] encode(byte tag, long id, int parameterCount, byte name[])
+    {
+	int length = Math.min(name.length, 0xFFFF);
+	ByteBuffer record = ByteBuffer.allocate(1 + (tag == THREAD ? 8 : 4) + (tag == METHOD ? 1 : 0) + 2 + length);
+	record.put(tag);
+	if (tag == THREAD)
+	    record.putLong(id);
+	else
+	    record.putInt((int) id);
+	if (tag == METHOD)
+	    record.put((byte) Math.min(parameterCount, 0xFF));
+	record.putShort((short) length);
+	record.put(name, 0, length);
+	
+	return record.array();
+    }
+    
+    /**
+     * Getting recorded kind of a parameter.
+     * 
+     * @param type
+     *            parameter's type
+     * @return argument's kind
+     */
+    private static byte kindOf(Class<?> type)
+    {
+	if (type == boolean.class)
+	    return BOOLEAN;
+	else if (type == byte.class)
+	    return BYTE;
+	else if (type == char.class)
+	    return CHAR;
+	else if (type == short.class)
+	    return SHORT;
+	else if (type == int.class)
+	    return INT;
+	else if (type == long.class)
+	    return LONG;
+	else if (type == float.class)
+	    return FLOAT;
+	else if (type == double.class)
+	    return DOUBLE;
+	else
+	    return REFERENCE;
+    }
+    
+    /**
+     * Methods of a type registered into a recorder.
+     * 
+     * @author DrogoniEntity
+     */
+    static final class TracedTable
+    {
+	/**
+	 * Id of first method (other methods follow their index).
+	 */
+	private final int base;
+	
+	/**
+	 * Kinds of recorded arguments of each method.
+	 */
+	private final byte kinds[][];
+	
+	/**
+	 * Build a traced table.
+	 * 
+	 * @param base
+	 *            id of first method
+	 * @param kinds
+	 *            kinds of recorded arguments of each method
+	 */
+	private TracedTable(int base, byte kinds[][])
+	{
+	    this.base = base;
+	    this.kinds = kinds;
+	}
+    }
+    
+    /**
+     * Events' ring of a thread.
+     * 
+     * <p>
+     * Only its thread writes events and only drainer thread reads them. Written
+     * events are published by {@link #published} and given back by
+     * {@link #consumed}, so no lock is needed.
+     * </p>
+     * 
+     * <p>
+     * A ring starts small and its thread doubles it when it's full (see
+     * {@link #grow()}).
+     * </p>
+     * 
+     * @author DrogoniEntity
+     */
+    private static final class Ring
+    {
+	/**
+	 * Ring's thread.
+	 */
+	private final WeakReference<Thread> thread;
+	
+	/**
+	 * Id of ring's thread.
+	 */
+	private final long threadId;
+	
+	/**
+	 * Events' values.
+	 * 
+	 * <p>
+	 * Replaced when ring grows, before events written into the new array are
+	 * published.
+	 * </p>
+	 */
+	private volatile long events[];
+	
+	/**
+	 * Count of events kept by {@link #events} (only used by ring's thread).
+	 */
+	private int capacity;
+	
+	/**
+	 * Next slot to write (only used by ring's thread).
+	 */
+	private long head;
+	
+	/**
+	 * Last known consumed slots count (only used by ring's thread).
+	 */
+	private long cachedTail;
+	
+	/**
+	 * Count of published events.
+	 */
+	private final AtomicLong published;
+	
+	/**
+	 * Count of drained events.
+	 */
+	private final AtomicLong consumed;
+	
+	/**
+	 * Build an empty ring.
+	 * 
+	 * @param thread
+	 *            ring's thread
+	 * @param capacity
+	 *            count of kept events
+	 */
+	private Ring(Thread thread, int capacity)
+	{
+	    this.thread = new WeakReference<>(thread);
+	    this.threadId = thread.getId();
+	    this.events = new long[capacity * EVENT_WORDS];
+	    this.capacity = capacity;
+	    this.published = new AtomicLong();
+	    this.consumed = new AtomicLong();
+	}
+	
+	/**
+	 * Double ring's capacity (only called by ring's thread).
+	 * 
+	 * <p>
+	 * Events not drained yet are copied into the new array. Until it's
+	 * published, drainer thread still reads them from previous array, which
+	 * isn't modified anymore.
+	 * </p>
+	 */
+	private void grow()
+	{
+	    long previous[] = this.events;
+	    int previousMask = this.capacity - 1;
+	    int capacity = this.capacity << 1;
+	    long grown[] = new long[capacity * EVENT_WORDS];
+	    for (long slot = this.consumed.get(); slot < this.head; slot++)
+		System.arraycopy(previous, (int) (slot & previousMask) * EVENT_WORDS, grown,
+			(int) (slot & (capacity - 1)) * EVENT_WORDS, EVENT_WORDS);
+	    
+	    this.events = grown;
+	    this.capacity = capacity;
+	}
+	
+	/**
+	 * Checking if ring's thread is dead.
+	 * 
+	 * @return {@code true} if ring's thread is terminated
+	 */
+	private boolean isDead()
+	{
+	    Thread owner = this.thread.get();
+	    return owner == null || !owner.isAlive();
+	}
+    }
+}
@@ -0,0 +1,112 @@
+package fr.drogonistudio.delegateme;
+
+/**
+ * A delegator recording each invocation into a trace file.
+ * 
+ * <p>
+ * It's a production replacement of tracers printing invocations on
+ * {@link System#out} : each invocation is recorded by a {@link TraceRecorder}
+ * as a compact binary event (invoked method, thread, start time, duration,
+ * failure and a summary of first arguments) into current thread's ring buffer.
+ * No lock is taken, no text is formatted and nothing is allocated on caller's
+ * thread. Trace file is written by recorder's background thread and it can be
+ * read with {@link TraceDecoder}.
+ * </p>
+ * 
+ * <p>
+ * Primitive arguments are recorded with their value, reference arguments with
+ * their class and their identity hash code (their {@code toString} method is
+ * never invoked). Only the first {@value TraceRecorder#MAX_ARGUMENTS}
+ * arguments are recorded.
+ * </p>
+ * 
+ * @author DrogoniEntity
+ * @param <Delegated>
+ *            Object's type to delegate
+ * @see TraceRecorder
+ */
+public class TracingDelegator<Delegated> extends InvocationDelegator<Delegated>
+{
+    
+    /**
+     * Recorder where invocations are recorded.
+     */
+    private final TraceRecorder recorder;
+    
+    /**
+     * Delegated type's methods registered into {@link #recorder}.
+     */
+    private final TraceRecorder.TracedTable table;
+    
+    /**
+     * Setup delegation by storing object to delegate and recorder.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @param recorder
+     *            recorder where invocations are recorded
+     * @throws NullPointerException
+     *             if an argument is null
+     */
+    public TracingDelegator(Class<Delegated> type, Delegated delegated, TraceRecorder recorder)
+	    throws NullPointerException
+    {
+	this(type, delegated, MethodMatcher.any(), recorder);
+    }
+    
+    /**
+     * Setup delegation by storing object to delegate, methods to trace and
+     * recorder.
+     * 
+     * @param type
+     *            delegated type (the one given to {@link DelegatorFactory})
+     * @param delegated
+     *            object to delegate
+     * @param tracedMethods
+     *            methods to trace
+     * @param recorder
+     *            recorder where invocations are recorded
+     * @throws NullPointerException
+     *             if an argument is null
+     * @see Delegator#Delegator(Object, MethodMatcher)
+     */
+    public TracingDelegator(Class<Delegated> type, Delegated delegated, MethodMatcher tracedMethods,
+	    TraceRecorder recorder) throws NullPointerException
+    {
+	super(delegated, tracedMethods);
+	if (type == null)
+	    throw new NullPointerException("excepted a type but got null");
+	if (recorder == null)
+	    throw new NullPointerException("excepted a recorder but got null");
+	
+	this.recorder = recorder;
+	this.table = recorder.register(MethodTable.of(type));
+    }
+    
+    @Override
+    public void invoke(Invocation invocation) throws Throwable
+    {
+	boolean failed = true;
+	long start = System.nanoTime();
+	try
+	{
+	    invocation.proceed();
+	    failed = false;
+	} finally
+	{
+	    this.recorder.record(this.table, invocation, start, System.nanoTime() - start, failed);
+	}
+    }
+    
+    /**
+     * Getting recorder where invocations are recorded.
+     * 
+     * @return delegator's recorder
+     */
+    public final TraceRecorder getRecorder()
+    {
+	return this.recorder;
+    }
+}
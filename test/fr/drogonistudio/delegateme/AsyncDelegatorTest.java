@@ -0,0 +1,92 @@
+package fr.drogonistudio.delegateme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link AsyncDelegator} with asynchronous methods.
+ * 
+ * @author DrogoniEntity
+ */
+public class AsyncDelegatorTest
+{
+    
+    @Test
+    public void failingBeforeInvokeDoesntFailReturnedFuture() throws Exception
+    {
+	Service delegated = new Service();
+	FailingAuditor auditor = new FailingAuditor(delegated);
+	Service proxy = DelegatorFactory.warp(Service.class, auditor);
+	
+	CompletableFuture<String> future = proxy.fetch();
+	
+	// Delegated stage is given back as it is
+	assertSame(delegated.pending, future);
+	assertTrue(auditor.failures.isEmpty());
+	assertTrue(auditor.results.isEmpty());
+	
+	delegated.pending.complete("done");
+	assertEquals("done", future.get());
+	
+	// Side work failure is reported and after work still runs once both are done
+	assertEquals(1, auditor.failures.size());
+	assertTrue(auditor.failures.get(0) instanceof IllegalStateException);
+	assertEquals(1, auditor.results.size());
+	assertEquals("done", auditor.results.get(0));
+    }
+    
+    public static class Service
+    {
+	public final CompletableFuture<String> pending = new CompletableFuture<>();
+	
+	public CompletableFuture<String> fetch()
+	{
+	    return this.pending;
+	}
+    }
+    
+    /**
+     * An asynchronous delegator whose check always fails (side work runs on
+     * caller's thread to keep test deterministic).
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class FailingAuditor extends AsyncDelegator<Service>
+    {
+	private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+	
+	private final List<Object> results = new CopyOnWriteArrayList<>();
+	
+	public FailingAuditor(Service delegated)
+	{
+	    super(delegated, MethodMatcher.named("fetch"), Runnable::run);
+	}
+	
+	@Override
+	protected void beforeInvoke(Service proxy, Method method, Object[] args) throws Throwable
+	{
+	    throw new IllegalStateException("denied");
+	}
+	
+	@Override
+	protected void afterInvoke(Service proxy, Method method, Object[] args, Object result, Throwable failure)
+		throws Throwable
+	{
+	    this.results.add(result);
+	}
+	
+	@Override
+	protected void sideWorkFailed(Method method, Throwable failure)
+	{
+	    this.failures.add(failure);
+	}
+    }
+}
@@ -0,0 +1,197 @@
+package fr.drogonistudio.delegateme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import fr.drogonistudio.delegateme.Delegator.EqualsCompareStrategy;
+
+/**
+ * Tests of deferred fields synchronization
+ * ({@link Delegator#markProxyFieldsDirty(Object, int)} and
+ * {@link Delegator#flush(EqualsCompareStrategy)}).
+ * 
+ * @author DrogoniEntity
+ */
+public class DeferredSyncTest
+{
+    
+    @Test
+    public void flushCopiesMarkedChangesOnce()
+    {
+	Counter delegated = new Counter();
+	DeferringDelegator delegator = new DeferringDelegator(delegated);
+	Counter proxy = DelegatorFactory.warp(Counter.class, delegator);
+	
+	proxy.increment();
+	proxy.increment();
+	assertTrue(delegator.isProxyFieldsDirty());
+	assertEquals(0, proxy.value);
+	
+	assertTrue(delegator.flush(EqualsCompareStrategy.BY_REFERENCE) != 0L);
+	assertFalse(delegator.isProxyFieldsDirty());
+	assertEquals(2, proxy.value);
+	assertEquals(0L, delegator.flush(EqualsCompareStrategy.BY_REFERENCE));
+    }
+    
+    @Test
+    public void readOnlyMethodsDontMark()
+    {
+	DeferringDelegator delegator = new DeferringDelegator(new Counter());
+	Counter proxy = DelegatorFactory.warp(Counter.class, delegator);
+	
+	proxy.getValue();
+	assertFalse(delegator.isProxyFieldsDirty());
+    }
+    
+    @Test
+    public void updateDelegatedFieldsRejectsMarkedProxy()
+    {
+	Counter delegated = new Counter();
+	DeferringDelegator delegator = new DeferringDelegator(delegated);
+	Counter proxy = DelegatorFactory.warp(Counter.class, delegator);
+	
+	proxy.increment();
+	proxy.value = 42;
+	try
+	{
+	    delegator.updateDelegatedFieldsValue(proxy, EqualsCompareStrategy.BY_REFERENCE);
+	    fail("marked proxy's fields have been pushed");
+	} catch (IllegalStateException ex)
+	{
+	    // Neither delegated object's change nor caller's write are lost
+	    assertEquals(1, delegated.value);
+	    assertEquals(42, proxy.value);
+	}
+    }
+    
+    @Test
+    public void writesAfterFlushArePushed()
+    {
+	Counter delegated = new Counter();
+	DeferringDelegator delegator = new DeferringDelegator(delegated);
+	Counter proxy = DelegatorFactory.warp(Counter.class, delegator);
+	
+	proxy.increment();
+	delegator.flush(EqualsCompareStrategy.BY_REFERENCE);
+	proxy.value = 42;
+	assertTrue(delegator.updateDelegatedFieldsValue(proxy, EqualsCompareStrategy.BY_REFERENCE) != 0L);
+	
+	assertEquals(42, delegated.value);
+	assertEquals(42, proxy.value);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void markingAnotherProxyIsRejected()
+    {
+	DeferringDelegator delegator = new DeferringDelegator(new Counter());
+	Counter first = DelegatorFactory.warp(Counter.class, delegator);
+	Counter second = DelegatorFactory.warp(Counter.class, delegator);
+	
+	first.increment();
+	second.increment();
+    }
+    
+    @Test
+    public void concurrentMarksAreNeverLost() throws InterruptedException
+    {
+	int threadCount = 4;
+	int increments = 100_000;
+	
+	Counter delegated = new Counter();
+	DeferringDelegator delegator = new DeferringDelegator(delegated);
+	Counter proxy = DelegatorFactory.warp(Counter.class, delegator);
+	
+	CountDownLatch start = new CountDownLatch(1);
+	Thread workers[] = new Thread[threadCount];
+	for (int i = 0; i < threadCount; i++)
+	{
+	    workers[i] = new Thread(() -> {
+		awaitQuietly(start);
+		for (int j = 0; j < increments; j++)
+		    proxy.increment();
+	    });
+	    workers[i].start();
+	}
+	
+	AtomicBoolean running = new AtomicBoolean(true);
+	Thread flusher = new Thread(() -> {
+	    awaitQuietly(start);
+	    while (running.get())
+		delegator.flush(EqualsCompareStrategy.BY_REFERENCE);
+	});
+	flusher.start();
+	
+	start.countDown();
+	for (Thread worker : workers)
+	    worker.join();
+	running.set(false);
+	flusher.join();
+	
+	// Last increments must still be marked if concurrent flushes missed them
+	delegator.flush(EqualsCompareStrategy.BY_REFERENCE);
+	assertEquals(threadCount * increments, delegated.getValue());
+	assertEquals(threadCount * increments, proxy.value);
+	assertFalse(delegator.isProxyFieldsDirty());
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+	try
+	{
+	    latch.await();
+	} catch (InterruptedException ex)
+	{
+	    Thread.currentThread().interrupt();
+	}
+    }
+    
+    public static class Counter
+    {
+	public int value;
+	
+	public synchronized void increment()
+	{
+	    this.value++;
+	}
+	
+	public synchronized int getValue()
+	{
+	    return this.value;
+	}
+    }
+    
+    /**
+     * A delegator marking proxy's fields after each invocation.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class DeferringDelegator extends Delegator<Counter>
+    {
+	public DeferringDelegator(Counter delegated)
+	{
+	    super(delegated, MethodMatcher.any(), MethodMatcher.named("getValue"));
+	}
+	
+	@Override
+	public Object invoke(Counter proxy, Method method, Object[] args) throws Throwable
+	{
+	    return this.invoke(proxy, MethodTable.ofProxy(proxy.getClass()).indexOf(method), method, args);
+	}
+	
+	@Override
+	public Object invoke(Counter proxy, int methodIndex, Method method, Object[] args) throws Throwable
+	{
+	    Object result = this.delegate(proxy, methodIndex, args);
+	    this.markProxyFieldsDirty(proxy, methodIndex);
+	    return result;
+	}
+    }
+}
@@ -0,0 +1,61 @@
+package fr.drogonistudio.delegateme;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link FieldCopier}.
+ * 
+ * @author DrogoniEntity
+ */
+public class FieldCopierTest
+{
+    
+    @Test(expected = IllegalAccessException.class)
+    public void bootstrapRejectsOtherCopiers() throws IllegalAccessException
+    {
+	Rogue.steal();
+    }
+    
+    public static class Secret
+    {
+	private final String value = "secret";
+	
+	public String reveal()
+	{
+	    return this.value;
+	}
+    }
+    
+    /**
+     * A copier which isn't generated by this library.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class Rogue extends FieldCopier
+    {
+	public Rogue()
+	{
+	    super(Secret.class);
+	}
+	
+	static void steal() throws IllegalAccessException
+	{
+	    FieldCopier.bootstrap(MethodHandles.lookup(), "set",
+		    MethodType.methodType(void.class, Secret.class, String.class), Secret.class, 0);
+	}
+	
+	@Override
+	public void copy(Object src, Object dest)
+	{
+	}
+	
+	@Override
+	public long sync(Object src, Object dest, Delegator.EqualsCompareStrategy strategy)
+	{
+	    return 0L;
+	}
+    }
+}
@@ -0,0 +1,82 @@
+package fr.drogonistudio.delegateme;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import fr.drogonistudio.delegateme.Delegator.EqualsCompareStrategy;
+
+/**
+ * Tests of {@link MemoizingDelegator} invalidation when it isn't the delegator
+ * installed into proxy.
+ * 
+ * @author DrogoniEntity
+ */
+public class MemoizingDelegatorTest
+{
+    
+    private static final MethodMatcher ADD = MethodMatcher.named("add");
+    
+    @Test
+    public void pipelineStageIsInvalidated()
+    {
+	Calculator delegated = new Calculator();
+	MemoizingDelegator<Calculator> memoizing = new MemoizingDelegator<>(Calculator.class, delegated, ADD, 16);
+	Calculator proxy = DelegatorFactory.warp(Calculator.class, Pipeline.of(Calculator.class, memoizing));
+	
+	assertResultsAfterSync(proxy, memoizing);
+    }
+    
+    @Test
+    public void lazilyMaterializedDelegatorIsInvalidated()
+    {
+	MemoizingDelegator<?> created[] = new MemoizingDelegator<?>[1];
+	Calculator proxy = DelegatorFactory.warpLazy(Calculator.class, Calculator::new, delegated -> {
+	    MemoizingDelegator<Calculator> memoizing = new MemoizingDelegator<>(Calculator.class, delegated, ADD, 16);
+	    created[0] = memoizing;
+	    return memoizing;
+	});
+	
+	// Materializing delegator
+	proxy.getBase();
+	assertResultsAfterSync(proxy, created[0]);
+    }
+    
+    /**
+     * Invoke memoized method, change a field through proxy's delegator and
+     * check that next invocation misses.
+     * 
+     * @param proxy
+     *            proxy object
+     * @param memoizing
+     *            memoizing delegator behind proxy
+     */
+    private static void assertResultsAfterSync(Calculator proxy, MemoizingDelegator<?> memoizing)
+    {
+	assertEquals(1, proxy.add(1));
+	assertEquals(1, proxy.add(1));
+	assertEquals(1L, memoizing.getStatistics().getMisses());
+	assertEquals(1L, memoizing.getStatistics().getHits());
+	
+	proxy.base = 10;
+	DelegatorFactory.getDelegator(proxy).updateDelegatedFieldsValue(proxy, EqualsCompareStrategy.BY_REFERENCE);
+	
+	assertEquals(11, proxy.add(1));
+	assertEquals(2L, memoizing.getStatistics().getMisses());
+    }
+    
+    public static class Calculator
+    {
+	public int base;
+	
+	public int add(int value)
+	{
+	    return this.base + value;
+	}
+	
+	public int getBase()
+	{
+	    return this.base;
+	}
+    }
+}
@@ -0,0 +1,37 @@
+package fr.drogonistudio.delegateme;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link MethodTable#indexOf(Method)}.
+ * 
+ * @author DrogoniEntity
+ */
+public class MethodTableTest
+{
+    
+    @Test
+    public void tableMethodsAreFoundByIdentity()
+    {
+	MethodTable table = MethodTable.of(Runnable.class);
+	Method methods[] = DelegatorFactory.DelegatedMethodIntercepter.methods(Runnable.class);
+	
+	for (int i = 0; i < methods.length; i++)
+	    assertEquals(i, table.indexOf(methods[i]));
+    }
+    
+    @Test
+    public void equalMethodsAreStillFound() throws NoSuchMethodException
+    {
+	MethodTable table = MethodTable.of(Runnable.class);
+	
+	// Reflection gives a new copy each time
+	Method run = Runnable.class.getMethod("run");
+	assertEquals(table.indexOf("run"), table.indexOf(run));
+	assertEquals(-1, table.indexOf(String.class.getMethod("length")));
+    }
+}
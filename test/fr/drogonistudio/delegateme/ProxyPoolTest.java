@@ -0,0 +1,80 @@
+package fr.drogonistudio.delegateme;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * Tests of {@link ProxyPool}.
+ * 
+ * @author DrogoniEntity
+ */
+public class ProxyPoolTest
+{
+    
+    @Test
+    public void matchersSelectingSameMethodsAreAccepted()
+    {
+	ProxyPool<Holder> pool = ProxyPool.of(Holder.class, MethodMatcher.named("get"), 4);
+	Holder proxy = pool.acquire(new PassThrough(new Holder("a"), MethodMatcher.named("get")));
+	assertTrue(pool.release(proxy));
+	
+	Holder reused = pool.acquire(new PassThrough(new Holder("b"), MethodMatcher.named("get")));
+	assertSame(proxy, reused);
+	assertEquals("b", reused.get());
+    }
+    
+    @Test
+    public void releaseClearsReferenceFields()
+    {
+	ProxyPool<Holder> pool = ProxyPool.of(Holder.class, 4);
+	Holder proxy = pool.acquire(new PassThrough(new Holder("a"), MethodMatcher.any()));
+	assertEquals("a", proxy.value);
+	
+	assertTrue(pool.release(proxy));
+	assertNull(proxy.value);
+	assertEquals(1, proxy.length);
+    }
+    
+    public static class Holder
+    {
+	public Object value;
+	
+	public int length;
+	
+	public Holder(String value)
+	{
+	    this.value = value;
+	    this.length = value.length();
+	}
+	
+	public Object get()
+	{
+	    return this.value;
+	}
+    }
+    
+    /**
+     * A delegator which only perform default behavior.
+     * 
+     * @author DrogoniEntity
+     */
+    public static final class PassThrough extends Delegator<Holder>
+    {
+	public PassThrough(Holder delegated, MethodMatcher interceptedMethods)
+	{
+	    super(delegated, interceptedMethods);
+	}
+	
+	@Override
+	public Object invoke(Holder proxy, Method method, Object[] args) throws Throwable
+	{
+	    return this.delegate(proxy, method, args);
+	}
+    }
+}